@@ -1,19 +1,113 @@
 package com.dataquality.common;
 
-import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
+/**
+ * Shared log stream behind the UI console.
+ *
+ * Lines go into a fixed-size ring buffer and get consecutive sequence numbers. Publishing is
+ * lock-free (one atomic increment and one slot write) and never waits for readers; the oldest
+ * lines are overwritten once the buffer is full. Readers keep their own cursor (the next
+ * sequence they want) and read at their own pace; a reader that fell more than
+ * {@link #CAPACITY} lines behind continues at the oldest line still held.
+ */
 public class CoreLogStream {
 
-    private static final List<String> logs = new CopyOnWriteArrayList<>();
+    /** Lines held for readers (a power of two). */
+    public static final int CAPACITY = 1 << 14;
+
+    private static final int MASK = CAPACITY - 1;
+
+    /** One published line. */
+    public static final class Line {
+        public final long seq;
+        public final String text;
+
+        Line(long seq, String text) {
+            this.seq = seq;
+            this.text = text;
+        }
+    }
 
+    private static final AtomicReferenceArray<Line> slots = new AtomicReferenceArray<>(CAPACITY);
+
+    // Sequence of the next line to publish
+    private static final AtomicLong next = new AtomicLong();
+
+    // Called after every publish; readers use it to wake up instead of polling
+    private static final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Logs a line of the current run ({@link RunContext#current}), or straight to the shared
+     * stream outside a run.
+     */
     public static void push(String msg) {
-        logs.add(msg);
+        RunContext ctx = RunContext.current();
+        if (ctx != null) ctx.log(msg);
+        else publish(msg);
+    }
+
+    /** Appends a line to the shared stream and returns its sequence number. */
+    public static long publish(String msg) {
+        long seq = next.getAndIncrement();
+        slots.set((int) (seq & MASK), new Line(seq, msg));
+        for (Runnable l : listeners) {
+            try {
+                l.run();
+            } catch (RuntimeException ignored) {}
+        }
+        return seq;
+    }
+
+    /** Sequence number the next published line will get. */
+    public static long head() {
+        return next.get();
+    }
+
+    /** Oldest sequence number still held. */
+    public static long oldest() {
+        return Math.max(0, next.get() - CAPACITY);
+    }
+
+    /**
+     * Up to {@code max} consecutive lines from sequence {@code from} on (or from the oldest line
+     * still held, if {@code from} was overwritten). Stops early at a line that is claimed but not
+     * written yet; the publisher's listener call follows right after it.
+     */
+    public static List<Line> read(long from, int max) {
+        List<Line> out = new ArrayList<>(Math.min(max, 256));
+        long seq = Math.max(from, oldest());
+        while (out.size() < max) {
+            Line line = slots.get((int) (seq & MASK));
+            if (line == null || line.seq < seq) break; // not published yet
+            if (line.seq > seq) {
+                // Overwritten while reading: continue at the oldest line still held
+                seq = oldest();
+                continue;
+            }
+            out.add(line);
+            seq++;
+        }
+        return out;
+    }
+
+    /** Whether {@link #read} would return a line for {@code from}. */
+    public static boolean hasLine(long from) {
+        long seq = Math.max(from, oldest());
+        Line line = slots.get((int) (seq & MASK));
+        return line != null && line.seq >= seq;
+    }
+
+    /** Registers {@code listener} to run after every publish; it must not block. */
+    public static void addListener(Runnable listener) {
+        listeners.add(listener);
     }
 
-    public static List<String> drain() {
-        List<String> copy = List.copyOf(logs);
-        logs.clear();
-        return copy;
+    public static void removeListener(Runnable listener) {
+        listeners.remove(listener);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,85 @@
+package com.dataquality.common;
+
+import org.apache.commons.codec.digest.MurmurHash3;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Set of 128-bit key fingerprints (MurmurHash3 x64/128 of the UTF-8 bytes) in primitive
+ * open-addressing arrays.
+ *
+ * Each entry costs two longs (32 bytes per slot at the maximum load factor of 0.5) instead of
+ * a String plus a HashMap node. With 128 bits a false "duplicate" needs a hash collision, which
+ * is negligible for any realistic number of keys. Not thread-safe.
+ */
+public final class FingerprintSet {
+
+    private long[] hi;
+    private long[] lo;
+    private int size = 0;
+    private boolean containsZero = false;
+
+    public FingerprintSet() {
+        this(1024);
+    }
+
+    public FingerprintSet(int expected) {
+        int cap = Integer.highestOneBit(Math.max(16, expected) * 2 - 1) << 1;
+        hi = new long[cap];
+        lo = new long[cap];
+    }
+
+    /**
+     * Adds the fingerprint of {@code key}; returns false if it was already present.
+     */
+    public boolean add(String key) {
+        long[] h = MurmurHash3.hash128x64(key.getBytes(StandardCharsets.UTF_8));
+        return add(h[0], h[1]);
+    }
+
+    /**
+     * Adds a fingerprint; returns false if it was already present.
+     */
+    public boolean add(long h1, long h2) {
+        // (0, 0) marks an empty slot, so that fingerprint is tracked separately
+        if (h1 == 0 && h2 == 0) {
+            if (containsZero) return false;
+            containsZero = true;
+            size++;
+            return true;
+        }
+
+        int mask = hi.length - 1;
+        int i = (int) (h1 ^ (h1 >>> 32)) & mask;
+        while (hi[i] != 0 || lo[i] != 0) {
+            if (hi[i] == h1 && lo[i] == h2) return false;
+            i = (i + 1) & mask;
+        }
+        hi[i] = h1;
+        lo[i] = h2;
+        size++;
+
+        if (size * 2 > hi.length) grow();
+        return true;
+    }
+
+    public int size() { return size; }
+
+    private void grow() {
+        long[] oldHi = hi;
+        long[] oldLo = lo;
+        hi = new long[oldHi.length * 2];
+        lo = new long[oldLo.length * 2];
+        int mask = hi.length - 1;
+
+        for (int j = 0; j < oldHi.length; j++) {
+            long h1 = oldHi[j];
+            long h2 = oldLo[j];
+            if (h1 == 0 && h2 == 0) continue;
+            int i = (int) (h1 ^ (h1 >>> 32)) & mask;
+            while (hi[i] != 0 || lo[i] != 0) i = (i + 1) & mask;
+            hi[i] = h1;
+            lo[i] = h2;
+        }
+    }
+}
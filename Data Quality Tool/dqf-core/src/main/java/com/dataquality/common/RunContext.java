@@ -0,0 +1,109 @@
+package com.dataquality.common;
+
+import com.dataquality.config.ConfigReader;
+import com.dataquality.db.DBConnection;
+import com.dataquality.report.ValueInterner;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.function.Consumer;
+
+/**
+ * Everything one run owns: its configuration, its connection source, its log channel, the
+ * directory its reports are written to, and the report paths it produced.
+ *
+ * Runs that each have their own context can execute at the same time without touching each
+ * other's reports or logs. While a tool runs, its context is bound to the running thread, so
+ * {@link CoreLogStream#push} from any class the run calls ends up in the run's log channel.
+ */
+public class RunContext {
+
+    private static final ThreadLocal<RunContext> CURRENT = new ThreadLocal<>();
+
+    private final String id;
+    private final ConfigReader cfg;
+    private final DBConnection db;
+    private final Consumer<String> log;
+    private final Path outputDir;
+    private final ValueInterner values = new ValueInterner();
+
+    private volatile String reportPath;
+    private volatile String resultsPath;
+
+    /**
+     * @param id        run id, used in log lines of the shared stream
+     * @param outputDir directory for the run's reports; created if missing
+     * @param log       receives every log line of the run
+     */
+    public RunContext(String id, ConfigReader cfg, Path outputDir, Consumer<String> log) throws IOException {
+        this.id = id;
+        this.cfg = cfg;
+        this.db = new DBConnection(cfg.getUrl(), cfg.getUser(), cfg.getPassword());
+        this.log = log;
+        this.outputDir = Files.createDirectories(outputDir.toAbsolutePath());
+    }
+
+    /**
+     * Context of a command-line run: userfile.xlsx, reports in the working directory, log lines
+     * straight to the shared stream.
+     */
+    public static RunContext load() throws IOException {
+        return new RunContext("main", ConfigReader.load(), Paths.get(System.getProperty("user.dir")),
+                CoreLogStream::publish);
+    }
+
+    /** Context bound to the calling thread, or null outside a run. */
+    public static RunContext current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Binds {@code ctx} to the calling thread and returns the previous binding, to be restored
+     * with another call when the run ends.
+     */
+    public static RunContext bind(RunContext ctx) {
+        RunContext prev = CURRENT.get();
+        if (ctx == null) CURRENT.remove();
+        else CURRENT.set(ctx);
+        return prev;
+    }
+
+    public String getId() { return id; }
+
+    public ConfigReader getConfig() { return cfg; }
+
+    public Connection getConnection() throws SQLException {
+        return db.getConnection();
+    }
+
+    public void log(String msg) {
+        log.accept(msg);
+    }
+
+    public Path getOutputDir() { return outputDir; }
+
+    /** Shared String instances of this run's repeated result values. */
+    public ValueInterner getValueInterner() { return values; }
+
+    /** Path of {@code fileName} inside the output directory. */
+    public String outputPath(String fileName) {
+        return outputDir.resolve(fileName).toString();
+    }
+
+    // ----------------- outcome -----------------
+
+    /** Report of the finished run, null before success. */
+    public String getReportPath() { return reportPath; }
+
+    /** Result spill of the finished run, null if disabled or before success. */
+    public String getResultsPath() { return resultsPath; }
+
+    public void setReport(String reportPath, String resultsPath) {
+        this.reportPath = reportPath;
+        this.resultsPath = resultsPath;
+    }
+}
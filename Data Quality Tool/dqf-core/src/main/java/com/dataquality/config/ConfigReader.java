@@ -8,6 +8,7 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.TreeMap;
  
 public class ConfigReader {
  
@@ -63,6 +64,15 @@ public class ConfigReader {
         }
     }
  
+    /**
+     * Settings given as key/value pairs instead of userfile.xlsx (embedding, tests).
+     */
+    public static ConfigReader of(Map<String, String> settings) {
+        ConfigReader r = new ConfigReader();
+        r.config.putAll(settings);
+        return r;
+    }
+ 
     private static String cellToString(Cell c) {
         if (c == null) return "";
         switch (c.getCellType()) {
@@ -78,6 +88,17 @@ public class ConfigReader {
  
     // Config fields
     public String get(String key) { return config.getOrDefault(key, ""); }
+
+    /**
+     * All settings as sorted "key=value" lines; changes whenever any setting changes.
+     */
+    public String fingerprint() {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> e : new TreeMap<>(config).entrySet()) {
+            sb.append(e.getKey()).append('=').append(e.getValue()).append('\n');
+        }
+        return sb.toString();
+    }
  
     public String getUrl()               { return get("URL"); }
     public String getUser()              { return get("USER"); }
@@ -100,6 +121,56 @@ public class ConfigReader {
     public String getCustomExcelPath() {
         return get("Custom_excel_path");
     }
+ 
+    public int getInt(String key, int fallback) {
+        try { return Integer.parseInt(get(key)); }
+        catch (Exception e) { return fallback; }
+    }
+ 
+    public boolean getBoolean(String key, boolean fallback) {
+        String v = get(key).trim();
+        if (v.isEmpty()) return fallback;
+        return v.equalsIgnoreCase("true") || v.equalsIgnoreCase("yes") || v.equals("1") || v.equalsIgnoreCase("Y");
+    }
+ 
+    // Continuous (LISTEN/NOTIFY) mode tuning
+    public int getListenBatchSize()      { return getInt("Listen_batch_size", 200); }
+    public int getListenMaxLatencyMs()   { return getInt("Listen_max_latency_ms", 2000); }
+    public int getListenLingerMs()       { return getInt("Listen_linger_ms", 250); }
+    public int getListenMaxPending()     { return getInt("Listen_max_pending", 100000); }
+ 
+    // Excel mode fuzzy matching
+    public boolean isPreloadCandidates() { return getBoolean("Preload_candidates", false); }
+    public int getCandidateCacheSize()   { return getInt("Candidate_cache_size", 100000); }
+    public boolean isNgramPruning()      { return getBoolean("Ngram_pruning", true); }
+    public int getCandidateLimit()       { return getInt("Candidate_limit", 500); }
+    public int getParallelScoringThreshold() { return getInt("Parallel_scoring_threshold", 2000); }
+    public int getScoringThreads()       { return getInt("Scoring_threads", Runtime.getRuntime().availableProcessors()); }
+    public int getBlockCacheSize()       { return getInt("Block_cache_size", 1000); }
+    public int getFetchBatchSize()       { return getInt("Fetch_batch_size", 500); }
+    public boolean isDuplicateClustering() { return getBoolean("Duplicate_clustering", true); }
+    public int getDuplicateWindow()      { return getInt("Duplicate_window", 10); }
+    public boolean isPhoneticBlocking()  { return getBoolean("Phonetic_blocking", true); }
+    public int getPhoneticBlockLimit()   { return getInt("Phonetic_block_limit", 200); }
+    public String getMatchStrategy()     { return get("Match_strategy").isEmpty() ? "POSTAL" : get("Match_strategy").toUpperCase(); }
+    public int getTrgmTopK()             { return getInt("Trgm_top_k", 20); }
+    public boolean isMatchCache()        { return getBoolean("Match_cache", true); }
+    public int getSweepThreads()         { return getInt("Sweep_threads", Runtime.getRuntime().availableProcessors()); }
+    public boolean isCanonicalFastPath() { return getBoolean("Canonical_fast_path", true); }
+    public String getStandardizationDictionary() { return get("Standardization_dictionary"); }
+    public String getReportFormats()     { return get("Report_formats"); }
+    public int getReportShardRows()      { return getInt("Report_shard_rows", 1_000_000); }
+    public boolean isResultSpill()       { return getBoolean("Result_spill", true); }
+    public boolean isReportCache()       { return getBoolean("Report_cache", true); }
+    public String getReportCacheDir()    { return get("Report_cache_dir"); }
+    public int getReportCacheMaxMb()     { return getInt("Report_cache_max_mb", 2048); }
+    public int getReportCacheEntries()   { return getInt("Report_cache_entries", 50); }
+    // A cache hit returns the earlier report without the excel_data_quality_check upserts
+    public boolean isReportCacheSkipUpserts() { return getBoolean("Report_cache_skip_upserts", false); }
+ 
+    public double getTrgmSimilarityThreshold() {
+        try { return Double.parseDouble(get("Trgm_similarity_threshold")); }
+        catch (Exception e) { return 0.3; }
+    }
 }
  
- 
\ No newline at end of file
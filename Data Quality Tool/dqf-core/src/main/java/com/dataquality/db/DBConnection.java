@@ -4,26 +4,25 @@ import java.sql.Connection;
 import java.sql.DriverManager;
 import java.sql.SQLException;
  
+/**
+ * Connection source of one run (or of the listener): the credentials are per instance, so runs
+ * with different settings do not overwrite each other's.
+ */
 public class DBConnection {
-    private static String URL = "";
-    private static String USER = "";
-    private static String PASSWORD = "";
+    private final String url;
+    private final String user;
+    private final String password;
  
-    public static void init(String url, String user, String password) {
-        URL = (url == null) ? "" : url.trim();
-        USER = (user == null) ? "" : user.trim();
-        PASSWORD = (password == null) ? "" : password.trim();
- 
-        System.out.println("DBConnection.init()");
-        System.out.println("  URL = " + (URL.isEmpty() ? "<empty>" : URL));
-        System.out.println("  USER = " + (USER.isEmpty() ? "<empty>" : USER));
+    public DBConnection(String url, String user, String password) {
+        this.url = (url == null) ? "" : url.trim();
+        this.user = (user == null) ? "" : user.trim();
+        this.password = (password == null) ? "" : password.trim();
     }
  
-    public static Connection getConnection() throws SQLException {
-        if (URL == null || URL.isEmpty()) {
+    public Connection getConnection() throws SQLException {
+        if (url.isEmpty()) {
             throw new SQLException("Database URL not configured. Check Excel config (userfile.xlsx).");
         }
-        return DriverManager.getConnection(URL, USER, PASSWORD);
+        return DriverManager.getConnection(url, user, password);
     }
 }
- 
\ No newline at end of file
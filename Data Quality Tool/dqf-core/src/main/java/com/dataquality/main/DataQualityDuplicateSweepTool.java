@@ -0,0 +1,223 @@
+package com.dataquality.main;
+
+import com.dataquality.common.CoreLogStream;
+import com.dataquality.common.RunContext;
+import com.dataquality.config.ConfigReader;
+import com.dataquality.matching.Candidate;
+import com.dataquality.matching.DuplicatePair;
+import com.dataquality.report.DuplicatePairReportWriter;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Duplicate sweep mode: finds fuzzy duplicates inside the configured master table.
+ *
+ * The table is streamed with a server-side cursor ordered by the blocking key (upper-cased
+ * country + normalized postal code), so only one block at a time is assembled in memory.
+ * Complete blocks are scored on a worker pool with the regular name/address/city thresholds
+ * and weights; a bounded number of blocks is in flight, and results are written in block order
+ * to dqf_duplicate_pairs and to the DuplicateReport.xlsx report.
+ *
+ * Rows without a postal code are not swept (they would form one huge block per country).
+ * dqf_duplicate_pairs is created by {@link DataQualitySchemaTool}; without it the sweep fails
+ * before reading the master table.
+ */
+public class DataQualityDuplicateSweepTool {
+
+    public static final String RESULT_TABLE = "dqf_duplicate_pairs";
+
+    private static final int FETCH_SIZE = 10000;
+    private static final int INSERT_BATCH = 1000;
+
+    public static void main(String[] args) throws Exception {
+        run(RunContext.load());
+    }
+
+    /**
+     * Runs the sweep in {@code ctx}; the report path is set on the context on success.
+     */
+    public static void run(RunContext ctx) {
+        RunContext prev = RunContext.bind(ctx);
+        try {
+            execute(ctx);
+        } finally {
+            RunContext.bind(prev);
+        }
+    }
+
+    private static void execute(RunContext ctx) {
+        try {
+            ConfigReader cfg = ctx.getConfig();
+            CoreLogStream.push("Configuration loaded.");
+
+            String outputPath = ctx.outputPath("DuplicateReport.xlsx");
+            long start = System.currentTimeMillis();
+            long[] counts = sweep(ctx, cfg, outputPath);
+
+            ctx.setReport(outputPath, null);
+            CoreLogStream.push("Duplicate sweep: " + counts[0] + " rows in " + counts[1] + " blocks, "
+                    + counts[2] + " duplicate pairs (" + (System.currentTimeMillis() - start) + " ms).");
+            CoreLogStream.push("Duplicate Report Generated: " + new File(outputPath).getName());
+            CoreLogStream.push("Duplicate Sweep Completed.");
+
+        } catch (Exception e) {
+            ctx.setReport(null, null);
+            CoreLogStream.push("Duplicate Sweep Failed: " + e.getMessage());
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Runs the sweep and returns {rows, blocks, pairs}.
+     */
+    private static long[] sweep(RunContext ctx, ConfigReader cfg, String outputPath) throws Exception {
+        String table = cfg.getTableName();
+        String countryKey = "UPPER(COALESCE(" + cfg.getCountryColumn() + ",''))";
+        String postalKey = "REPLACE(REPLACE(UPPER(COALESCE(" + cfg.getPostalColumn() + ",'')),' ',''),'-','')";
+
+        String query =
+                "SELECT " + cfg.getIdColumn() + ", " + cfg.getDunsColumn() + ", " + cfg.getCustomerNameColumn() + ", " +
+                        cfg.getAddressLine1Column() + ", " + cfg.getCityColumn() + ", " +
+                        countryKey + ", " + postalKey +
+                        " FROM " + table +
+                        " WHERE " + postalKey + " <> ''" +
+                        " ORDER BY 6, 7";
+
+        int threads = Math.max(1, cfg.getSweepThreads());
+        int maxInFlight = threads * 2;
+        ExecutorService pool = Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "dqf-duplicate-sweep");
+            t.setDaemon(true);
+            return t;
+        });
+
+        long rows = 0;
+        long blocks = 0;
+        long[] pairs = {0};
+
+        try (Connection readConn = ctx.getConnection();
+             Connection writeConn = ctx.getConnection();
+             DuplicatePairReportWriter report = new DuplicatePairReportWriter()) {
+
+            // The result table is replaced atomically: delete + inserts commit together
+            requireResultTable(writeConn);
+            writeConn.setAutoCommit(false);
+            try (Statement st = writeConn.createStatement()) {
+                st.executeUpdate("DELETE FROM " + RESULT_TABLE);
+            }
+
+            // A cursor-based fetch needs autocommit off in the PostgreSQL driver
+            readConn.setAutoCommit(false);
+
+            CoreLogStream.push("Sweeping " + table + " with " + threads + " threads...");
+
+            try (PreparedStatement insert = writeConn.prepareStatement(
+                    "INSERT INTO " + RESULT_TABLE + " (id_a, id_b, score, block_key) VALUES (?, ?, ?, ?) " +
+                            "ON CONFLICT (id_a, id_b) DO NOTHING");
+                 PreparedStatement ps = readConn.prepareStatement(query)) {
+
+                ps.setFetchSize(FETCH_SIZE);
+                Deque<Future<List<DuplicatePair>>> inFlight = new ArrayDeque<>();
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    String currentKey = null;
+                    List<Candidate> block = new ArrayList<>();
+
+                    while (rs.next()) {
+                        String key = rs.getString(6) + "|" + rs.getString(7);
+                        if (!key.equals(currentKey)) {
+                            if (block.size() > 1) {
+                                submit(pool, inFlight, currentKey, block);
+                                blocks++;
+                            }
+                            // Keep a bounded number of blocks in memory
+                            while (inFlight.size() >= maxInFlight) {
+                                drain(inFlight.poll(), insert, report, pairs);
+                            }
+                            currentKey = key;
+                            block = new ArrayList<>();
+                        }
+                        block.add(Candidate.fromRaw(rs.getInt(1), rs.getString(2), rs.getString(3),
+                                rs.getString(4), rs.getString(5)));
+                        rows++;
+
+                        if (rows % 1_000_000 == 0) {
+                            CoreLogStream.push("Duplicate sweep: " + rows + " rows read, " + pairs[0] + " pairs so far.");
+                        }
+                    }
+                    if (block.size() > 1) {
+                        submit(pool, inFlight, currentKey, block);
+                        blocks++;
+                    }
+                }
+
+                while (!inFlight.isEmpty()) drain(inFlight.poll(), insert, report, pairs);
+                insert.executeBatch();
+            }
+
+            readConn.commit();
+            writeConn.commit();
+
+            report.write(outputPath);
+        } finally {
+            pool.shutdownNow();
+        }
+        return new long[]{rows, blocks, pairs[0]};
+    }
+
+    private static void submit(ExecutorService pool, Deque<Future<List<DuplicatePair>>> inFlight,
+                               String key, List<Candidate> block) {
+        inFlight.add(pool.submit(() -> DuplicatePair.findInBlock(key, block)));
+    }
+
+    private static void drain(Future<List<DuplicatePair>> f, PreparedStatement insert,
+                              DuplicatePairReportWriter report, long[] pairs) throws Exception {
+        for (DuplicatePair p : f.get()) {
+            insert.setInt(1, p.a.id);
+            insert.setInt(2, p.b.id);
+            insert.setDouble(3, Math.round(p.score * 100.0) / 100.0);
+            insert.setString(4, p.blockKey);
+            insert.addBatch();
+            report.add(p);
+
+            if (++pairs[0] % INSERT_BATCH == 0) insert.executeBatch();
+        }
+    }
+
+    /**
+     * Creates dqf_duplicate_pairs if missing. Run once from {@link DataQualitySchemaTool}.
+     */
+    public static void installResultTable(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS " + RESULT_TABLE + " (" +
+                    "id_a INTEGER NOT NULL, " +
+                    "id_b INTEGER NOT NULL, " +
+                    "score NUMERIC(5,2) NOT NULL, " +
+                    "block_key TEXT, " +
+                    "swept_at TIMESTAMP NOT NULL DEFAULT now(), " +
+                    "PRIMARY KEY (id_a, id_b))");
+        }
+    }
+
+    private static void requireResultTable(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT to_regclass(?) IS NOT NULL")) {
+            ps.setString(1, RESULT_TABLE);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (rs.next() && rs.getBoolean(1)) return;
+            }
+        }
+        throw new IllegalStateException(RESULT_TABLE + " does not exist; run DataQualitySchemaTool first.");
+    }
+}
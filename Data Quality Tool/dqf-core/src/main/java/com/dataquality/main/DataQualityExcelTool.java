@@ -1,52 +1,69 @@
 package com.dataquality.main;
 
 import com.dataquality.config.ConfigReader;
-import com.dataquality.report.ExcelReportGenerator;
+import com.dataquality.report.ReportCache;
+import com.dataquality.report.ReportSink;
+import com.dataquality.report.ReportSinks;
 import com.dataquality.report.ExcelReportGenerator.ValidationResult;
 import com.dataquality.validation.AddressValidator;
 import com.dataquality.validation.NameValidator;
 import com.dataquality.validation.PostalCodeValidator;
 import com.dataquality.validation.RegionValidator;
 import com.dataquality.common.CoreLogStream;
-import com.dataquality.db.DBConnection;
+import com.dataquality.common.FingerprintSet;
+import com.dataquality.common.RunContext;
+import com.dataquality.matching.CandidateBlockingIndex;
+import com.dataquality.matching.CandidateCache;
+import com.dataquality.matching.CandidateMatcher;
+import com.dataquality.matching.CandidateSource;
+import com.dataquality.matching.DbCandidateSource;
+import com.dataquality.matching.DuplicateClusterer;
+import com.dataquality.matching.MatchResult;
+import com.dataquality.matching.TextNormalizer;
 
 import org.apache.poi.ss.usermodel.*;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 
 import java.io.File;
 import java.io.FileInputStream;
+import java.io.IOException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.sql.SQLException;
 import java.sql.Types;
 import java.util.*;
 
 public class DataQualityExcelTool {
 
-    // --- Core Constants for Fuzzy Matching (Restored from Full Version) ---
-    private static final double NAME_THRESHOLD = 80.0;
-    private static final double ADDR_THRESHOLD = 80.0;
-    private static final double CITY_THRESHOLD = 70.0;
-    private static final int CANDIDATE_LIMIT = 500;
+    // Fuzzy-matching constants (thresholds, weights, candidate limit) live in com.dataquality.matching
     
-    private static String latestReportPath = null;
-
-    public static synchronized void setLatestReportPath(String path) {
-        latestReportPath = path;
+    public static void main(String[] args) throws Exception {
+        run(RunContext.load(), args);
     }
 
-    public static synchronized String getLatestReportPath() {
-        return latestReportPath;
+    /**
+     * Runs Excel mode in {@code ctx}; the report paths are set on the context on success.
+     *
+     * @param args input workbook in args[0] (else Custom_excel_path), optional formats in args[1]
+     */
+    public static void run(RunContext ctx, String[] args) {
+        RunContext prev = RunContext.bind(ctx);
+        try {
+            execute(ctx, args);
+        } finally {
+            RunContext.bind(prev);
+        }
     }
 
-    public static void main(String[] args) {
+    private static void execute(RunContext ctx, String[] args) {
         String inputExcelPath = null;
         int insertCount = 0; // Tracks new DB inserts
 
         try { // <--- OUTER TRY BLOCK: Handles Config, Init, and Final Report Generation
           
-            // Load config for DB creds and table/column mapping
-            ConfigReader cfg = ConfigReader.load();
+            // Config for DB creds and table/column mapping comes with the run context
+            ConfigReader cfg = ctx.getConfig();
             CoreLogStream.push("Config loaded.");
 
             // Choose input source: arg path or Custom_excel_path from config
@@ -68,15 +85,45 @@ public class DataQualityExcelTool {
                 throw new RuntimeException("Input Excel not found: " + inputExcelPath);
             }
 
-            // Initialize DB connection pool (actual connection made later in try-with-resources)
-            DBConnection.init(cfg.getUrl(), cfg.getUser(), cfg.getPassword());
-            CoreLogStream.push("DB Connection initialized for lookups.");
-
-            List<ValidationResult> results = new ArrayList<>();
-            Set<String> uniquenessSet = new HashSet<>();
+            // Report formats: args[1] (run endpoint) or Report_formats, default XLSX
+            String formats = args != null && args.length > 1 ? args[1] : null;
+            if (formats == null || formats.trim().isEmpty()) formats = cfg.getReportFormats();
+            formats = String.join(",", ReportSinks.parse(formats));
+            String outputPath;
+            List<String> outputPaths;
+            String basePath = ctx.outputPath("ValidationReport");
+
+            // Report cache: the same upload against unchanged master data gets the earlier report back
+            ReportCache cache = null;
+            String cacheKey = null;
+            String masterVersion = null;
+            if (cfg.isReportCache()) {
+                try (Connection c = ctx.getConnection()) {
+                    masterVersion = ReportCache.masterVersion(c, cfg);
+                }
+                if (masterVersion == null) {
+                    CoreLogStream.push("Report cache skipped: master data change counters not installed (run DataQualitySchemaTool).");
+                } else {
+                    cache = new ReportCache(cfg);
+                    cacheKey = ReportCache.key(inputFile, cfg, formats, masterVersion);
+                    // A hit skips the run and with it the excel_data_quality_check upserts, which
+                    // other uploads may have changed since; only when explicitly allowed
+                    ReportCache.Entry hit = cfg.isReportCacheSkipUpserts() ? cache.lookup(cacheKey, ctx.getOutputDir()) : null;
+                    if (hit != null) {
+                        ctx.setReport(hit.reportPath, hit.resultsPath);
+                        CoreLogStream.push("Report cache hit: same input, settings and master data as an earlier run.");
+                        CoreLogStream.push("excel_data_quality_check not updated (Report_cache_skip_upserts).");
+                        CoreLogStream.push("Report Generated (" + formats + "): " + new File(hit.reportPath).getName());
+                        CoreLogStream.push("Excel Mode Completed.");
+                        return;
+                    }
+                }
+            }
 
-            // Read Excel rows
-            try (FileInputStream fis = new FileInputStream(inputFile); // <--- NESTED TRY 1: Excel Resources
+            // Read Excel rows; report rows are streamed as they are produced
+            try (ReportSink report = ReportSinks.open(formats, basePath, cfg.getReportShardRows(),
+                    cfg.isResultSpill());
+                 FileInputStream fis = new FileInputStream(inputFile); // <--- NESTED TRY 1: Excel Resources
                  Workbook wb = new XSSFWorkbook(fis)) {
 
                 Sheet sheet = wb.getSheetAt(0);
@@ -111,160 +158,122 @@ public class DataQualityExcelTool {
                 int last = sheet.getLastRowNum();
                 CoreLogStream.push("Header validated. Rows to process: " + last);
 
+                // 0. DEDUPLICATION: repeated rows are dropped before any other stage
+                boolean[] repeated = new boolean[last + 1];
+                int duplicateRows = markRepeatedRows(sheet, last, repeated,
+                        idxName, idxAddress, idxCity, idxRegion, idxCountry, idxPostal);
+
+                // Near-duplicate clusters among the remaining rows (sorted-neighborhood pre-pass)
+                int[] clusterByRow = new int[last + 1];
+                if (cfg.isDuplicateClustering()) {
+                    clusterByRow = clusterDuplicates(sheet, last, repeated, cfg.getDuplicateWindow(),
+                            idxName, idxAddress, idxCity, idxPostal);
+                }
+
                 // --- CRITICAL: DB Connection in inner try block ---
-                try (Connection conn = DBConnection.getConnection()) { // <--- NESTED TRY 2: DB Connection
-
-                    for (int r = 1; r <= last; r++) {
-                        Row row = sheet.getRow(r);
-                        if (row == null) continue;
-
-                        // Use robust cellToStr for safe reading
-                        String name = cellToStr(row.getCell(idxName));
-                        String rawAddress = cellToStr(row.getCell(idxAddress));
-                        String city = cellToStr(row.getCell(idxCity));
-                        String country = cellToStr(row.getCell(idxCountry));
-                        String region = cellToStr(row.getCell(idxRegion));
-                        String postal = cellToStr(row.getCell(idxPostal));
-                        String excelDuns = idxDuns >= 0 ? cellToStr(row.getCell(idxDuns)) : "";
-
-                        // 1. VALIDATIONS (using DB connection for lookups)
-                        String nameReason = NameValidator.getValidationFailureReason(name);
-                        String regionReason = RegionValidator.getValidationFailureReason(conn, country, region);
-                        String postalReason = PostalCodeValidator.getValidationFailureReason(conn, country, region, postal);
-                        
-                        String nameStatus = (nameReason == null ? "Valid" : "Invalid");
-                        String regionStatus = (regionReason == null ? "Valid" : "Invalid");
-                        String postalStatus = (postalReason == null ? "Valid" : "Invalid");
+                try (Connection conn = ctx.getConnection()) { // <--- NESTED TRY 2: DB Connection
+
+                    // Country variants are resolved once per distinct input country
+                    Map<String, Set<String>> countryCodeCache = new HashMap<>();
+
+                    CandidateCache candidateCache = new CandidateCache(cfg.getCandidateCacheSize());
+                    CandidateSource candidateSource = new DbCandidateSource(cfg, candidateCache);
+                    if (cfg.isPreloadCandidates()) {
+                        candidateSource = preloadCandidates(conn, cfg, sheet, idxCountry, last, countryCodeCache);
+                    }
+                    // Closed with the run, which stops its scoring pool
+                    try (CandidateMatcher matcher = new CandidateMatcher(conn, cfg, candidateSource, candidateCache)) {
+                        int fetchBatch = Math.max(1, cfg.getFetchBatchSize());
+
+                        // Rows are validated a window at a time; the candidate blocks of the window's
+                        // valid rows are then fetched with one query before they are matched
+                        List<PendingRow> window = new ArrayList<>(Math.min(fetchBatch, 4096));
+
+                        for (int r = 1; r <= last; r++) {
+                            Row row = sheet.getRow(r);
+                            if (row == null || repeated[r]) continue;
+
+                            // Use robust cellToStr for safe reading
+                            PendingRow p = new PendingRow(r);
+                            p.name = cellToStr(row.getCell(idxName));
+                            p.rawAddress = cellToStr(row.getCell(idxAddress));
+                            p.city = cellToStr(row.getCell(idxCity));
+                            p.country = cellToStr(row.getCell(idxCountry));
+                            p.region = cellToStr(row.getCell(idxRegion));
+                            p.postal = cellToStr(row.getCell(idxPostal));
+                            p.excelDuns = idxDuns >= 0 ? cellToStr(row.getCell(idxDuns)) : "";
+
+                            // 1. VALIDATIONS (using DB connection for lookups)
+                            p.nameReason = NameValidator.getValidationFailureReason(p.name);
+                            p.regionReason = RegionValidator.getValidationFailureReason(conn, p.country, p.region);
+                            p.postalReason = PostalCodeValidator.getValidationFailureReason(conn, p.country, p.region, p.postal);
                         
-                        // Use smart logic to build the address (buildFinalAddressSmart)
-                        String finalAddress = rawAddress == null ? "" : rawAddress.trim();
-                        if ("Valid".equalsIgnoreCase(regionStatus)
-                                && region != null && !region.trim().isEmpty()) {
-                            finalAddress = buildFinalAddressSmart(finalAddress, region.trim()); 
-                        }
+                            // Use smart logic to build the address (buildFinalAddressSmart)
+                            p.finalAddress = p.rawAddress == null ? "" : p.rawAddress.trim();
+                            if (p.regionReason == null
+                                    && p.region != null && !p.region.trim().isEmpty()) {
+                                p.finalAddress = buildFinalAddressSmart(p.finalAddress, p.region.trim()); 
+                            }
                         
-                        String addrReason;
-                        String addrStatus;
-                        if (rawAddress == null || rawAddress.trim().isEmpty()) {
-                            addrReason = "Address cannot be empty";
-                            addrStatus = "Invalid";
-                        } else {
-                            // Address validation uses the finalized address (raw address + region)
-                            addrReason = AddressValidator.getValidationFailureReason(finalAddress, city, region);
-                            addrStatus = (addrReason == null ? "Valid" : "Invalid");
-                        }
+                            if (p.rawAddress == null || p.rawAddress.trim().isEmpty()) {
+                                p.addrReason = "Address cannot be empty";
+                            } else {
+                                // Address validation uses the finalized address (raw address + region)
+                                p.addrReason = AddressValidator.getValidationFailureReason(p.finalAddress, p.city, p.region);
+                            }
 
-                        String recordValidation =
-                                ("Valid".equalsIgnoreCase(nameStatus)
-                                && "Valid".equalsIgnoreCase(addrStatus)
-                                && "Valid".equalsIgnoreCase(regionStatus)
-                                && "Valid".equalsIgnoreCase(postalStatus))
-                                        ? "Valid" : "Invalid";
-
-                        // Build remarks (Combined validation failure reasons)
-                        List<String> reasons = new ArrayList<>();
-                        if (nameReason != null) reasons.add("Name: " + nameReason);
-                        if (addrReason != null) reasons.add("Address: " + addrReason);
-                        if (regionReason != null) reasons.add("Region: " + regionReason);
-                        if (postalReason != null) reasons.add("Postal: " + postalReason);
-                        String remarks = String.join(" | ", reasons).trim();
-
-                        Integer matchedId = null;
-                        String matchedDuns = excelDuns; 
-
-                        // 2. FUZZY MATCHING & UPSERT LOGIC (From Full Version)
-                        if ("Valid".equalsIgnoreCase(recordValidation)) {
-
-                            Set<String> resolvedCountryCodes = resolveCountryCodes(conn, country);
-                            String normPostal = normalizePostal(postal);
-
-                            List<Candidate> candidates =
-                                    fetchCandidates(conn, table, idColumn, dunsCol,
-                                            nameCol, addrCol, cityCol, countryCol, postalCol,
-                                            resolvedCountryCodes, normPostal, CANDIDATE_LIMIT);
-
-                            double bestScore = -1.0;
-                            Candidate bestCand = null;
-
-                            String tName = safeUpper(name);
-                            String tAddr = normalizeAndUpper(finalAddress);
-                            String tCity = safeUpper(city);
-
-                            // Score candidates
-                            for (Candidate c : candidates) {
-                                double nameSim = similarityPercent(tName, safeUpper(c.candName));
-                                double addrSim = similarityPercent(tAddr, normalizeAndUpper(c.candAddress));
-                                double citySim = similarityPercent(tCity, safeUpper(c.candCity));
-
-                                if (nameSim >= NAME_THRESHOLD && addrSim >= ADDR_THRESHOLD && citySim >= CITY_THRESHOLD) {
-                                    double combined = (nameSim * 0.45) + (addrSim * 0.45) + (citySim * 0.10);
-                                    if (combined > bestScore) {
-                                        bestScore = combined;
-                                        bestCand = c;
-                                    }
-                                }
+                            if (p.isValid()) {
+                                String countryKey = safeUpper(p.country);
+                                p.countryCodes = countryCodeCache.computeIfAbsent(countryKey, k -> resolveCountryCodes(conn, k));
+                                p.normPostal = normalizePostal(p.postal);
                             }
 
-                            if (bestCand != null) {
-                                matchedId = bestCand.id; 
-                                matchedDuns = bestCand.duns == null || bestCand.duns.isEmpty() ? excelDuns : bestCand.duns; 
-                                remarks = "Record exists (fuzzy match) | Score: " + String.format("%.2f", bestScore) + "%";
-                            } else {
-                                remarks = "Record doesn't exist (no fuzzy match)";
+                            window.add(p);
+                            if (window.size() >= fetchBatch) {
+                                insertCount += matchAndWrite(conn, matcher, report, window, clusterByRow);
+                                window.clear();
                             }
-                        
-                            // 3. Upsert into Database (using rawAddress for matching DB structure)
-                            String upsertResult = upsertIntoExcelDataQuality(
-                                    conn,
-                                    rawAddress, name, city, region, country, postal,
-                                    matchedDuns, matchedId, recordValidation, remarks
-                            );
-                            if ("INSERT".equals(upsertResult)) insertCount++;
                         }
+                        insertCount += matchAndWrite(conn, matcher, report, window, clusterByRow);
 
-                        // Uniqueness check for report generation
-                        String businessKey =
-                                (normalizeAndUpper(name) + "|" + normalizeAndUpper(finalAddress) + "|" +
-                                        normalizeAndUpper(city) + "|" + normalizeAndUpper(region) + "|" +
-                                        normalizeAndUpper(country) + "|" + normalizeAndUpper(postal));
-                        if (!uniquenessSet.add(businessKey)) continue;
-
-                        // Create ValidationResult for Excel Report
-                        ValidationResult vr = new ValidationResult(
-                                (matchedId == null ? 0 : matchedId),
-                                name,
-                                finalAddress, // Use finalAddress for report
-                                city,
-                                region,
-                                country,
-                                postal,
-                                matchedDuns,
-                                nameStatus,
-                                addrStatus,
-                                postalStatus,
-                                regionStatus,
-                                recordValidation,
-                                remarks
-                        );
-                        results.add(vr);
+                        matcher.logStats();
+                        if (duplicateRows > 0) {
+                            CoreLogStream.push("Deduplication: " + duplicateRows + " repeated rows skipped.");
+                        }
                     }
                 } // conn closed successfully
-            } // workbook closed successfully
-
-            // --- SUCCESS FLOW: ONLY RUNS IF NO EXCEPTION WAS THROWN ---
-            String baseName = inputFile.getName();
-            if (baseName.contains(".")) baseName = baseName.substring(0, baseName.lastIndexOf('.'));
-            String outputPath = System.getProperty("user.dir") + "/ValidationReport.xlsx";
 
-            ExcelReportGenerator.generateExcelReport(results, outputPath);
+                // Only reached if no exception was thrown
+                report.finish();
+                outputPath = report.getPath();
+                outputPaths = report.getPaths();
+            } // report writer and workbook closed successfully
 
-            setLatestReportPath(outputPath);
-            CoreLogStream.push("Excel Report Generated: " + new File(outputPath).getName());
+            // --- SUCCESS FLOW: ONLY RUNS IF NO EXCEPTION WAS THROWN ---
+            String resultsPath = cfg.isResultSpill() ? ReportSinks.resultsPath(basePath) : null;
+            ctx.setReport(outputPath, resultsPath);
+            if (cache != null) {
+                // A master data change during the run must not be cached under the old version
+                String versionAfter;
+                try (Connection c = ctx.getConnection()) {
+                    versionAfter = ReportCache.masterVersion(c, cfg);
+                }
+                if (!masterVersion.equals(versionAfter)) {
+                    CoreLogStream.push("Report not cached: master data changed during the run.");
+                } else {
+                    try {
+                        cache.store(cacheKey, outputPaths, outputPath, resultsPath);
+                    } catch (IOException ex) {
+                        CoreLogStream.push("Report not cached: " + ex.getMessage());
+                    }
+                }
+            }
+            CoreLogStream.push("Report Generated (" + formats + "): " + new File(outputPath).getName());
             CoreLogStream.push("Excel Mode Completed.");
 
         } catch (Exception e) { 
             // --- FAILURE FLOW: FIX TO ENSURE CORRECT LOGS ---
-            setLatestReportPath(null);
+            ctx.setReport(null, null);
             // These log lines are what produce the correct failure sequence in your UI:
             CoreLogStream.push("Excel Mode Failed: " + e.getMessage()); 
             CoreLogStream.push("No report generated due to error.");
@@ -292,20 +301,182 @@ public class DataQualityExcelTool {
         return a + ", " + r;
     }
 
-    private static class Candidate {
-        final int id;
-        final String duns;
-        final String candName;
-        final String candAddress;
-        final String candCity;
-        
-        Candidate(int id, String duns, String candName, String candAddress, String candCity) {
-            this.id = id;
-            this.duns = duns;
-            this.candName = candName;
-            this.candAddress = candAddress;
-            this.candCity = candCity;
+    /**
+     * Input row between validation and matching.
+     */
+    private static final class PendingRow {
+        final int sheetRow;
+        String name, rawAddress, finalAddress, city, country, region, postal, excelDuns;
+        String nameReason, addrReason, regionReason, postalReason;
+        Set<String> countryCodes; // valid rows only
+        String normPostal;
+        String businessKey;
+
+        PendingRow(int sheetRow) {
+            this.sheetRow = sheetRow;
+        }
+
+        boolean isValid() {
+            return nameReason == null && addrReason == null && regionReason == null && postalReason == null;
+        }
+    }
+
+    /**
+     * Matches, upserts and reports the validated rows of one window, in sheet order. The match
+     * cache entries and candidate blocks of the window's valid rows are loaded with one query
+     * each first, and its fresh matches are cached in one batch after. Returns the number of new
+     * excel_data_quality_check rows.
+     */
+    private static int matchAndWrite(Connection conn, CandidateMatcher matcher, ReportSink report,
+                                     List<PendingRow> window, int[] clusterByRow)
+            throws IOException {
+        if (window.isEmpty()) return 0;
+
+        List<String> keys = new ArrayList<>();
+        List<Set<String>> variants = new ArrayList<>();
+        List<String> postals = new ArrayList<>();
+        for (PendingRow p : window) {
+            if (!p.isValid()) continue;
+            p.businessKey = businessKey(p.name, p.finalAddress, p.city, p.region, p.country, p.postal);
+            keys.add(p.businessKey);
+            variants.add(p.countryCodes);
+            postals.add(p.normPostal);
+        }
+        matcher.prefetch(conn, keys, variants, postals);
+
+        int inserts = 0;
+        for (PendingRow p : window) {
+            boolean recordValid = p.isValid();
+
+            Integer matchedId = null;
+            String matchedDuns = p.excelDuns; 
+            byte matchOutcome = ValidationResult.MATCH_NONE;
+            double matchScore = 0.0;
+
+            // 2. FUZZY MATCHING (From Full Version)
+            if (recordValid) {
+                MatchResult best = matcher.match(conn, p.countryCodes, p.normPostal, p.businessKey,
+                        safeUpper(p.name), normalizeAndUpper(p.finalAddress), safeUpper(p.city));
+
+                if (best != null) {
+                    matchedId = best.id; 
+                    matchedDuns = best.duns == null || best.duns.isEmpty() ? p.excelDuns : best.duns; 
+                    matchOutcome = ValidationResult.MATCH_FOUND;
+                    matchScore = best.score;
+                } else {
+                    matchOutcome = ValidationResult.MATCH_NOT_FOUND;
+                }
+            }
+
+            // Compact result; statuses and remarks are rendered by the sinks
+            ValidationResult vr = new ValidationResult(
+                    (matchedId == null ? 0 : matchedId),
+                    p.name,
+                    p.finalAddress, // Use finalAddress for report
+                    p.city,
+                    p.region,
+                    p.country,
+                    p.postal,
+                    matchedDuns,
+                    p.nameReason,
+                    p.addrReason,
+                    p.regionReason,
+                    p.postalReason,
+                    matchOutcome,
+                    matchScore,
+                    clusterByRow[p.sheetRow]
+            );
+
+            // 3. Upsert into Database (using rawAddress for matching DB structure)
+            if (recordValid) {
+                String upsertResult = upsertIntoExcelDataQuality(
+                        conn,
+                        p.rawAddress, p.name, p.city, p.region, p.country, p.postal,
+                        matchedDuns, matchedId, vr.recordValidation(), vr.remarks()
+                );
+                if ("INSERT".equals(upsertResult)) inserts++;
+            }
+
+            report.write(vr);
+        }
+        matcher.flush(conn);
+        return inserts;
+    }
+
+    /**
+     * Flags every sheet row whose business key already occurred on an earlier row (exact repeats)
+     * and returns how many were flagged.
+     */
+    static int markRepeatedRows(Sheet sheet, int last, boolean[] repeated, int idxName, int idxAddress,
+                                        int idxCity, int idxRegion, int idxCountry, int idxPostal) {
+        FingerprintSet uniqueRows = new FingerprintSet();
+        int count = 0;
+
+        for (int r = 1; r <= last; r++) {
+            Row row = sheet.getRow(r);
+            if (row == null) continue;
+
+            String rawAddress = cellToStr(row.getCell(idxAddress));
+            String region = cellToStr(row.getCell(idxRegion));
+            String dedupAddress = buildFinalAddressSmart(
+                    rawAddress == null ? "" : rawAddress.trim(), region == null ? "" : region.trim());
+
+            String key = businessKey(cellToStr(row.getCell(idxName)), dedupAddress, cellToStr(row.getCell(idxCity)),
+                    region, cellToStr(row.getCell(idxCountry)), cellToStr(row.getCell(idxPostal)));
+            if (!uniqueRows.add(key)) {
+                repeated[r] = true;
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Assigns near-duplicate cluster ids to the sheet rows (index = sheet row number, 0 = none).
+     * Repeated rows are left out, so a cluster never consists of a row and its dropped copy.
+     */
+    static int[] clusterDuplicates(Sheet sheet, int last, boolean[] repeated, int window,
+                                           int idxName, int idxAddress, int idxCity, int idxPostal) {
+        long start = System.currentTimeMillis();
+
+        List<DuplicateClusterer.Record> records = new ArrayList<>(last + 1);
+        records.add(null); // header row
+        for (int r = 1; r <= last; r++) {
+            Row row = sheet.getRow(r);
+            if (row == null || repeated[r]) {
+                records.add(null);
+                continue;
+            }
+            records.add(new DuplicateClusterer.Record(
+                    safeUpper(cellToStr(row.getCell(idxName))),
+                    normalizeAndUpper(cellToStr(row.getCell(idxAddress))),
+                    safeUpper(cellToStr(row.getCell(idxCity))),
+                    normalizePostal(cellToStr(row.getCell(idxPostal)))
+            ));
+        }
+
+        int[] clusters = DuplicateClusterer.cluster(records, window);
+
+        int clusterCount = 0;
+        int clusteredRows = 0;
+        for (int c : clusters) {
+            if (c == 0) continue;
+            clusteredRows++;
+            clusterCount = Math.max(clusterCount, c);
         }
+        CoreLogStream.push("Duplicate clustering: " + clusteredRows + " rows in " + clusterCount
+                + " clusters (" + (System.currentTimeMillis() - start) + " ms).");
+        return clusters;
+    }
+
+    /**
+     * Normalized business key of an input row (used for uniqueness and the persistent match cache).
+     */
+    private static String businessKey(String name, String finalAddress, String city,
+                                      String region, String country, String postal) {
+        return normalizeAndUpper(name) + "|" + normalizeAndUpper(finalAddress) + "|" +
+                normalizeAndUpper(city) + "|" + normalizeAndUpper(region) + "|" +
+                normalizeAndUpper(country) + "|" + normalizeAndUpper(postal);
     }
 
     private static Set<String> resolveCountryCodes(Connection conn, String inputCountry) {
@@ -333,49 +504,28 @@ public class DataQualityExcelTool {
         return out;
     }
 
-    private static List<Candidate> fetchCandidates(
-            Connection conn, String table, String idCol, String dunsCol,
-            String nameCol, String addrCol, String cityCol,
-            String countryCol, String postalCol,
-            Set<String> countryVariants, String normPostal, int limit) {
-
-        List<Candidate> list = new ArrayList<>();
-        if (countryVariants == null || countryVariants.isEmpty() || normPostal == null) return list;
-
-        StringBuilder in = new StringBuilder();
-        for (int i = 0; i < countryVariants.size(); i++) {
-            if (i > 0) in.append(",");
-            in.append("?");
+    /**
+     * Pre-scans the Country column of the upload, resolves every distinct country once and
+     * loads all master records of those countries into an in-memory blocking index.
+     */
+    private static CandidateSource preloadCandidates(
+            Connection conn, ConfigReader cfg, Sheet sheet, int idxCountry, int last,
+            Map<String, Set<String>> countryCodeCache) throws SQLException {
+
+        Set<String> allCodes = new LinkedHashSet<>();
+        for (int r = 1; r <= last; r++) {
+            Row row = sheet.getRow(r);
+            if (row == null) continue;
+            String country = safeUpper(cellToStr(row.getCell(idxCountry)));
+            if (country.isEmpty()) continue;
+            allCodes.addAll(countryCodeCache.computeIfAbsent(country, k -> resolveCountryCodes(conn, k)));
         }
 
-        String sql =
-                "SELECT " + idCol + ", " + dunsCol + ", " + nameCol + ", " + addrCol + ", " + cityCol +
-                        " FROM " + table +
-                        " WHERE UPPER(COALESCE(" + countryCol + ",'') ) IN (" + in + ")" +
-                        " AND REPLACE(REPLACE(UPPER(COALESCE(" + postalCol + ",'') ),' ',''),'-','') = ?" +
-                        " LIMIT " + limit;
-        
-        try (PreparedStatement ps = conn.prepareStatement(sql)) {
-            int idx = 1;
-            for (String c : countryVariants) ps.setString(idx++, c.toUpperCase());
-            ps.setString(idx, normPostal.toUpperCase());
-
-            try (ResultSet rs = ps.executeQuery()) {
-                while (rs.next()) {
-                    list.add(new Candidate(
-                            rs.getInt(1),
-                            rs.getString(2),
-                            rs.getString(3),
-                            rs.getString(4),
-                            rs.getString(5)
-                    ));
-                }
-            }
-
-        } catch (Exception ex) {
-            System.err.println("Candidate fetch failed: " + ex.getMessage());
-        }
-        return list;
+        long start = System.currentTimeMillis();
+        CandidateBlockingIndex index = CandidateBlockingIndex.load(conn, cfg, allCodes);
+        CoreLogStream.push("Candidate index preloaded: " + index.size() + " master records in "
+                + index.blockCount() + " blocks (" + (System.currentTimeMillis() - start) + " ms).");
+        return index;
     }
 
     private static String upsertIntoExcelDataQuality(
@@ -466,60 +616,14 @@ public class DataQualityExcelTool {
        
     }
 
-    private static String normalizePostal(String p) {
-        if (p == null) return "";
-        return p.replaceAll("[\\s\\-]+", "").trim().toUpperCase();
-    }
+    private static String normalizePostal(String p) { return TextNormalizer.normalizePostal(p); }
 
-    private static String normalizeAndUpper(String s) {
-        if (s == null) return "";
-        // Removes punctuation and multiple spaces, then uppercases
-        return s.replaceAll("[\\s\\p{Punct}]+", " ").trim().toUpperCase();
-    }
+    private static String normalizeAndUpper(String s) { return TextNormalizer.normalizeAndUpper(s); }
 
-    private static String safeUpper(String s) { return s == null ? "" : s.trim().toUpperCase(); }
+    private static String safeUpper(String s) { return TextNormalizer.safeUpper(s); }
 
     private static String safe(String s) { return s == null ? "" : s.trim(); }
 
-    private static double similarityPercent(String s1, String s2) {
-        if (s1 == null) s1 = "";
-        if (s2 == null) s2 = "";
-        if (s1.isEmpty() && s2.isEmpty()) return 100.0;
-
-        int dist = levenshteinDistance(s1, s2);
-        int max = Math.max(s1.length(), s2.length());
-
-        if (max == 0) return 100.0;
-        double sim = (1.0 - (double) dist / max) * 100.0;
-
-        return Math.max(sim, 0.0);
-    }
-
-    private static int levenshteinDistance(String a, String b) {
-        if (a == null) a = "";
-        if (b == null) b = "";
-        int n = a.length(), m = b.length();
-        if (n == 0) return m;
-        if (m == 0) return n;
-
-        int[] prev = new int[m + 1];
-        int[] curr = new int[m + 1];
-        for (int j = 0; j <= m; j++) prev[j] = j;
-        
-        for (int i = 1; i <= n; i++) {
-            curr[0] = i;
-            char ca = a.charAt(i - 1);
-            for (int j = 1; j <= m; j++) {
-                int cost = (ca == b.charAt(j - 1)) ? 0 : 1;
-                curr[j] = Math.min(
-                        Math.min(curr[j - 1] + 1, prev[j] + 1),
-                        prev[j - 1] + cost);
-            }
-            int[] tmp = prev; prev = curr; curr = tmp;
-        }
-        return prev[m];
-    }
-    
     // Excel Column Index Helpers (From Full Version, but adapted to use the robust cellToStr below)
     private static int find(Row header, String col) throws Exception {
         for (int i = 0; i < header.getLastCellNum(); i++) {
@@ -0,0 +1,391 @@
+package com.dataquality.main;
+
+import com.dataquality.common.CoreLogStream;
+import com.dataquality.common.RunContext;
+import com.dataquality.config.ConfigReader;
+import com.dataquality.report.ExcelReportGenerator.ValidationResult;
+
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Continuous validation mode.
+ *
+ * A trigger on the configured master table NOTIFYs the id of every inserted/updated row on
+ * {@link #CHANNEL}. This listener collects the ids into micro-batches (duplicates within a batch
+ * are coalesced), re-reads the rows, validates them with the same rules as DB mode and upserts
+ * the results into data_quality_check.
+ *
+ * A batch is flushed when it is full, when no new notification arrived for Listen_linger_ms,
+ * or at the latest Listen_max_latency_ms after its first id arrived. More than
+ * Listen_max_pending waiting ids (a burst while the database was unreachable) are dropped in
+ * favour of one re-scan of the whole table.
+ *
+ * The trigger is installed by {@link DataQualitySchemaTool}; the listener only checks for it.
+ * Each listener runs in its own {@link RunContext}, so its log lines go to that context's channel.
+ */
+public class DataQualityListenerTool {
+
+    public static final String CHANNEL = "dqf_record_changed";
+
+    private static final int IDLE_POLL_MS = 1000;
+    private static final int RECONNECT_DELAY_MS = 5000;
+
+    private final RunContext ctx;
+
+    private volatile boolean running = false;
+    private Thread worker = null;
+
+    public DataQualityListenerTool(RunContext ctx) {
+        this.ctx = ctx;
+    }
+
+    public static void main(String[] args) throws Exception {
+        DataQualityListenerTool listener = new DataQualityListenerTool(RunContext.load());
+        listener.running = true;
+        listener.run();
+    }
+
+    // -------------------------------------------------------------
+    // Lifecycle (used by the web module)
+    // -------------------------------------------------------------
+
+    public synchronized boolean start() {
+        if (worker != null && worker.isAlive()) return false;
+
+        running = true;
+        worker = new Thread(() -> {
+            try {
+                run();
+            } catch (Exception e) {
+                ctx.log("Listen Mode Failed: " + e.getMessage());
+            }
+        }, "dqf-listener-" + ctx.getId());
+        worker.setDaemon(true);
+        worker.start();
+        return true;
+    }
+
+    public synchronized void stop() {
+        running = false;
+        if (worker != null) worker.interrupt();
+    }
+
+    public boolean isRunning() {
+        return running && worker != null && worker.isAlive();
+    }
+
+    private void run() {
+        RunContext prev = RunContext.bind(ctx);
+        try {
+            listenLoop();
+        } finally {
+            running = false;
+            RunContext.bind(prev);
+        }
+    }
+
+    // -------------------------------------------------------------
+    // Listen loop
+    // -------------------------------------------------------------
+
+    private void listenLoop() {
+        ConfigReader cfg = ctx.getConfig();
+        CoreLogStream.push("Listen Mode: configuration loaded.");
+
+        // Pending ids survive reconnects so nothing that was announced gets lost.
+        Pending pending = new Pending(
+                Math.max(1, cfg.getListenBatchSize()),
+                Math.max(1, cfg.getListenMaxLatencyMs()),
+                Math.max(1, cfg.getListenLingerMs()),
+                Math.max(1, cfg.getListenMaxPending()));
+
+        while (running) {
+            try (Connection listenConn = ctx.getConnection();
+                 Connection workConn = ctx.getConnection()) {
+
+                requireTrigger(listenConn, cfg.getTableName());
+                try (Statement st = listenConn.createStatement()) {
+                    st.execute("LISTEN " + CHANNEL);
+                }
+                CoreLogStream.push("Listen Mode: listening on '" + CHANNEL + "' for changes in " + cfg.getTableName());
+
+                PGConnection pg = listenConn.unwrap(PGConnection.class);
+
+                while (running) {
+                    PGNotification[] notes = pg.getNotifications(pending.waitMs(System.currentTimeMillis(), IDLE_POLL_MS));
+                    long now = System.currentTimeMillis();
+
+                    if (notes != null) {
+                        for (PGNotification n : notes) {
+                            Integer id = parseId(n.getParameter());
+                            if (id != null) pending.add(id, now);
+                        }
+                    }
+
+                    // Left-over ids from an oversized burst keep their original deadline.
+                    if (pending.due(now)) flush(workConn, cfg, pending, pending.batchSize);
+                }
+
+                if (!pending.isEmpty()) flush(workConn, cfg, pending, Integer.MAX_VALUE);
+
+            } catch (SQLException e) {
+                if (!running) break;
+                CoreLogStream.push("Listen Mode: connection lost (" + e.getMessage() + "), reconnecting in "
+                        + (RECONNECT_DELAY_MS / 1000) + "s...");
+                try {
+                    Thread.sleep(RECONNECT_DELAY_MS);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+        }
+
+        CoreLogStream.push("Listen Mode stopped.");
+    }
+
+    // Re-scans the table after an overflow, otherwise validates the next batch of pending ids
+    private static void flush(Connection conn, ConfigReader cfg, Pending pending, int max) throws SQLException {
+        if (pending.overflowed()) {
+            CoreLogStream.push("Listen Mode: more than " + pending.maxPending + " changes pending, re-scanning "
+                    + cfg.getTableName() + ".");
+            rescan(conn, cfg, pending.batchSize);
+            pending.rescanned();
+            return;
+        }
+        List<Integer> ids = pending.next(max);
+        validateBatch(conn, cfg, ids);
+        // Only forget the ids once the batch went through; a failed batch is retried after reconnect.
+        pending.remove(ids);
+    }
+
+    /**
+     * Validates every row of the master table, {@code pageSize} ids at a time in id order.
+     */
+    private static void rescan(Connection conn, ConfigReader cfg, int pageSize) throws SQLException {
+        String sql = String.format("SELECT %s FROM %s WHERE %s > ? ORDER BY %s LIMIT %d",
+                cfg.getIdColumn(), cfg.getTableName(), cfg.getIdColumn(), cfg.getIdColumn(), pageSize);
+
+        int after = Integer.MIN_VALUE;
+        while (true) {
+            List<Integer> ids = new ArrayList<>(pageSize);
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setInt(1, after);
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) ids.add(rs.getInt(1));
+                }
+            }
+            if (ids.isEmpty()) return;
+            validateBatch(conn, cfg, ids);
+            after = ids.get(ids.size() - 1);
+        }
+    }
+
+    /**
+     * Re-reads, validates and upserts the rows of {@code ids}.
+     */
+    private static void validateBatch(Connection conn, ConfigReader cfg, List<Integer> ids) throws SQLException {
+        String idCol = cfg.getIdColumn();
+        String nameCol = cfg.getCustomerNameColumn();
+        String addrCol = cfg.getAddressLine1Column();
+        String cityCol = cfg.getCityColumn();
+        String regionCol = cfg.getRegionCodeColumn();
+        String countryCol = cfg.getCountryColumn();
+        String postalCol = cfg.getPostalColumn();
+        String dunsCol = cfg.getDunsColumn();
+
+        String sql = String.format(
+                "SELECT %s, %s, %s, %s, %s, %s, %s, %s FROM %s WHERE %s = ANY(?)",
+                idCol, nameCol, addrCol, cityCol, regionCol, countryCol, postalCol, dunsCol,
+                cfg.getTableName(), idCol
+        );
+
+        int valid = 0;
+        int upserted = 0;
+        int seen = 0;
+
+        Array arr = conn.createArrayOf("int4", ids.toArray(new Integer[0]));
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setArray(1, arr);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    seen++;
+                    ValidationResult vr = DataQualityTool.validateRecord(
+                            conn,
+                            DataQualityTool.safeInt(rs, idCol),
+                            DataQualityTool.safeStr(rs, nameCol),
+                            DataQualityTool.safeStr(rs, addrCol),
+                            DataQualityTool.safeStr(rs, cityCol),
+                            DataQualityTool.safeStr(rs, regionCol),
+                            DataQualityTool.safeStr(rs, countryCol),
+                            DataQualityTool.safeStr(rs, postalCol),
+                            DataQualityTool.safeStr(rs, dunsCol)
+                    );
+                    if (vr.isRecordValid()) valid++;
+                    if (DataQualityTool.upsertRecordIntoDB(conn, vr)) upserted++;
+                }
+            }
+        } finally {
+            arr.free();
+        }
+
+        CoreLogStream.push("Listen Mode: batch of " + ids.size() + " id(s), " + seen + " row(s) validated, "
+                + valid + " valid, " + upserted + " upserted.");
+    }
+
+    // -------------------------------------------------------------
+    // Pending ids
+    // -------------------------------------------------------------
+
+    /**
+     * Ids announced but not validated yet, with the deadlines of the current batch. Once more
+     * than {@code maxPending} ids are waiting, they are dropped and the next flush re-scans the
+     * table instead.
+     */
+    static final class Pending {
+
+        final int batchSize;
+        final long maxLatencyMs;
+        final long lingerMs;
+        final int maxPending;
+
+        private final Set<Integer> ids = new LinkedHashSet<>();
+        private boolean overflowed = false;
+        private long firstAt = 0;
+        private long lastAt = 0;
+
+        Pending(int batchSize, long maxLatencyMs, long lingerMs, int maxPending) {
+            this.batchSize = batchSize;
+            this.maxLatencyMs = maxLatencyMs;
+            this.lingerMs = Math.min(lingerMs, maxLatencyMs);
+            this.maxPending = maxPending;
+        }
+
+        void add(int id, long now) {
+            if (overflowed) return; // the re-scan covers it
+            if (ids.isEmpty()) firstAt = now;
+            ids.add(id);
+            lastAt = now;
+            if (ids.size() > maxPending) {
+                ids.clear();
+                overflowed = true;
+            }
+        }
+
+        boolean isEmpty() {
+            return !overflowed && ids.isEmpty();
+        }
+
+        boolean overflowed() {
+            return overflowed;
+        }
+
+        /** Whether a flush is due: batch full, quiet for the linger time, or at its latency limit. */
+        boolean due(long now) {
+            if (overflowed) return true;
+            if (ids.isEmpty()) return false;
+            return ids.size() >= batchSize || now - firstAt >= maxLatencyMs || now - lastAt >= lingerMs;
+        }
+
+        /** How long to wait for notifications before {@link #due} may change. */
+        int waitMs(long now, int idleMs) {
+            if (overflowed) return 1;
+            if (ids.isEmpty()) return idleMs;
+            long deadline = Math.min(firstAt + maxLatencyMs, lastAt + lingerMs);
+            return (int) Math.max(1, deadline - now);
+        }
+
+        /** The oldest {@code max} pending ids, in arrival order. */
+        List<Integer> next(int max) {
+            List<Integer> out = new ArrayList<>(Math.min(ids.size(), max));
+            Iterator<Integer> it = ids.iterator();
+            while (it.hasNext() && out.size() < max) out.add(it.next());
+            return out;
+        }
+
+        void remove(List<Integer> done) {
+            done.forEach(ids::remove);
+        }
+
+        void rescanned() {
+            overflowed = false;
+        }
+
+        int size() {
+            return ids.size();
+        }
+    }
+
+    // -------------------------------------------------------------
+    // Trigger
+    // -------------------------------------------------------------
+
+    private static String triggerName(String table) {
+        return "dqf_record_changed_" + table.replaceAll("[^A-Za-z0-9_]", "_").toLowerCase();
+    }
+
+    /**
+     * Creates the notify function and the row trigger on the master table unless the trigger is
+     * there already. DDL on the master table: run once from {@link DataQualitySchemaTool}.
+     * The id column is passed as a trigger argument so one function serves any table layout.
+     */
+    public static void installTrigger(Connection conn, ConfigReader cfg) throws SQLException {
+        String table = cfg.getTableName();
+        if (triggerInstalled(conn, table)) return;
+
+        String fn =
+                "CREATE OR REPLACE FUNCTION dqf_notify_record_changed() RETURNS trigger AS $$ " +
+                "BEGIN " +
+                "  PERFORM pg_notify('" + CHANNEL + "', to_jsonb(NEW) ->> TG_ARGV[0]); " +
+                "  RETURN NEW; " +
+                "END; " +
+                "$$ LANGUAGE plpgsql";
+
+        try (Statement st = conn.createStatement()) {
+            st.execute(fn);
+            st.execute("CREATE TRIGGER " + triggerName(table) + " AFTER INSERT OR UPDATE ON " + table +
+                    " FOR EACH ROW EXECUTE FUNCTION dqf_notify_record_changed('" + cfg.getIdColumn() + "')");
+        }
+    }
+
+    static boolean triggerInstalled(Connection conn, String table) throws SQLException {
+        String sql = "SELECT EXISTS (SELECT 1 FROM pg_trigger WHERE tgrelid = to_regclass(?) AND tgname = ?)";
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ps.setString(1, table);
+            ps.setString(2, triggerName(table));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    private static void requireTrigger(Connection conn, String table) throws SQLException {
+        if (!triggerInstalled(conn, table)) {
+            throw new IllegalStateException("trigger " + triggerName(table) + " is not installed on " + table +
+                    "; run DataQualitySchemaTool first.");
+        }
+    }
+
+    private static Integer parseId(String payload) {
+        if (payload == null) return null;
+        try {
+            return Integer.valueOf(payload.trim());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+}
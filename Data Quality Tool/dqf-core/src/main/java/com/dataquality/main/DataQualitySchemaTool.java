@@ -0,0 +1,75 @@
+package com.dataquality.main;
+
+import com.dataquality.common.RunContext;
+import com.dataquality.config.ConfigReader;
+import com.dataquality.matching.MatchCache;
+import com.dataquality.matching.PhoneticKeyTable;
+import com.dataquality.matching.TrigramCandidateSource;
+import com.dataquality.report.ReportCache;
+
+import java.sql.Connection;
+
+/**
+ * One-time database setup for the features that need schema objects on the master data.
+ *
+ * Validation runs never run DDL on the master table themselves (it takes locks that block
+ * writers and needs privileges a run should not have); they check for these objects and skip
+ * the feature, with a log line, if they are missing. Run this once with an account that may
+ * run DDL, and again after changing Table_Name in userfile.xlsx:
+ *
+ *   java -cp dqf-core.jar com.dataquality.main.DataQualitySchemaTool
+ *
+ * Every step is idempotent:
+ *   - Report cache: dqf_table_version and the change-counting triggers on the master and
+ *     reference tables.
+ *   - Match_cache: the dqf_match_cache table (its entries are validated against the change
+ *     counters above).
+ *   - Match_strategy = TRGM: the pg_trgm extension and GIN trigram indexes on name and
+ *     address, built CONCURRENTLY (writers are not blocked; it takes longer on a big table).
+ *   - Listen mode: the row trigger that NOTIFYs DataQualityListenerTool of changed ids.
+ *   - Duplicate sweep: the dqf_duplicate_pairs result table.
+ *   - Phonetic_blocking: the phonetic key side table of the master table and the trigger that
+ *     marks the keys of added, renamed or moved records stale, filled here once.
+ *
+ * Runs never encode phonetic keys; schedule the maintenance command below (e.g. nightly) to
+ * encode the keys the trigger marked stale since:
+ *
+ *   java -cp dqf-core.jar com.dataquality.main.DataQualitySchemaTool --refresh-phonetic
+ */
+public class DataQualitySchemaTool {
+
+    public static void main(String[] args) throws Exception {
+        RunContext ctx = RunContext.load();
+        ConfigReader cfg = ctx.getConfig();
+
+        try (Connection conn = ctx.getConnection()) {
+            conn.setAutoCommit(true);
+
+            if (args.length > 0 && "--refresh-phonetic".equals(args[0])) {
+                int keys = PhoneticKeyTable.refresh(conn, cfg);
+                System.out.println("Phonetic blocking: " + keys + " stale keys encoded in " +
+                        PhoneticKeyTable.tableName(cfg.getTableName()) + ".");
+                return;
+            }
+
+            ReportCache.installVersionTriggers(conn, cfg);
+            System.out.println("Report cache: change counters installed on " + cfg.getTableName() + ".");
+
+            MatchCache.install(conn);
+            System.out.println("Match cache: dqf_match_cache installed.");
+
+            TrigramCandidateSource.installIndexes(conn, cfg);
+            System.out.println("pg_trgm: extension and trigram indexes installed on " + cfg.getTableName() + ".");
+
+            DataQualityListenerTool.installTrigger(conn, cfg);
+            System.out.println("Listen mode: change trigger installed on " + cfg.getTableName() + ".");
+
+            DataQualityDuplicateSweepTool.installResultTable(conn);
+            System.out.println("Duplicate sweep: " + DataQualityDuplicateSweepTool.RESULT_TABLE + " installed.");
+
+            int keys = PhoneticKeyTable.install(conn, cfg);
+            System.out.println("Phonetic blocking: " + PhoneticKeyTable.tableName(cfg.getTableName()) +
+                    " installed (" + keys + " keys written).");
+        }
+    }
+}
@@ -1,47 +1,47 @@
 package com.dataquality.main;
 
 import com.dataquality.config.ConfigReader;
-import com.dataquality.db.DBConnection;
-import com.dataquality.report.ExcelReportGenerator;
+import com.dataquality.report.ReportSink;
+import com.dataquality.report.ReportSinks;
 import com.dataquality.report.ExcelReportGenerator.ValidationResult;
 import com.dataquality.validation.AddressValidator;
 import com.dataquality.validation.NameValidator;
 import com.dataquality.validation.PostalCodeValidator;
 import com.dataquality.validation.RegionValidator;
 import com.dataquality.common.CoreLogStream;
+import com.dataquality.common.RunContext;
 
 import java.io.File;
 import java.sql.*;
-import java.text.SimpleDateFormat;
-import java.util.ArrayList;
-import java.util.Date;
-import java.util.List;
 
 public class DataQualityTool {
 
-    // Keep track of latest generated report for UI download controller
-    private static String latestReportPath = null;
-
-    public static synchronized void setLatestReportPath(String path) {
-        latestReportPath = path;
+    public static void main(String[] args) throws Exception {
+        run(RunContext.load(), args);
     }
 
-    public static synchronized String getLatestReportPath() {
-        return latestReportPath;
+    /**
+     * Runs DB mode in {@code ctx}; the report paths are set on the context on success.
+     *
+     * @param args optional report formats in args[0]
+     */
+    public static void run(RunContext ctx, String[] args) {
+        RunContext prev = RunContext.bind(ctx);
+        try {
+            execute(ctx, args);
+        } finally {
+            RunContext.bind(prev);
+        }
     }
 
-    public static void main(String[] args) {
+    private static void execute(RunContext ctx, String[] args) {
         int upsertCount = 0;
         try {
         	
-            // Load configuration from userfile.xlsx
-            ConfigReader cfg = ConfigReader.load();
+            // Configuration (userfile.xlsx) and connection source come with the run context
+            ConfigReader cfg = ctx.getConfig();
             CoreLogStream.push(" Configuration loaded."); // LOG 1: Configuration loaded.
 
-            // Initialize DB connection helper
-            DBConnection.init(cfg.getUrl(), cfg.getUser(), cfg.getPassword());
-            CoreLogStream.push(" DBConnection initialized."); // LOG 2: DBConnection initialized.
-
             // Build SELECT using configured columns
             String table = cfg.getTableName();
             String idCol = cfg.getIdColumn();
@@ -63,11 +63,19 @@ public class DataQualityTool {
             );
             CoreLogStream.push("Executing query: " + query); // LOG 3: Executing query: ...
 
-            List<ValidationResult> results = new ArrayList<>();
+            // Report formats: args[0] (run endpoint) or Report_formats, default XLSX
+            String formats = args != null && args.length > 0 ? args[0] : null;
+            if (formats == null || formats.trim().isEmpty()) formats = cfg.getReportFormats();
+            formats = String.join(",", ReportSinks.parse(formats));
+            String outputPath;
+            String basePath = ctx.outputPath("ValidationReport");
 
             // CRITICAL: DB connection in try-with-resources block ensures cleanup 
             // and correct error handling if the connection fails here.
-            try (Connection conn = DBConnection.getConnection();
+            // Report rows are streamed as they are validated; the file is only written on success.
+            try (ReportSink report = ReportSinks.open(formats, basePath, cfg.getReportShardRows(),
+                    cfg.isResultSpill());
+                 Connection conn = ctx.getConnection();
                  Statement st = conn.createStatement();
                  ResultSet rs = st.executeQuery(query)) {
 
@@ -83,57 +91,8 @@ public class DataQualityTool {
                     String postal = safeStr(rs, postalCol);
                     String duns = safeStr(rs, dunsCol);
                     
-                    // --- FULL VALIDATION LOGIC INTEGRATED HERE ---
-                    
-                    // 1. Name validation
-                    String nameReason = NameValidator.getValidationFailureReason(name);
-                    String nameStatus = (nameReason == null) ? "Valid" : "Invalid";
-
-                    // 2. Region validation FIRST (Uses DB connection)
-                    String regionReason = RegionValidator.getValidationFailureReason(conn, country, region);
-                    String regionStatus = (regionReason == null) ? "Valid" : "Invalid";
-                    
-                    // 3. Build finalAddress using smart rule (only append region if it's valid)
-                    String regionToAppend = regionStatus.equals("Valid") ? region : null;
-                    String finalAddress = buildFinalAddressSmart(rawAddress, regionToAppend);
-                    
-                    // 4. Address validation (Uses the finalized address)
-                    String addrReason;
-                    String addrStatus;
-                    if (finalAddress == null || finalAddress.trim().isEmpty()) {
-                        addrReason = "Address cannot be empty";
-                        addrStatus = "Invalid";
-                    } else {
-                        addrReason = AddressValidator.getValidationFailureReason(finalAddress, city, region);
-                        addrStatus = (addrReason == null) ? "Valid" : "Invalid";
-                    }
-
-                    // 5. Postal validation
-                    String postalReason = PostalCodeValidator.getValidationFailureReason(conn, country, region, postal);
-                    String postalStatus = (postalReason == null) ? "Valid" : "Invalid";
-
-                    // 6. Record-level validation (overall)
-                    String recordValidation = ("Valid".equalsIgnoreCase(nameStatus) &&
-                                               "Valid".equalsIgnoreCase(addrStatus) &&
-                                               "Valid".equalsIgnoreCase(regionStatus) &&
-                                               "Valid".equalsIgnoreCase(postalStatus)) ? "Valid" : "Invalid";
-                    
-                    // 7. Remarks aggregation
-                    List<String> reasonList = new ArrayList<>();
-                    if (nameReason != null) reasonList.add("Name: " + nameReason);
-                    if (addrReason != null) reasonList.add("Address: " + addrReason);
-                    if (regionReason != null) reasonList.add("Region: " + regionReason);
-                    if (postalReason != null) reasonList.add("Postal: " + postalReason);
-                    String remarks = String.join(" | ", reasonList);
-
-                    // --- VALIDATION LOGIC END ---
-
-                    ValidationResult vr = new ValidationResult(
-                            id, name, finalAddress, city, region, country, // Use finalAddress for report/DB
-                            postal, duns, nameStatus, addrStatus, postalStatus,
-                            regionStatus, recordValidation, remarks
-                    );
-                    results.add(vr);
+                    ValidationResult vr = validateRecord(conn, id, name, rawAddress, city, region, country, postal, duns);
+                    report.write(vr);
 
                     // Upsert to data_quality_check table
                     try {
@@ -142,30 +101,68 @@ public class DataQualityTool {
                     	CoreLogStream.push("Failed to upsert record mdmid=" + id + ": " + e.getMessage());
                     }
                 }
-            } // Connection, Statement, ResultSet closed
+
+                // Generate report
+                report.finish();
+                outputPath = report.getPath();
+            } // Report writer, Connection, Statement, ResultSet closed
 
             // --- SUCCESS LOGS (Execute ONLY if all above steps completed successfully) ---
             
-            // Generate report 
-            String timestamp = new SimpleDateFormat("yyyyMMdd_HHmmss").format(new Date());
-            String outName = "db_validation_validated_" + timestamp + ".xlsx"; 
-            String outputPath = System.getProperty("user.dir") +"/ValidationReport.xlsx";
-
-            ExcelReportGenerator.generateExcelReport(results, outputPath);
-            setLatestReportPath(outputPath);
+            ctx.setReport(outputPath, cfg.isResultSpill() ? ReportSinks.resultsPath(basePath) : null);
             
-            CoreLogStream.push("Excel Report Generated: " + new File(outputPath).getName());
+            CoreLogStream.push("Report Generated (" + formats + "): " + new File(outputPath).getName());
             CoreLogStream.push("Total records upserted: " + upsertCount);
             CoreLogStream.push("DB Mode Completed."); // FINAL SUCCESS LOG: Enables download button
 
         } catch (Exception e) {
             // --- FAILURE LOGS (Execute only on exception) ---
-            setLatestReportPath(null);
+            ctx.setReport(null, null);
             CoreLogStream.push("DB Mode Failed: " + e.getMessage()); // EXPLICIT FAILURE LOG
             throw new RuntimeException(e);
         }
     }
 
+    /**
+     * Runs the four field validations for one master-table row and builds its report entry.
+     * Shared by the batch run and the LISTEN/NOTIFY listener (DataQualityListenerTool).
+     */
+    static ValidationResult validateRecord(Connection conn, int id, String name, String rawAddress,
+                                           String city, String region, String country,
+                                           String postal, String duns) {
+
+        // --- FULL VALIDATION LOGIC ---
+        
+        // 1. Name validation
+        String nameReason = NameValidator.getValidationFailureReason(name);
+
+        // 2. Region validation FIRST (Uses DB connection)
+        String regionReason = RegionValidator.getValidationFailureReason(conn, country, region);
+        
+        // 3. Build finalAddress using smart rule (only append region if it's valid)
+        String regionToAppend = regionReason == null ? region : null;
+        String finalAddress = buildFinalAddressSmart(rawAddress, regionToAppend);
+        
+        // 4. Address validation (Uses the finalized address)
+        String addrReason;
+        if (finalAddress == null || finalAddress.trim().isEmpty()) {
+            addrReason = "Address cannot be empty";
+        } else {
+            addrReason = AddressValidator.getValidationFailureReason(finalAddress, city, region);
+        }
+
+        // 5. Postal validation
+        String postalReason = PostalCodeValidator.getValidationFailureReason(conn, country, region, postal);
+
+        // --- VALIDATION LOGIC END ---
+
+        // Field statuses, record validation and remarks are derived from the reasons
+        return new ValidationResult(
+                id, name, finalAddress, city, region, country, // Use finalAddress for report/DB
+                postal, duns, nameReason, addrReason, regionReason, postalReason
+        );
+    }
+
     // -------------------------------------------------------------
     // Utility Methods (Merged from full version for robust logic)
     // -------------------------------------------------------------
@@ -203,7 +200,7 @@ public class DataQualityTool {
      * Upsert record into the data_quality_check table using ON CONFLICT (mdmid).
      * Uses the database table name 'data_quality_check' as found in the simplified file.
      */
-    private static boolean upsertRecordIntoDB(Connection conn, ValidationResult r) {
+    static boolean upsertRecordIntoDB(Connection conn, ValidationResult r) {
         String sql = "INSERT INTO data_quality_check " + 
                 "(mdmid, customername, addressline_1, city, regioncode, countrycode, postalcode, dunsnumber, recordvalidated, remarks) " +
                 "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?) " +
@@ -227,8 +224,8 @@ public class DataQualityTool {
             ps.setString(6, r.country);
             ps.setString(7, r.postal);
             ps.setString(8, r.dunsnumber);
-            ps.setString(9, r.recordValidation);
-            ps.setString(10, r.remarks);
+            ps.setString(9, r.recordValidation());
+            ps.setString(10, r.remarks());
 
             ps.executeUpdate();
             return true;
@@ -238,12 +235,12 @@ public class DataQualityTool {
         }
     }
 
-    private static int safeInt(ResultSet rs, String col) {
+    static int safeInt(ResultSet rs, String col) {
         try { return rs.getInt(col);
         } catch (Exception e) { return 0; }
     }
 
-    private static String safeStr(ResultSet rs, String col) {
+    static String safeStr(ResultSet rs, String col) {
         try {
             String v = rs.getString(col);
             return v == null ? "" : v.trim();
@@ -0,0 +1,140 @@
+package com.dataquality.matching;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Name/address standardization driven by a token-replacement trie.
+ *
+ * The dictionary maps token sequences to their canonical form ("STREET" => "ST",
+ * "G M B H" => "GMBH"). At each position the longest matching sequence is replaced, so
+ * equivalent spellings collapse to the same canonical string, which is then usable as an
+ * exact hash key before any fuzzy scoring.
+ *
+ * The built-in dictionary is /standardization.txt on the classpath; a custom file can be
+ * configured with Standardization_dictionary.
+ */
+public final class AddressStandardizer {
+
+    private static final String DEFAULT_RESOURCE = "/standardization.txt";
+
+    // The built-in dictionary, loaded once; standardizers are immutable and shared freely
+    private static volatile AddressStandardizer builtIn;
+
+    private final Node root = new Node();
+
+    private AddressStandardizer() {}
+
+    /** Standardizer with the built-in dictionary. */
+    public static AddressStandardizer defaults() {
+        AddressStandardizer s = builtIn;
+        if (s == null) {
+            synchronized (AddressStandardizer.class) {
+                if (builtIn == null) builtIn = loadDefault();
+                s = builtIn;
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Standardizer with the dictionary at {@code path}, or the built-in one if the path is empty.
+     * Each run loads its own (see CandidateMatcher), so runs with different dictionaries do
+     * not interfere.
+     */
+    public static AddressStandardizer fromFile(String path) throws IOException {
+        if (path == null || path.trim().isEmpty()) return defaults();
+        try (InputStream in = new FileInputStream(path.trim())) {
+            return load(in);
+        }
+    }
+
+    private static AddressStandardizer loadDefault() {
+        try (InputStream in = AddressStandardizer.class.getResourceAsStream(DEFAULT_RESOURCE)) {
+            if (in == null) return new AddressStandardizer();
+            return load(in);
+        } catch (IOException e) {
+            return new AddressStandardizer();
+        }
+    }
+
+    static AddressStandardizer load(InputStream in) throws IOException {
+        AddressStandardizer s = new AddressStandardizer();
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = br.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+
+                int arrow = line.indexOf("=>");
+                if (arrow < 0) continue;
+
+                String[] from = tokens(TextNormalizer.normalizeAndUpper(line.substring(0, arrow)));
+                String to = TextNormalizer.normalizeAndUpper(line.substring(arrow + 2));
+                if (from.length == 0) continue;
+
+                Node n = s.root;
+                for (String t : from) n = n.children.computeIfAbsent(t, k -> new Node());
+                n.replacement = to;
+            }
+        }
+        return s;
+    }
+
+    /**
+     * Canonical form of a raw or normalized value.
+     */
+    public String standardize(String value) {
+        String[] toks = tokens(TextNormalizer.normalizeAndUpper(value));
+        if (toks.length == 0) return "";
+
+        List<String> out = new ArrayList<>(toks.length);
+        int i = 0;
+        while (i < toks.length) {
+            // Longest dictionary sequence starting at i
+            Node n = root;
+            int matchEnd = -1;
+            String replacement = null;
+            for (int j = i; j < toks.length; j++) {
+                n = n.children.get(toks[j]);
+                if (n == null) break;
+                if (n.replacement != null) {
+                    matchEnd = j;
+                    replacement = n.replacement;
+                }
+            }
+
+            if (matchEnd >= 0) {
+                if (!replacement.isEmpty()) out.add(replacement);
+                i = matchEnd + 1;
+            } else {
+                out.add(toks[i++]);
+            }
+        }
+        return String.join(" ", out);
+    }
+
+    /**
+     * Canonical key of a record: standardized name, address and city.
+     */
+    public String canonicalKey(String name, String address, String city) {
+        return standardize(name) + "|" + standardize(address) + "|" + standardize(city);
+    }
+
+    private static String[] tokens(String normalized) {
+        return normalized.isEmpty() ? new String[0] : normalized.split(" ");
+    }
+
+    private static final class Node {
+        final Map<String, Node> children = new HashMap<>(4);
+        String replacement;
+    }
+}
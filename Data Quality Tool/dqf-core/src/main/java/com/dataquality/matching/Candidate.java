@@ -0,0 +1,64 @@
+package com.dataquality.matching;
+
+/**
+ * Master-table record considered for a fuzzy match.
+ *
+ * Name, address and city are stored already normalized (the same way the input row is
+ * normalized before scoring), so a candidate can be scored against many input rows
+ * without repeating the normalization.
+ */
+public class Candidate {
+
+    public final int id;
+    public final String duns;
+    public final String name;
+    public final String address;
+    public final String city;
+
+    // Canonical key and the standardizer it was built with
+    private volatile Keyed canonicalKey;
+
+    public Candidate(int id, String duns, String name, String address, String city) {
+        this.id = id;
+        this.duns = duns;
+        this.name = name;
+        this.address = address;
+        this.city = city;
+    }
+
+    /**
+     * Builds a candidate from raw master-table values.
+     */
+    public static Candidate fromRaw(int id, String duns, String rawName, String rawAddress, String rawCity) {
+        return new Candidate(
+                id,
+                duns,
+                TextNormalizer.safeUpper(rawName),
+                TextNormalizer.normalizeAndUpper(rawAddress),
+                TextNormalizer.safeUpper(rawCity)
+        );
+    }
+
+    /**
+     * Standardized name/address/city key (see {@link AddressStandardizer}), computed on first use
+     * and again if asked for with another standardizer.
+     */
+    public String canonicalKey(AddressStandardizer std) {
+        Keyed k = canonicalKey;
+        if (k == null || k.std != std) {
+            k = new Keyed(std, std.canonicalKey(name, address, city));
+            canonicalKey = k;
+        }
+        return k.key;
+    }
+
+    private static final class Keyed {
+        final AddressStandardizer std;
+        final String key;
+
+        Keyed(AddressStandardizer std, String key) {
+            this.std = std;
+            this.key = key;
+        }
+    }
+}
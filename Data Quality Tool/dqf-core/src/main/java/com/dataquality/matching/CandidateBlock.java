@@ -0,0 +1,83 @@
+package com.dataquality.matching;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Candidates of one blocking key (country variants + normalized postal code), with lazily
+ * built trigram indexes over the candidate names and addresses and a canonical-key map for
+ * exact hits.
+ */
+public class CandidateBlock {
+
+    /** Below this size a linear scan is cheaper than building the indexes. */
+    private static final int MIN_INDEXED_SIZE = 16;
+
+    private final List<Candidate> candidates;
+    private NGramIndex nameIndex;
+    private NGramIndex addrIndex;
+    private int[] nameCommon;
+    private int[] addrCommon;
+    private Map<String, Candidate> byCanonicalKey;
+    private AddressStandardizer keyStandardizer;
+
+    public CandidateBlock(List<Candidate> candidates) {
+        this.candidates = candidates == null ? Collections.emptyList() : candidates;
+    }
+
+    public List<Candidate> candidates() { return candidates; }
+
+    public int size() { return candidates.size(); }
+
+    /**
+     * Candidate whose canonical key equals {@code canonicalKey}, or null. With several such
+     * candidates the earliest one is returned.
+     */
+    public Candidate exact(AddressStandardizer std, String canonicalKey) {
+        if (byCanonicalKey == null || keyStandardizer != std) {
+            byCanonicalKey = new HashMap<>(candidates.size() * 2);
+            for (Candidate c : candidates) byCanonicalKey.putIfAbsent(c.canonicalKey(std), c);
+            keyStandardizer = std;
+        }
+        return byCanonicalKey.get(canonicalKey);
+    }
+
+    /**
+     * Candidates whose name and address can still reach the fuzzy-match thresholds against the
+     * given normalized input values, according to the trigram count filter.
+     */
+    public List<Candidate> prune(String name, String address) {
+        if (candidates.size() < MIN_INDEXED_SIZE) return candidates;
+        buildIndexes();
+
+        String n = name == null ? "" : name;
+        String a = address == null ? "" : address;
+        nameIndex.commonCounts(n, nameCommon);
+        addrIndex.commonCounts(a, addrCommon);
+
+        List<Candidate> out = new ArrayList<>();
+        for (int i = 0; i < candidates.size(); i++) {
+            if (!nameIndex.mayMatch(i, nameCommon[i], n.length(), FuzzyMatcher.NAME_THRESHOLD)) continue;
+            if (!addrIndex.mayMatch(i, addrCommon[i], a.length(), FuzzyMatcher.ADDR_THRESHOLD)) continue;
+            out.add(candidates.get(i));
+        }
+        return out;
+    }
+
+    private void buildIndexes() {
+        if (nameIndex != null) return;
+        List<String> names = new ArrayList<>(candidates.size());
+        List<String> addrs = new ArrayList<>(candidates.size());
+        for (Candidate c : candidates) {
+            names.add(c.name);
+            addrs.add(c.address);
+        }
+        nameIndex = new NGramIndex(names);
+        addrIndex = new NGramIndex(addrs);
+        nameCommon = new int[candidates.size()];
+        addrCommon = new int[candidates.size()];
+    }
+}
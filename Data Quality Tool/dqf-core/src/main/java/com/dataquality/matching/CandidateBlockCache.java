@@ -0,0 +1,80 @@
+package com.dataquality.matching;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-run LRU cache of candidate blocks, so rows that share a blocking key reuse both the
+ * fetched candidates and the trigram indexes built over them. Not thread-safe.
+ */
+public class CandidateBlockCache {
+
+    private final Map<String, CandidateBlock> blocks;
+    private final int capacity;
+
+    public CandidateBlockCache(int maxBlocks) {
+        final int cap = Math.max(1, maxBlocks);
+        this.capacity = cap;
+        this.blocks = new LinkedHashMap<String, CandidateBlock>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CandidateBlock> eldest) {
+                return size() > cap;
+            }
+        };
+    }
+
+    public CandidateBlock get(Connection conn, CandidateSource source,
+                              Set<String> countryVariants, String normPostal, int limit) {
+        String key = key(countryVariants, normPostal);
+        CandidateBlock block = blocks.get(key);
+        if (block == null) {
+            block = new CandidateBlock(source.fetch(conn, countryVariants, normPostal, limit));
+            blocks.put(key, block);
+        }
+        return block;
+    }
+
+    /**
+     * Loads the blocks of the given keys that are not cached yet with one
+     * {@link CandidateSource#fetchAll} call. Keys without country variants or postal code are
+     * ignored, and at most as many blocks as the cache holds are loaded.
+     *
+     * @return number of blocks loaded
+     */
+    public int prefetch(Connection conn, CandidateSource source, List<Set<String>> countryVariants,
+                        List<String> normPostals, int limit) {
+
+        List<String> keys = new ArrayList<>();
+        List<Set<String>> missingVariants = new ArrayList<>();
+        List<String> missingPostals = new ArrayList<>();
+        Set<String> seen = new HashSet<>();
+
+        for (int i = 0; i < countryVariants.size() && keys.size() < capacity; i++) {
+            Set<String> variants = countryVariants.get(i);
+            String postal = normPostals.get(i);
+            if (variants == null || variants.isEmpty() || postal == null || postal.isEmpty()) continue;
+
+            String key = key(variants, postal);
+            if (!seen.add(key) || blocks.containsKey(key)) continue;
+            keys.add(key);
+            missingVariants.add(variants);
+            missingPostals.add(postal);
+        }
+        if (keys.isEmpty()) return 0;
+
+        List<List<Candidate>> fetched = source.fetchAll(conn, missingVariants, missingPostals, limit);
+        for (int i = 0; i < keys.size(); i++) {
+            blocks.put(keys.get(i), new CandidateBlock(fetched.get(i)));
+        }
+        return keys.size();
+    }
+
+    static String key(Set<String> countryVariants, String normPostal) {
+        return String.join(",", countryVariants) + "|" + (normPostal == null ? "" : normPostal.toUpperCase());
+    }
+}
@@ -0,0 +1,146 @@
+package com.dataquality.matching;
+
+import com.dataquality.config.ConfigReader;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Per-run, in-memory blocking index over the master table.
+ *
+ * Loaded with a single query covering all countries present in the upload and keyed by
+ * upper-cased country + normalized postal code, the same block the per-row candidate query
+ * uses. Candidate retrieval then becomes a hash lookup instead of one query per input row.
+ * A second map keys the same records by country + phonetic name key.
+ *
+ * Enabled with Preload_candidates = true in userfile.xlsx.
+ */
+public class CandidateBlockingIndex implements CandidateSource {
+
+    private static final int FETCH_SIZE = 5000;
+
+    private final Map<String, List<Candidate>> blocks = new HashMap<>();
+    private final Map<String, List<Candidate>> phoneticBlocks = new HashMap<>();
+    private int size = 0;
+
+    private CandidateBlockingIndex() {}
+
+    /**
+     * Loads every master record stored under one of {@code countryCodes} (upper-cased).
+     */
+    public static CandidateBlockingIndex load(Connection conn, ConfigReader cfg, Set<String> countryCodes)
+            throws SQLException {
+
+        CandidateBlockingIndex index = new CandidateBlockingIndex();
+        if (countryCodes == null || countryCodes.isEmpty()) return index;
+
+        String countryCol = cfg.getCountryColumn();
+        StringBuilder in = new StringBuilder();
+        for (int i = 0; i < countryCodes.size(); i++) {
+            if (i > 0) in.append(",");
+            in.append("?");
+        }
+
+        String sql =
+                "SELECT " + cfg.getIdColumn() + ", " + cfg.getDunsColumn() + ", " + cfg.getCustomerNameColumn() + ", " +
+                        cfg.getAddressLine1Column() + ", " + cfg.getCityColumn() + ", " +
+                        "UPPER(COALESCE(" + countryCol + ",'')), " + cfg.getPostalColumn() +
+                        " FROM " + cfg.getTableName() +
+                        " WHERE UPPER(COALESCE(" + countryCol + ",'')) IN (" + in + ")";
+
+        // A cursor-based fetch needs autocommit off in the PostgreSQL driver.
+        boolean autoCommit = conn.getAutoCommit();
+        try {
+            if (autoCommit) conn.setAutoCommit(false);
+
+            try (PreparedStatement ps = conn.prepareStatement(sql)) {
+                ps.setFetchSize(FETCH_SIZE);
+                int idx = 1;
+                for (String c : countryCodes) ps.setString(idx++, c.toUpperCase());
+
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        Candidate c = Candidate.fromRaw(
+                                rs.getInt(1),
+                                rs.getString(2),
+                                rs.getString(3),
+                                rs.getString(4),
+                                rs.getString(5)
+                        );
+                        String key = key(rs.getString(6), TextNormalizer.sqlPostalKey(rs.getString(7)));
+                        index.blocks.computeIfAbsent(key, k -> new ArrayList<>(4)).add(c);
+
+                        String phonetic = PhoneticKey.of(c.name);
+                        if (!phonetic.isEmpty()) {
+                            index.phoneticBlocks.computeIfAbsent(key(rs.getString(6), phonetic), k -> new ArrayList<>(4)).add(c);
+                        }
+                        index.size++;
+                    }
+                }
+            }
+            if (autoCommit) conn.commit();
+        } finally {
+            if (autoCommit) conn.setAutoCommit(true);
+        }
+        return index;
+    }
+
+    @Override
+    public List<Candidate> fetch(Connection conn, Set<String> countryVariants, String normPostal, int limit) {
+        if (countryVariants == null || countryVariants.isEmpty() || normPostal == null) return Collections.emptyList();
+
+        return collect(blocks, countryVariants, normPostal.toUpperCase(), limit);
+    }
+
+    @Override
+    public List<Candidate> fetchByPhoneticKey(Connection conn, Set<String> countryVariants,
+                                              String phoneticKey, String name, int limit) {
+        if (countryVariants == null || phoneticKey == null || phoneticKey.isEmpty()) return Collections.emptyList();
+
+        List<Candidate> all = collect(phoneticBlocks, countryVariants, phoneticKey, Integer.MAX_VALUE);
+        if (all.size() <= limit) return all;
+
+        // Closest name length first, as DbCandidateSource orders them
+        int len = name == null ? 0 : name.length();
+        List<Candidate> sorted = new ArrayList<>(all);
+        sorted.sort(Comparator.comparingInt((Candidate c) -> Math.abs(lengthOf(c.name) - len))
+                .thenComparingInt(c -> c.id));
+        return sorted.subList(0, limit);
+    }
+
+    private static int lengthOf(String s) {
+        return s == null ? 0 : s.length();
+    }
+
+    public int size() { return size; }
+
+    public int blockCount() { return blocks.size(); }
+
+    private static List<Candidate> collect(Map<String, List<Candidate>> map, Set<String> countryVariants,
+                                           String subKey, int limit) {
+        List<Candidate> out = null;
+        for (String country : countryVariants) {
+            List<Candidate> block = map.get(key(country.toUpperCase(), subKey));
+            if (block == null) continue;
+            if (out == null) out = new ArrayList<>(block.size());
+            for (Candidate c : block) {
+                if (out.size() >= limit) return out;
+                out.add(c);
+            }
+        }
+        return out == null ? Collections.emptyList() : out;
+    }
+
+    private static String key(String country, String subKey) {
+        return country + "|" + subKey;
+    }
+}
@@ -0,0 +1,49 @@
+package com.dataquality.matching;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-run, size-bounded LRU cache of normalized candidates keyed by master id.
+ *
+ * Uploads tend to cluster by postal code, so the same master records come back for many
+ * input rows. With the cache each record is normalized once per run instead of once per
+ * comparison. Not thread-safe: used from the row loop only.
+ */
+public class CandidateCache {
+
+    private final Map<Integer, Candidate> entries;
+    private long hits = 0;
+    private long misses = 0;
+
+    public CandidateCache(int maxEntries) {
+        final int cap = Math.max(1, maxEntries);
+        this.entries = new LinkedHashMap<Integer, Candidate>(Math.min(cap, 1 << 16), 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Candidate> eldest) {
+                return size() > cap;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached candidate for {@code id}, normalizing and caching the raw values on a miss.
+     */
+    public Candidate get(int id, String duns, String rawName, String rawAddress, String rawCity) {
+        Candidate c = entries.get(id);
+        if (c != null) {
+            hits++;
+            return c;
+        }
+        misses++;
+        c = Candidate.fromRaw(id, duns, rawName, rawAddress, rawCity);
+        entries.put(id, c);
+        return c;
+    }
+
+    public long getHits() { return hits; }
+
+    public long getMisses() { return misses; }
+
+    public int size() { return entries.size(); }
+}
@@ -0,0 +1,410 @@
+package com.dataquality.matching;
+
+import com.dataquality.common.CoreLogStream;
+import com.dataquality.config.ConfigReader;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Per-run fuzzy matching of input rows against the master table.
+ *
+ * Order of attempts for one row:
+ *   1. persistent match cache (previous runs), looked up for a whole window in {@link #prefetch},
+ *   2. postal block or, with Match_strategy = TRGM, pg_trgm top-k:
+ *      a candidate with the same canonical key (standardized name/address/city) is scored
+ *      alone and taken if it passes the thresholds, otherwise the (trigram-pruned)
+ *      candidates are fuzzy scored,
+ *   3. phonetic secondary block when 2. found nothing.
+ *
+ * Long candidate lists are scored on the run's own pool of Scoring_threads threads, created on
+ * first use; {@link #close} stops it.
+ */
+public class CandidateMatcher implements AutoCloseable {
+
+    // Default of Candidate_limit, the cap on candidates fetched per postal block; n-gram pruning
+    // works within the capped block.
+    public static final int CANDIDATE_LIMIT = 500;
+
+    // Candidates per parallel scoring task
+    private static final int MIN_CHUNK = 512;
+
+    private final CandidateSource candidateSource;
+    private final CandidateCache candidateCache;
+    private final CandidateBlockCache blockCache;
+    private final TrigramCandidateSource trigramSource;
+    private final MatchCache matchCache;
+    private final AddressStandardizer standardizer;
+
+    private final boolean ngramPruning;
+    private final int fetchLimit;
+    private final int parallelThreshold;
+    private final int scoringThreads;
+    private ExecutorService scoringPool;
+    private final int trgmTopK;
+    private final boolean phoneticBlocking;
+    private final int phoneticLimit;
+    private final boolean canonicalFastPath;
+
+    private long candidatesSeen = 0;
+    private long candidatesScored = 0;
+    private int phoneticMatches = 0;
+    private int canonicalHits = 0;
+    private int parallelScorings = 0;
+    private int prefetchQueries = 0;
+    private int prefetchedBlocks = 0;
+    private long matchCacheHits = 0;
+
+    // Match cache state of the current window (see prefetch / flush)
+    private Long windowVersion;
+    private Map<String, MatchResult> cachedMatches = Collections.emptyMap();
+    private final List<String> storeKeys = new ArrayList<>();
+    private final List<MatchResult> storeMatches = new ArrayList<>();
+
+    public CandidateMatcher(Connection conn, ConfigReader cfg, CandidateSource candidateSource,
+                            CandidateCache candidateCache) {
+        this.candidateSource = candidateSource;
+        this.candidateCache = candidateCache;
+
+        this.ngramPruning = cfg.isNgramPruning();
+        int limit = cfg.getCandidateLimit();
+        this.fetchLimit = limit <= 0 ? Integer.MAX_VALUE : limit;
+        this.parallelThreshold = cfg.getParallelScoringThreshold();
+        this.scoringThreads = Math.max(1, cfg.getScoringThreads());
+        this.blockCache = new CandidateBlockCache(cfg.getBlockCacheSize());
+
+        this.phoneticBlocking = cfg.isPhoneticBlocking();
+        this.phoneticLimit = cfg.getPhoneticBlockLimit();
+
+        // Standardization dictionary for the canonical-key fast path
+        this.canonicalFastPath = cfg.isCanonicalFastPath();
+        // (this run's own instance; concurrent runs may use other dictionaries)
+        AddressStandardizer std = AddressStandardizer.defaults();
+        if (canonicalFastPath) {
+            try {
+                std = AddressStandardizer.fromFile(cfg.getStandardizationDictionary());
+            } catch (IOException ex) {
+                CoreLogStream.push("Standardization dictionary not loaded, using built-in: " + ex.getMessage());
+            }
+        }
+        this.standardizer = std;
+
+        // Optional server-side top-k ranking with pg_trgm instead of postal blocks
+        this.trgmTopK = cfg.getTrgmTopK();
+        TrigramCandidateSource trgm = null;
+        if ("TRGM".equals(cfg.getMatchStrategy())) {
+            trgm = new TrigramCandidateSource(cfg, candidateCache);
+            if (trgm.prepare(conn)) {
+                CoreLogStream.push("Match strategy: pg_trgm top-" + trgmTopK + " per row.");
+            } else {
+                trgm = null;
+                CoreLogStream.push("Match strategy: postal blocks (pg_trgm not available).");
+            }
+        }
+        this.trigramSource = trgm;
+
+        // dqf_match_cache is created by DataQualitySchemaTool, never here
+        MatchCache mc = null;
+        if (cfg.isMatchCache()) {
+            try {
+                if (MatchCache.exists(conn)) {
+                    mc = new MatchCache(cfg);
+                } else {
+                    CoreLogStream.push("Match cache disabled: dqf_match_cache is missing; run DataQualitySchemaTool.");
+                }
+            } catch (SQLException ex) {
+                CoreLogStream.push("Match cache disabled: " + ex.getMessage());
+            }
+        }
+        this.matchCache = mc;
+    }
+
+    /**
+     * Best match of one normalized input row, or null.
+     *
+     * @param businessKey normalized business key of the row (persistent cache key); rows of a
+     *                    window are looked up in the match cache by {@link #prefetch}
+     */
+    public MatchResult match(Connection conn, Set<String> countryVariants, String normPostal,
+                             String businessKey, String name, String address, String city) {
+
+        // Persistent cache from earlier runs; a hit skips candidate fetch and scoring
+        MatchResult cached = cachedMatches.get(businessKey);
+        if (cached != null) {
+            matchCacheHits++;
+            return cached;
+        }
+
+        String canonicalKey = canonicalFastPath ? canonicalKey(name, address, city) : null;
+
+        MatchResult best = null;
+        if (trigramSource != null) {
+            // Top-k by pg_trgm similarity within the country, confirmed below
+            List<Candidate> candidates = trigramSource.fetchTopK(conn, countryVariants, name, address, trgmTopK);
+            Candidate exact = canonicalKey == null ? null : exactMatch(candidates, canonicalKey);
+            best = exact == null ? null : exactResult(exact, name, address, city);
+            if (best == null) best = score(candidates, name, address, city);
+        } else {
+            CandidateBlock block = blockCache.get(conn, candidateSource, countryVariants, normPostal, fetchLimit);
+            candidatesSeen += block.size();
+
+            // Exact canonical-key hit skips fuzzy scoring of the block
+            Candidate exact = canonicalKey == null ? null : block.exact(standardizer, canonicalKey);
+            if (exact != null) best = exactResult(exact, name, address, city);
+            if (best == null) {
+                // Trigram count filter drops candidates that cannot reach the thresholds
+                List<Candidate> candidates = ngramPruning ? block.prune(name, address) : block.candidates();
+                candidatesScored += candidates.size();
+                best = score(candidates, name, address, city);
+            }
+        }
+
+        // Secondary phonetic block (country + name sound-alike) when the primary block
+        // has no match, e.g. because of a typo in the postal code
+        if (best == null && phoneticBlocking) {
+            List<Candidate> phonetic = candidateSource.fetchByPhoneticKey(
+                    conn, countryVariants, PhoneticKey.of(name), name, phoneticLimit);
+            best = score(phonetic, name, address, city);
+            if (best != null) phoneticMatches++;
+        }
+
+        // Stored with the window in flush
+        if (best != null && windowVersion != null) {
+            storeKeys.add(businessKey);
+            storeMatches.add(best);
+        }
+        return best;
+    }
+
+    /**
+     * Prepares a window of upcoming rows: looks their business keys up in the match cache with
+     * one query and loads the postal blocks of the rows without a cached match in one batch, so
+     * their {@link #match} calls find them in the block cache (no block fetch with the pg_trgm
+     * strategy). Call {@link #flush} once the window is matched.
+     *
+     * @param businessKeys    business key per upcoming row
+     * @param countryVariants country variants per upcoming row
+     * @param normPostals     normalized postal code per upcoming row
+     */
+    public void prefetch(Connection conn, List<String> businessKeys, List<Set<String>> countryVariants,
+                         List<String> normPostals) {
+        flush(conn);
+
+        List<Set<String>> variants = countryVariants;
+        List<String> postals = normPostals;
+        if (matchCache != null) {
+            // Read before the blocks, so stores are never stamped newer than the data they saw
+            windowVersion = matchCache.masterVersion(conn);
+            if (windowVersion != null) {
+                cachedMatches = matchCache.lookupAll(conn, businessKeys, windowVersion);
+            }
+            if (!cachedMatches.isEmpty()) {
+                variants = new ArrayList<>();
+                postals = new ArrayList<>();
+                for (int i = 0; i < businessKeys.size(); i++) {
+                    if (cachedMatches.containsKey(businessKeys.get(i))) continue;
+                    variants.add(countryVariants.get(i));
+                    postals.add(normPostals.get(i));
+                }
+            }
+        }
+
+        if (trigramSource != null) return;
+        int loaded = blockCache.prefetch(conn, candidateSource, variants, postals, fetchLimit);
+        if (loaded > 0) {
+            prefetchQueries++;
+            prefetchedBlocks += loaded;
+        }
+    }
+
+    /**
+     * Writes the fresh matches of the current window to the match cache in one batch and ends
+     * the window.
+     */
+    public void flush(Connection conn) {
+        if (matchCache != null && windowVersion != null) {
+            matchCache.storeAll(conn, storeKeys, storeMatches, windowVersion);
+        }
+        storeKeys.clear();
+        storeMatches.clear();
+        cachedMatches = Collections.emptyMap();
+        windowVersion = null;
+    }
+
+    /**
+     * Canonical key of the input row, or null if name or address standardize to nothing
+     * (such rows are left to fuzzy scoring).
+     */
+    private String canonicalKey(String name, String address, String city) {
+        String n = standardizer.standardize(name);
+        String a = standardizer.standardize(address);
+        if (n.isEmpty() || a.isEmpty()) return null;
+        return n + "|" + a + "|" + standardizer.standardize(city);
+    }
+
+    private Candidate exactMatch(List<Candidate> candidates, String canonicalKey) {
+        for (Candidate c : candidates) {
+            if (canonicalKey.equals(c.canonicalKey(standardizer))) return c;
+        }
+        return null;
+    }
+
+    /**
+     * The canonical-key hit with its real score, or null if the raw strings miss the thresholds
+     * (e.g. words the dictionary drops differ), so the row is scored as usual.
+     */
+    private MatchResult exactResult(Candidate c, String name, String address, String city) {
+        double combined = FuzzyMatcher.score(name, address, city, c);
+        if (combined < 0) return null;
+        canonicalHits++;
+        return new MatchResult(c.id, c.duns, combined);
+    }
+
+    /**
+     * Best match of the candidate list; lists at or above Parallel_scoring_threshold are
+     * scored in parallel on the run's scoring pool.
+     */
+    private MatchResult score(List<Candidate> candidates, String name, String address, String city) {
+        if (parallelThreshold > 0 && scoringThreads > 1 && candidates.size() >= parallelThreshold) {
+            parallelScorings++;
+            if (scoringPool == null) {
+                scoringPool = Executors.newFixedThreadPool(scoringThreads, r -> {
+                    Thread t = new Thread(r, "dqf-scoring");
+                    t.setDaemon(true);
+                    return t;
+                });
+            }
+            return bestMatchParallel(scoringPool, scoringThreads, candidates, name, address, city);
+        }
+        return bestMatch(candidates, name, address, city);
+    }
+
+    /**
+     * Stops the scoring pool of this run.
+     */
+    @Override
+    public void close() {
+        if (scoringPool != null) scoringPool.shutdownNow();
+    }
+
+    /**
+     * Same result as {@link #bestMatch}, computed in chunks on {@code pool} ({@code threads}
+     * threads). Each chunk returns its own best (score, index); the reduction keeps the higher
+     * score and, on ties, the lower index, so the earlier candidate still wins.
+     */
+    public static MatchResult bestMatchParallel(ExecutorService pool, int threads, List<Candidate> candidates,
+                                                String name, String address, String city) {
+        int n = candidates.size();
+        int chunks = Math.max(1, Math.min(n / MIN_CHUNK, threads * 4));
+        if (chunks == 1) return bestMatch(candidates, name, address, city);
+
+        int chunkSize = (n + chunks - 1) / chunks;
+        List<Callable<ChunkBest>> tasks = new ArrayList<>(chunks);
+        for (int ch = 0; ch < chunks; ch++) {
+            int from = ch * chunkSize;
+            int to = Math.min(n, from + chunkSize);
+            tasks.add(() -> {
+                ChunkBest b = new ChunkBest(-1.0, -1);
+                for (int i = from; i < to; i++) {
+                    double combined = FuzzyMatcher.score(name, address, city, candidates.get(i));
+                    if (combined > b.score) b = new ChunkBest(combined, i);
+                }
+                return b;
+            });
+        }
+
+        ChunkBest best = new ChunkBest(-1.0, -1);
+        try {
+            for (Future<ChunkBest> f : pool.invokeAll(tasks)) {
+                best = best.better(f.get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            return bestMatch(candidates, name, address, city);
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Parallel scoring failed", ex.getCause());
+        }
+
+        if (best.index < 0) return null;
+        Candidate c = candidates.get(best.index);
+        return new MatchResult(c.id, c.duns, best.score);
+    }
+
+    private static final class ChunkBest {
+        final double score;
+        final int index;
+
+        ChunkBest(double score, int index) {
+            this.score = score;
+            this.index = index;
+        }
+
+        ChunkBest better(ChunkBest o) {
+            if (o.index < 0) return this;
+            if (index < 0) return o;
+            if (o.score > score || (o.score == score && o.index < index)) return o;
+            return this;
+        }
+    }
+
+    /**
+     * Highest-scoring candidate that passes all field thresholds, or null.
+     * Ties keep the earlier candidate.
+     */
+    public static MatchResult bestMatch(List<Candidate> candidates, String name, String address, String city) {
+        double bestScore = -1.0;
+        Candidate bestCand = null;
+
+        // Score candidates (threshold-aware kernel, stops at the first field that misses)
+        for (Candidate c : candidates) {
+            double combined = FuzzyMatcher.score(name, address, city, c);
+            if (combined > bestScore) {
+                bestScore = combined;
+                bestCand = c;
+            }
+        }
+        return bestCand == null ? null : new MatchResult(bestCand.id, bestCand.duns, bestScore);
+    }
+
+    /**
+     * Pushes the run's matching statistics to the log stream.
+     */
+    public void logStats() {
+        if (canonicalHits > 0) {
+            CoreLogStream.push("Canonical key: " + canonicalHits + " rows matched exactly after standardization.");
+        }
+        if (matchCacheHits > 0) {
+            CoreLogStream.push("Match cache: " + matchCacheHits + " rows reused a previous match.");
+        }
+        if (prefetchQueries > 0) {
+            CoreLogStream.push("Batched fetch: " + prefetchedBlocks + " candidate blocks in "
+                    + prefetchQueries + " queries.");
+        }
+        if (parallelScorings > 0) {
+            CoreLogStream.push("Parallel scoring: " + parallelScorings + " candidate lists above "
+                    + parallelThreshold + " candidates.");
+        }
+        if (phoneticMatches > 0) {
+            CoreLogStream.push("Phonetic blocking: " + phoneticMatches + " rows matched outside their postal block.");
+        }
+        if (ngramPruning && candidatesSeen > 0) {
+            CoreLogStream.push("N-gram pruning: " + candidatesScored + " of " + candidatesSeen
+                    + " candidates scored.");
+        }
+        if (candidateCache != null && candidateCache.getHits() + candidateCache.getMisses() > 0) {
+            CoreLogStream.push("Candidate cache: " + candidateCache.getHits() + " hits, "
+                    + candidateCache.getMisses() + " normalized.");
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.dataquality.matching;
+
+import java.sql.Connection;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Provides the master-table records an input row is fuzzy-matched against.
+ */
+public interface CandidateSource {
+
+    /**
+     * @param conn            open connection of the current run
+     * @param countryVariants upper-cased country codes the row may be stored under (alpha2/alpha3/raw)
+     * @param normPostal      normalized postal code of the input row
+     * @param limit           maximum number of candidates to return (Integer.MAX_VALUE = no limit)
+     */
+    List<Candidate> fetch(Connection conn, Set<String> countryVariants, String normPostal, int limit);
+
+    /**
+     * Candidates of several blocking keys at once; element i of the result belongs to
+     * (countryVariants[i], normPostals[i]). Sources that can answer many keys with one round
+     * trip override this; the default fetches key by key.
+     */
+    default List<List<Candidate>> fetchAll(Connection conn, List<Set<String>> countryVariants,
+                                           List<String> normPostals, int limit) {
+        List<List<Candidate>> out = new ArrayList<>(countryVariants.size());
+        for (int i = 0; i < countryVariants.size(); i++) {
+            out.add(fetch(conn, countryVariants.get(i), normPostals.get(i), limit));
+        }
+        return out;
+    }
+
+    /**
+     * Secondary block: candidates of the same country whose name has the given {@link PhoneticKey},
+     * those whose name length is closest to {@code name} first when there are more than
+     * {@code limit}. Sources without phonetic support return an empty list.
+     */
+    default List<Candidate> fetchByPhoneticKey(Connection conn, Set<String> countryVariants,
+                                               String phoneticKey, String name, int limit) {
+        return Collections.emptyList();
+    }
+}
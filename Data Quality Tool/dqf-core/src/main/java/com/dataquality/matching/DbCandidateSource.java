@@ -0,0 +1,240 @@
+package com.dataquality.matching;
+
+import com.dataquality.common.CoreLogStream;
+import com.dataquality.config.ConfigReader;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Array;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Default candidate source: one master-table query per input row,
+ * blocked on country variants and normalized postal code. {@link #fetchAll} answers many
+ * blocking keys with a single query joined against an unnest() of the keys.
+ *
+ * The phonetic secondary block is answered from {@link PhoneticKeyTable} (read only; its keys are
+ * maintained outside of runs), with the closest names first.
+ */
+public class DbCandidateSource implements CandidateSource {
+
+    private final String table;
+    private final String idCol;
+    private final String dunsCol;
+    private final String nameCol;
+    private final String addrCol;
+    private final String cityCol;
+    private final String countryCol;
+    private final String postalCol;
+    private final CandidateCache cache;
+
+    private final ConfigReader cfg;
+
+    // Whether the phonetic key table is usable in this run (null until first needed)
+    private Boolean phoneticReady;
+
+    public DbCandidateSource(ConfigReader cfg) {
+        this(cfg, null);
+    }
+
+    /**
+     * @param cache optional per-run cache of normalized candidates (may be null)
+     */
+    public DbCandidateSource(ConfigReader cfg, CandidateCache cache) {
+        this.cfg = cfg;
+        this.table = cfg.getTableName();
+        this.idCol = cfg.getIdColumn();
+        this.dunsCol = cfg.getDunsColumn();
+        this.nameCol = cfg.getCustomerNameColumn();
+        this.addrCol = cfg.getAddressLine1Column();
+        this.cityCol = cfg.getCityColumn();
+        this.countryCol = cfg.getCountryColumn();
+        this.postalCol = cfg.getPostalColumn();
+        this.cache = cache;
+    }
+
+    @Override
+    public List<Candidate> fetch(Connection conn, Set<String> countryVariants, String normPostal, int limit) {
+
+        List<Candidate> list = new ArrayList<>();
+        if (countryVariants == null || countryVariants.isEmpty() || normPostal == null) return list;
+
+        StringBuilder in = new StringBuilder();
+        for (int i = 0; i < countryVariants.size(); i++) {
+            if (i > 0) in.append(",");
+            in.append("?");
+        }
+
+        String sql =
+                "SELECT " + idCol + ", " + dunsCol + ", " + nameCol + ", " + addrCol + ", " + cityCol +
+                        " FROM " + table +
+                        " WHERE UPPER(COALESCE(" + countryCol + ",'') ) IN (" + in + ")" +
+                        " AND REPLACE(REPLACE(UPPER(COALESCE(" + postalCol + ",'') ),' ',''),'-','') = ?" +
+                        (limit == Integer.MAX_VALUE ? "" : " LIMIT " + limit);
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int idx = 1;
+            for (String c : countryVariants) ps.setString(idx++, c.toUpperCase());
+            ps.setString(idx, normPostal.toUpperCase());
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt(1);
+                    list.add(cache != null
+                            ? cache.get(id, rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5))
+                            : Candidate.fromRaw(id, rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5)));
+                }
+            }
+
+        } catch (Exception ex) {
+            System.err.println("Candidate fetch failed: " + ex.getMessage());
+        }
+        return list;
+    }
+
+    @Override
+    public List<List<Candidate>> fetchAll(Connection conn, List<Set<String>> countryVariants,
+                                          List<String> normPostals, int limit) {
+
+        int n = countryVariants.size();
+        List<List<Candidate>> out = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) out.add(new ArrayList<>());
+        if (n == 0) return out;
+
+        // One (key ordinal, country variant, postal) triple per variant of every key
+        List<Integer> ords = new ArrayList<>();
+        List<String> countries = new ArrayList<>();
+        List<String> postals = new ArrayList<>();
+        for (int i = 0; i < n; i++) {
+            Set<String> variants = countryVariants.get(i);
+            String postal = normPostals.get(i);
+            if (variants == null || postal == null) continue;
+            for (String c : variants) {
+                ords.add(i);
+                countries.add(c.toUpperCase());
+                postals.add(postal.toUpperCase());
+            }
+        }
+        if (ords.isEmpty()) return out;
+
+        String select =
+                "SELECT k.ord, t." + idCol + ", t." + dunsCol + ", t." + nameCol + ", t." + addrCol + ", t." + cityCol +
+                        (limit == Integer.MAX_VALUE ? "" : ", ROW_NUMBER() OVER (PARTITION BY k.ord) AS rn") +
+                        " FROM unnest(?::int4[], ?::text[], ?::text[]) AS k(ord, country, postal)" +
+                        " JOIN " + table + " t" +
+                        " ON UPPER(COALESCE(t." + countryCol + ",'') ) = k.country" +
+                        " AND REPLACE(REPLACE(UPPER(COALESCE(t." + postalCol + ",'') ),' ',''),'-','') = k.postal";
+        String sql = limit == Integer.MAX_VALUE
+                ? select
+                : "SELECT * FROM (" + select + ") b WHERE b.rn <= " + limit;
+
+        Array ordArr = null;
+        Array countryArr = null;
+        Array postalArr = null;
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            ordArr = conn.createArrayOf("int4", ords.toArray(new Integer[0]));
+            countryArr = conn.createArrayOf("text", countries.toArray(new String[0]));
+            postalArr = conn.createArrayOf("text", postals.toArray(new String[0]));
+            ps.setArray(1, ordArr);
+            ps.setArray(2, countryArr);
+            ps.setArray(3, postalArr);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int ord = rs.getInt(1);
+                    int id = rs.getInt(2);
+                    out.get(ord).add(cache != null
+                            ? cache.get(id, rs.getString(3), rs.getString(4), rs.getString(5), rs.getString(6))
+                            : Candidate.fromRaw(id, rs.getString(3), rs.getString(4), rs.getString(5), rs.getString(6)));
+                }
+            }
+        } catch (Exception ex) {
+            // Fall back to one query per key
+            System.err.println("Batched candidate fetch failed: " + ex.getMessage());
+            out.clear();
+            for (int i = 0; i < n; i++) out.add(fetch(conn, countryVariants.get(i), normPostals.get(i), limit));
+        } finally {
+            free(ordArr);
+            free(countryArr);
+            free(postalArr);
+        }
+        return out;
+    }
+
+    @Override
+    public List<Candidate> fetchByPhoneticKey(Connection conn, Set<String> countryVariants,
+                                              String phoneticKey, String name, int limit) {
+        if (countryVariants == null || countryVariants.isEmpty() || phoneticKey == null || phoneticKey.isEmpty()) {
+            return Collections.emptyList();
+        }
+        if (phoneticReady == null) phoneticReady = preparePhoneticKeys(conn);
+        if (!phoneticReady) return Collections.emptyList();
+
+        StringBuilder in = new StringBuilder();
+        for (int i = 0; i < countryVariants.size(); i++) {
+            if (i > 0) in.append(",");
+            in.append("?");
+        }
+
+        // Closest name length first: among sound-alike names the best edit-distance scores
+        String sql =
+                "SELECT t." + idCol + ", t." + dunsCol + ", t." + nameCol + ", t." + addrCol + ", t." + cityCol +
+                        " FROM " + PhoneticKeyTable.tableName(table) + " k" +
+                        " JOIN " + table + " t ON t." + idCol + " = k.master_id" +
+                        " WHERE k.country IN (" + in + ") AND k.phonetic_key = ?" +
+                        " ORDER BY ABS(LENGTH(COALESCE(t." + nameCol + ",'')) - ?), k.master_id" +
+                        (limit == Integer.MAX_VALUE ? "" : " LIMIT " + limit);
+
+        List<Candidate> list = new ArrayList<>();
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int idx = 1;
+            for (String c : countryVariants) ps.setString(idx++, c.toUpperCase());
+            ps.setString(idx++, phoneticKey);
+            ps.setInt(idx, name == null ? 0 : name.length());
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt(1);
+                    list.add(cache != null
+                            ? cache.get(id, rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5))
+                            : Candidate.fromRaw(id, rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5)));
+                }
+            }
+        } catch (Exception ex) {
+            System.err.println("Phonetic candidate fetch failed: " + ex.getMessage());
+        }
+        return list;
+    }
+
+    // Once per run: turns the block off without the phonetic key table; keys are never computed here
+    private boolean preparePhoneticKeys(Connection conn) {
+        try {
+            if (!PhoneticKeyTable.exists(conn, cfg)) {
+                CoreLogStream.push("Phonetic blocking skipped: " + PhoneticKeyTable.tableName(table) +
+                        " not installed (run DataQualitySchemaTool).");
+                return false;
+            }
+            int stale = PhoneticKeyTable.staleCount(conn, cfg);
+            if (stale > 0) {
+                CoreLogStream.push("Phonetic blocking: " + stale + " changed master records have no key yet " +
+                        "(run DataQualitySchemaTool --refresh-phonetic).");
+            }
+            return true;
+        } catch (SQLException ex) {
+            System.err.println("Phonetic key check failed: " + ex.getMessage());
+            return false;
+        }
+    }
+
+    private static void free(Array arr) {
+        if (arr == null) return;
+        try {
+            arr.free();
+        } catch (SQLException ignored) {}
+    }
+}
@@ -0,0 +1,114 @@
+package com.dataquality.matching;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Near-duplicate clustering with the sorted-neighborhood method.
+ *
+ * Records are sorted by several blocking keys in turn; every record is compared only with the
+ * next (window - 1) records of each ordering, using the regular fuzzy-match thresholds. Pairs
+ * that match are merged with union-find, so the cost is O(passes * n * (log n + window))
+ * instead of O(n^2).
+ */
+public final class DuplicateClusterer {
+
+    /**
+     * Normalized values of one record (see {@link TextNormalizer}).
+     */
+    public static class Record {
+        final String name;
+        final String address;
+        final String city;
+        final String postal;
+
+        public Record(String name, String address, String city, String postal) {
+            this.name = name == null ? "" : name;
+            this.address = address == null ? "" : address;
+            this.city = city == null ? "" : city;
+            this.postal = postal == null ? "" : postal;
+        }
+    }
+
+    /** Blocking keys; each one gives near-duplicates a chance to end up next to each other. */
+    private static final List<Function<Record, String>> KEYS = Arrays.asList(
+            r -> r.name + "|" + r.postal,
+            r -> r.postal + "|" + r.address,
+            r -> r.address + "|" + r.city
+    );
+
+    private DuplicateClusterer() {}
+
+    /**
+     * Returns the cluster id of every record: 0 for records without a near-duplicate, otherwise
+     * 1..C numbered in order of first appearance. Null records and records without name or
+     * address are never clustered.
+     */
+    public static int[] cluster(List<Record> records, int window) {
+        int n = records.size();
+        int w = Math.max(2, window);
+
+        int[] parent = new int[n];
+        for (int i = 0; i < n; i++) parent[i] = i;
+
+        List<Integer> eligible = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            Record r = records.get(i);
+            if (r != null && !r.name.isEmpty() && !r.address.isEmpty()) eligible.add(i);
+        }
+
+        Integer[] order = eligible.toArray(new Integer[0]);
+        for (Function<Record, String> key : KEYS) {
+            String[] keys = new String[n];
+            for (int i : order) keys[i] = key.apply(records.get(i));
+            Arrays.sort(order, Comparator.comparing(i -> keys[i]));
+
+            for (int a = 0; a < order.length; a++) {
+                int i = order[a];
+                Record ri = records.get(i);
+                int end = Math.min(order.length, a + w);
+                for (int b = a + 1; b < end; b++) {
+                    int j = order[b];
+                    if (find(parent, i) == find(parent, j)) continue;
+                    Record rj = records.get(j);
+                    if (FuzzyMatcher.score(ri.name, ri.address, ri.city, rj.name, rj.address, rj.city)
+                            != FuzzyMatcher.NO_MATCH) {
+                        union(parent, i, j);
+                    }
+                }
+            }
+        }
+
+        // Number clusters with at least two members in order of first appearance.
+        int[] size = new int[n];
+        for (int i = 0; i < n; i++) size[find(parent, i)]++;
+
+        int[] idByRoot = new int[n];
+        int[] out = new int[n];
+        int next = 1;
+        for (int i = 0; i < n; i++) {
+            int root = find(parent, i);
+            if (size[root] < 2) continue;
+            if (idByRoot[root] == 0) idByRoot[root] = next++;
+            out[i] = idByRoot[root];
+        }
+        return out;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static void union(int[] parent, int a, int b) {
+        int ra = find(parent, a);
+        int rb = find(parent, b);
+        if (ra != rb) parent[Math.max(ra, rb)] = Math.min(ra, rb);
+    }
+}
@@ -0,0 +1,42 @@
+package com.dataquality.matching;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Two master-table records of the same block that pass the fuzzy-match thresholds.
+ * {@code a.id < b.id}.
+ */
+public class DuplicatePair {
+
+    public final String blockKey;
+    public final Candidate a;
+    public final Candidate b;
+    public final double score;
+
+    public DuplicatePair(String blockKey, Candidate a, Candidate b, double score) {
+        this.blockKey = blockKey;
+        this.a = a;
+        this.b = b;
+        this.score = score;
+    }
+
+    /**
+     * All matching pairs of one block. Every record is scored only against the block members
+     * the trigram count filter keeps for it, and each unordered pair is scored once.
+     */
+    public static List<DuplicatePair> findInBlock(String blockKey, List<Candidate> records) {
+        List<DuplicatePair> pairs = new ArrayList<>();
+        if (records.size() < 2) return pairs;
+
+        CandidateBlock block = new CandidateBlock(records);
+        for (Candidate a : records) {
+            for (Candidate b : block.prune(a.name, a.address)) {
+                if (b.id <= a.id) continue;
+                double score = FuzzyMatcher.score(a.name, a.address, a.city, b);
+                if (score != FuzzyMatcher.NO_MATCH) pairs.add(new DuplicatePair(blockKey, a, b, score));
+            }
+        }
+        return pairs;
+    }
+}
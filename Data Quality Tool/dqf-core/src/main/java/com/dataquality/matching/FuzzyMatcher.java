@@ -0,0 +1,49 @@
+package com.dataquality.matching;
+
+/**
+ * Name / address / city scoring used to decide whether two records are the same business.
+ *
+ * A pair matches when every field reaches its threshold; the combined score is the weighted
+ * sum of the three similarities. Fields are checked name first, then address, then city,
+ * and the remaining fields are skipped as soon as one misses its threshold.
+ */
+public final class FuzzyMatcher {
+
+    public static final double NAME_THRESHOLD = 80.0;
+    public static final double ADDR_THRESHOLD = 80.0;
+    public static final double CITY_THRESHOLD = 70.0;
+
+    public static final double NAME_WEIGHT = 0.45;
+    public static final double ADDR_WEIGHT = 0.45;
+    public static final double CITY_WEIGHT = 0.10;
+
+    /** Returned when a pair does not match. */
+    public static final double NO_MATCH = -1.0;
+
+    private FuzzyMatcher() {}
+
+    /**
+     * Combined score of a normalized input row against a candidate, or {@link #NO_MATCH}.
+     */
+    public static double score(String name, String address, String city, Candidate c) {
+        return score(name, address, city, c.name, c.address, c.city);
+    }
+
+    /**
+     * Combined score of two normalized records, or {@link #NO_MATCH}.
+     */
+    public static double score(String name1, String address1, String city1,
+                               String name2, String address2, String city2) {
+
+        double nameSim = SimilarityKernel.similarityAtLeast(name1, name2, NAME_THRESHOLD);
+        if (nameSim < 0) return NO_MATCH;
+
+        double addrSim = SimilarityKernel.similarityAtLeast(address1, address2, ADDR_THRESHOLD);
+        if (addrSim < 0) return NO_MATCH;
+
+        double citySim = SimilarityKernel.similarityAtLeast(city1, city2, CITY_THRESHOLD);
+        if (citySim < 0) return NO_MATCH;
+
+        return (nameSim * NAME_WEIGHT) + (addrSim * ADDR_WEIGHT) + (citySim * CITY_WEIGHT);
+    }
+}
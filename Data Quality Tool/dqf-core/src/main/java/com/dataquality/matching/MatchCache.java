@@ -0,0 +1,200 @@
+package com.dataquality.matching;
+
+import com.dataquality.config.ConfigReader;
+import com.dataquality.report.ReportCache;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Array;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Persistent cache of fuzzy-match results across runs, stored in dqf_match_cache.
+ *
+ * Entries map the normalized business key of an input row to the matched master id, DUNS and
+ * score. They are kept per scope: a hash of the master table, the match settings, the score
+ * thresholds, the standardization dictionary and {@link ReportCache#RULE_VERSION}, so a run with
+ * other settings never sees them. Each entry is stamped with the change counter of the master
+ * table in dqf_table_version at the time of the match and only counts as a hit while the counter
+ * is unchanged: any write to the master table invalidates all entries, including the ones of
+ * rows that had no match then and might have one now. Rows without a match are not cached.
+ *
+ * Lookups and stores are done for a window of rows at a time (see {@link CandidateMatcher#prefetch}).
+ * The table is created by {@link com.dataquality.main.DataQualitySchemaTool}; without it, or
+ * without the change counters, the cache is off.
+ */
+public class MatchCache {
+
+    private static final String TABLE = "dqf_match_cache";
+
+    private final String masterTable;
+    private final String scope;
+
+    public MatchCache(ConfigReader cfg) {
+        this.masterTable = cfg.getTableName();
+        this.scope = scope(cfg);
+    }
+
+    /**
+     * Creates dqf_match_cache if missing. Run once from
+     * {@link com.dataquality.main.DataQualitySchemaTool}, never from a validation run.
+     */
+    public static void install(Connection conn) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE TABLE IF NOT EXISTS " + TABLE + " (" +
+                    "scope TEXT NOT NULL, " +
+                    "business_key TEXT NOT NULL, " +
+                    "matched_id INTEGER NOT NULL, " +
+                    "dunsnumber TEXT, " +
+                    "score DOUBLE PRECISION NOT NULL, " +
+                    "master_version BIGINT NOT NULL, " +
+                    "updated_at TIMESTAMP NOT NULL DEFAULT now(), " +
+                    "PRIMARY KEY (scope, business_key))");
+        }
+    }
+
+    /** Whether dqf_match_cache exists. */
+    public static boolean exists(Connection conn) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT to_regclass(?) IS NOT NULL")) {
+            ps.setString(1, TABLE);
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    /**
+     * Current change counter of the master table, or null if the counters are not installed
+     * (then nothing can be cached safely). Read before the candidates of a window are fetched,
+     * so a match is never stamped with a version newer than the data it was computed from.
+     */
+    public Long masterVersion(Connection conn) {
+        return ReportCache.tableVersion(conn, masterTable);
+    }
+
+    /**
+     * Cached matches of {@code businessKeys} that are still valid at {@code version}, by key,
+     * with one query.
+     */
+    public Map<String, MatchResult> lookupAll(Connection conn, List<String> businessKeys, long version) {
+        Map<String, MatchResult> found = new HashMap<>();
+        if (businessKeys.isEmpty()) return found;
+
+        String sql =
+                "SELECT business_key, matched_id, dunsnumber, score FROM " + TABLE +
+                        " WHERE scope = ? AND master_version = ? AND business_key = ANY (?)";
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            Array keys = conn.createArrayOf("text", new LinkedHashSet<>(businessKeys).toArray());
+            ps.setString(1, scope);
+            ps.setLong(2, version);
+            ps.setArray(3, keys);
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    found.put(rs.getString(1), new MatchResult(rs.getInt(2), rs.getString(3), rs.getDouble(4)));
+                }
+            }
+        } catch (Exception ex) {
+            System.err.println("Match cache lookup failed: " + ex.getMessage());
+        }
+        return found;
+    }
+
+    /**
+     * Records fresh matches, stamped with {@code version}, as one batch.
+     */
+    public void storeAll(Connection conn, List<String> businessKeys, List<MatchResult> matches, long version) {
+        if (businessKeys.isEmpty()) return;
+
+        String sql =
+                "INSERT INTO " + TABLE + " (scope, business_key, matched_id, dunsnumber, score, master_version, updated_at) " +
+                        "VALUES (?, ?, ?, ?, ?, ?, now()) " +
+                        "ON CONFLICT (scope, business_key) DO UPDATE SET " +
+                        "matched_id = EXCLUDED.matched_id, " +
+                        "dunsnumber = EXCLUDED.dunsnumber, " +
+                        "score = EXCLUDED.score, " +
+                        "master_version = EXCLUDED.master_version, " +
+                        "updated_at = EXCLUDED.updated_at";
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            for (int i = 0; i < businessKeys.size(); i++) {
+                MatchResult match = matches.get(i);
+                ps.setString(1, scope);
+                ps.setString(2, businessKeys.get(i));
+                ps.setInt(3, match.id);
+                ps.setString(4, match.duns);
+                ps.setDouble(5, match.score);
+                ps.setLong(6, version);
+                ps.addBatch();
+            }
+            ps.executeBatch();
+        } catch (Exception ex) {
+            System.err.println("Match cache store failed: " + ex.getMessage());
+        }
+    }
+
+    /**
+     * Scope of the entries of a run: everything besides the row itself and the master data that
+     * decides its match.
+     */
+    static String scope(ConfigReader cfg) {
+        MessageDigest md;
+        try {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+
+        List<String> parts = new ArrayList<>();
+        parts.add(cfg.getTableName());
+        parts.add(cfg.getIdColumn());
+        parts.add(cfg.getCustomerNameColumn());
+        parts.add(cfg.getAddressLine1Column());
+        parts.add(cfg.getCityColumn());
+        parts.add(cfg.getCountryColumn());
+        parts.add(cfg.getPostalColumn());
+        parts.add(cfg.getDunsColumn());
+        parts.add(cfg.getMatchStrategy());
+        parts.add(String.valueOf(cfg.getTrgmTopK()));
+        parts.add(String.valueOf(cfg.getCandidateLimit()));
+        parts.add(String.valueOf(cfg.isNgramPruning()));
+        parts.add(String.valueOf(cfg.isPhoneticBlocking()));
+        parts.add(String.valueOf(cfg.getPhoneticBlockLimit()));
+        parts.add(String.valueOf(cfg.isCanonicalFastPath()));
+        parts.add(FuzzyMatcher.NAME_THRESHOLD + "," + FuzzyMatcher.ADDR_THRESHOLD + "," + FuzzyMatcher.CITY_THRESHOLD);
+        parts.add(FuzzyMatcher.NAME_WEIGHT + "," + FuzzyMatcher.ADDR_WEIGHT + "," + FuzzyMatcher.CITY_WEIGHT);
+        parts.add(ReportCache.RULE_VERSION);
+        for (String part : parts) {
+            md.update(String.valueOf(part).getBytes(StandardCharsets.UTF_8));
+            md.update((byte) 0);
+        }
+
+        String dictionary = cfg.getStandardizationDictionary();
+        if (cfg.isCanonicalFastPath() && dictionary != null && !dictionary.trim().isEmpty()
+                && new File(dictionary.trim()).isFile()) {
+            try {
+                md.update(Files.readAllBytes(Paths.get(dictionary.trim())));
+            } catch (IOException ex) {
+                md.update("unreadable".getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : md.digest()) hex.append(String.format("%02x", b));
+        return hex.toString();
+    }
+}
@@ -0,0 +1,17 @@
+package com.dataquality.matching;
+
+/**
+ * Outcome of a successful fuzzy match: the matched master record and its combined score.
+ */
+public class MatchResult {
+
+    public final int id;
+    public final String duns;
+    public final double score;
+
+    public MatchResult(int id, String duns, double score) {
+        this.id = id;
+        this.duns = duns;
+        this.score = score;
+    }
+}
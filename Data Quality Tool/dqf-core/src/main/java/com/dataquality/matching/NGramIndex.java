@@ -0,0 +1,89 @@
+package com.dataquality.matching;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Character trigram inverted index over one field of a candidate block.
+ *
+ * Used as a count filter: two strings within edit distance k share at least
+ * max(|s|,|t|) - q + 1 - k*q q-grams (multiset intersection), so any candidate below that
+ * bound cannot reach the similarity threshold and is dropped before the edit distance runs.
+ */
+final class NGramIndex {
+
+    static final int Q = 3;
+
+    /** gram -> [candidateIdx0, count0, candidateIdx1, count1, ...] */
+    private final Map<Long, int[]> postings = new HashMap<>();
+    private final int[] lengths;
+
+    NGramIndex(List<String> values) {
+        this.lengths = new int[values.size()];
+        Map<Long, IntPairs> build = new HashMap<>();
+
+        for (int i = 0; i < values.size(); i++) {
+            String v = values.get(i) == null ? "" : values.get(i);
+            lengths[i] = v.length();
+            for (Map.Entry<Long, Integer> g : grams(v).entrySet()) {
+                build.computeIfAbsent(g.getKey(), k -> new IntPairs()).add(i, g.getValue());
+            }
+        }
+        for (Map.Entry<Long, IntPairs> e : build.entrySet()) {
+            postings.put(e.getKey(), e.getValue().toArray());
+        }
+    }
+
+    /**
+     * Writes the number of q-grams {@code query} shares with every indexed value into {@code common}.
+     */
+    void commonCounts(String query, int[] common) {
+        Arrays.fill(common, 0, lengths.length, 0);
+        for (Map.Entry<Long, Integer> g : grams(query).entrySet()) {
+            int[] p = postings.get(g.getKey());
+            if (p == null) continue;
+            int qc = g.getValue();
+            for (int j = 0; j < p.length; j += 2) {
+                common[p[j]] += Math.min(qc, p[j + 1]);
+            }
+        }
+    }
+
+    /**
+     * False only if the count filter proves value {@code idx} cannot reach {@code thresholdPct} against a
+     * query of {@code queryLen} chars.
+     */
+    boolean mayMatch(int idx, int common, int queryLen, double thresholdPct) {
+        int maxLen = Math.max(queryLen, lengths[idx]);
+        int k = SimilarityKernel.maxAllowedDistance(maxLen, thresholdPct);
+        if (k < 0) return false;
+        int required = maxLen - Q + 1 - k * Q;
+        return common >= required;
+    }
+
+    int size() { return lengths.length; }
+
+    private static Map<Long, Integer> grams(String s) {
+        Map<Long, Integer> out = new HashMap<>();
+        for (int i = 0; i + Q <= s.length(); i++) {
+            long key = ((long) s.charAt(i) << 32) | ((long) s.charAt(i + 1) << 16) | s.charAt(i + 2);
+            out.merge(key, 1, Integer::sum);
+        }
+        return out;
+    }
+
+    private static final class IntPairs {
+        int[] data = new int[4];
+        int size = 0;
+
+        void add(int a, int b) {
+            if (size + 2 > data.length) data = Arrays.copyOf(data, data.length * 2);
+            data[size++] = a;
+            data[size++] = b;
+        }
+
+        int[] toArray() { return Arrays.copyOf(data, size); }
+    }
+}
@@ -0,0 +1,45 @@
+package com.dataquality.matching;
+
+import org.apache.commons.codec.language.DoubleMetaphone;
+
+/**
+ * Phonetic blocking key of a business name: Double Metaphone codes of its leading tokens.
+ *
+ * Spelling variants of the same name ("KATHERINE TRADING" / "CATHERINE TRADING") usually
+ * share the key, which makes it a useful secondary block when the postal code of the input
+ * row is wrong.
+ */
+public final class PhoneticKey {
+
+    private static final int LEADING_TOKENS = 2;
+    private static final int CODE_LENGTH = 6;
+
+    private static final ThreadLocal<DoubleMetaphone> ENCODER = ThreadLocal.withInitial(() -> {
+        DoubleMetaphone dm = new DoubleMetaphone();
+        dm.setMaxCodeLen(CODE_LENGTH);
+        return dm;
+    });
+
+    private PhoneticKey() {}
+
+    /**
+     * Returns the key of {@code name}, or "" if it has no usable token.
+     */
+    public static String of(String name) {
+        if (name == null || name.isEmpty()) return "";
+
+        DoubleMetaphone dm = ENCODER.get();
+        StringBuilder key = new StringBuilder();
+        int used = 0;
+
+        for (String token : name.toUpperCase().split("[^\\p{L}]+")) {
+            if (token.length() < 2) continue;
+            String code = dm.doubleMetaphone(token);
+            if (code == null || code.isEmpty()) continue;
+            if (used > 0) key.append(' ');
+            key.append(code);
+            if (++used == LEADING_TOKENS) break;
+        }
+        return key.toString();
+    }
+}
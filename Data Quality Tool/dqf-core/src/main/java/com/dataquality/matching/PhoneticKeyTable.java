@@ -0,0 +1,181 @@
+package com.dataquality.matching;
+
+import com.dataquality.config.ConfigReader;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Side table holding the {@link PhoneticKey} of every master record, so the phonetic secondary
+ * block is an index lookup instead of loading a whole country and encoding it in Java.
+ *
+ * The key is Double Metaphone as implemented by commons-codec, which PostgreSQL cannot compute
+ * itself. A row trigger on the master table therefore only keeps the side table in step: an
+ * insert, or a change of id, name or country, (re)sets the record's row with a NULL key, and a
+ * delete or truncate removes it. {@link #refresh} then encodes just those stale rows through a
+ * partial index. Table, index and trigger are created by
+ * {@link com.dataquality.main.DataQualitySchemaTool}, which also runs the refresh, on its own as
+ * a maintenance command (--refresh-phonetic) that can be scheduled. Validation runs only read the
+ * keys; records still waiting for theirs are not in the phonetic block.
+ */
+public final class PhoneticKeyTable {
+
+    private static final int FETCH_SIZE = 5000;
+    private static final int BATCH_SIZE = 1000;
+
+    private PhoneticKeyTable() {}
+
+    /** Name of the side table of master table {@code table}. */
+    public static String tableName(String table) {
+        return "dqf_phonetic_" + table.replaceAll("[^A-Za-z0-9_]", "_").toLowerCase();
+    }
+
+    /**
+     * Creates the side table, its indexes and the maintenance trigger on the master table if
+     * missing, marks all records without a key stale and encodes them. DDL on the master table:
+     * run once from {@link com.dataquality.main.DataQualitySchemaTool}.
+     */
+    public static int install(Connection conn, ConfigReader cfg) throws SQLException {
+        String table = cfg.getTableName();
+        String idCol = cfg.getIdColumn();
+        String nameCol = cfg.getCustomerNameColumn();
+        String countryCol = cfg.getCountryColumn();
+        String side = tableName(table);
+
+        try (Statement st = conn.createStatement()) {
+            String schema;
+            try (ResultSet rs = st.executeQuery("SELECT current_schema()")) {
+                rs.next();
+                schema = rs.getString(1);
+            }
+            String qualified = "\"" + schema + "\"." + side;
+
+            st.execute("CREATE TABLE IF NOT EXISTS " + side + " (" +
+                    "master_id INTEGER PRIMARY KEY, " +
+                    "country TEXT NOT NULL, " +
+                    "phonetic_key TEXT)");
+            // Tables of earlier installs kept the encoded name and required a key
+            st.execute("ALTER TABLE " + side + " DROP COLUMN IF EXISTS name");
+            st.execute("ALTER TABLE " + side + " ALTER COLUMN phonetic_key DROP NOT NULL");
+            st.execute("CREATE INDEX IF NOT EXISTS " + side + "_key ON " + side + " (country, phonetic_key)");
+            st.execute("CREATE INDEX IF NOT EXISTS " + side + "_stale ON " + side +
+                    " (master_id) WHERE phonetic_key IS NULL");
+
+            // Schema-qualified, so writers with another search_path still find the side table
+            st.execute("CREATE OR REPLACE FUNCTION " + side + "_mark() RETURNS trigger AS $$ " +
+                    "BEGIN " +
+                    "IF TG_OP = 'TRUNCATE' THEN TRUNCATE " + qualified + "; RETURN NULL; END IF; " +
+                    "IF TG_OP = 'DELETE' THEN " +
+                    "DELETE FROM " + qualified + " WHERE master_id = OLD." + idCol + "; RETURN NULL; END IF; " +
+                    "IF TG_OP = 'UPDATE' THEN IF OLD." + idCol + " IS DISTINCT FROM NEW." + idCol + " THEN " +
+                    "DELETE FROM " + qualified + " WHERE master_id = OLD." + idCol + "; END IF; END IF; " +
+                    "INSERT INTO " + qualified + " (master_id, country, phonetic_key) " +
+                    "VALUES (NEW." + idCol + ", UPPER(COALESCE(NEW." + countryCol + ",'')), NULL) " +
+                    "ON CONFLICT (master_id) DO UPDATE SET country = EXCLUDED.country, phonetic_key = NULL; " +
+                    "RETURN NULL; " +
+                    "END $$ LANGUAGE plpgsql");
+        }
+
+        String exists = "SELECT 1 FROM pg_trigger WHERE tgrelid = to_regclass(?) AND tgname = ?";
+        String[][] triggers = {
+                {side + "_mark", "AFTER INSERT OR DELETE OR UPDATE OF " + idCol + ", " + nameCol + ", " + countryCol +
+                        " ON " + table + " FOR EACH ROW"},
+                {side + "_truncate", "AFTER TRUNCATE ON " + table + " FOR EACH STATEMENT"}};
+        for (String[] trigger : triggers) {
+            try (PreparedStatement ps = conn.prepareStatement(exists)) {
+                ps.setString(1, table);
+                ps.setString(2, trigger[0]);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) continue;
+                }
+            }
+            try (Statement st = conn.createStatement()) {
+                st.execute("CREATE TRIGGER " + trigger[0] + " " + trigger[1] +
+                        " EXECUTE FUNCTION " + side + "_mark()");
+            }
+        }
+
+        // Records written before the trigger existed
+        try (Statement st = conn.createStatement()) {
+            st.executeUpdate("INSERT INTO " + side + " (master_id, country, phonetic_key) " +
+                    "SELECT t." + idCol + ", UPPER(COALESCE(t." + countryCol + ",'')), NULL FROM " + table + " t " +
+                    "ON CONFLICT (master_id) DO NOTHING");
+        }
+        return refresh(conn, cfg);
+    }
+
+    /** Whether the side table of the configured master table exists. */
+    public static boolean exists(Connection conn, ConfigReader cfg) throws SQLException {
+        try (PreparedStatement ps = conn.prepareStatement("SELECT to_regclass(?) IS NOT NULL")) {
+            ps.setString(1, tableName(cfg.getTableName()));
+            try (ResultSet rs = ps.executeQuery()) {
+                return rs.next() && rs.getBoolean(1);
+            }
+        }
+    }
+
+    /** Number of records the trigger marked stale since the last {@link #refresh}. */
+    public static int staleCount(Connection conn, ConfigReader cfg) throws SQLException {
+        try (Statement st = conn.createStatement();
+             ResultSet rs = st.executeQuery("SELECT count(*) FROM " + tableName(cfg.getTableName()) +
+                     " WHERE phonetic_key IS NULL")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    /**
+     * Encodes the records the trigger marked stale and returns the number of keys written.
+     * Records without a usable name token get an empty key and never match. Maintenance work:
+     * run from {@link com.dataquality.main.DataQualitySchemaTool}, not from a validation run.
+     */
+    public static int refresh(Connection conn, ConfigReader cfg) throws SQLException {
+        String table = cfg.getTableName();
+        String idCol = cfg.getIdColumn();
+        String nameCol = cfg.getCustomerNameColumn();
+        String side = tableName(table);
+
+        String stale =
+                "SELECT k.master_id, t." + nameCol +
+                        " FROM " + side + " k JOIN " + table + " t ON t." + idCol + " = k.master_id" +
+                        " WHERE k.phonetic_key IS NULL";
+        // A record changed again meanwhile was set back to NULL by the trigger and stays stale
+        String update =
+                "UPDATE " + side + " SET phonetic_key = ? WHERE master_id = ? AND phonetic_key IS NULL";
+
+        int written = 0;
+        // A cursor-based fetch needs autocommit off in the PostgreSQL driver.
+        boolean autoCommit = conn.getAutoCommit();
+        try {
+            if (autoCommit) conn.setAutoCommit(false);
+
+            try (PreparedStatement read = conn.prepareStatement(stale);
+                 PreparedStatement write = conn.prepareStatement(update)) {
+                read.setFetchSize(FETCH_SIZE);
+                int pending = 0;
+                try (ResultSet rs = read.executeQuery()) {
+                    while (rs.next()) {
+                        write.setString(1, PhoneticKey.of(rs.getString(2)));
+                        write.setInt(2, rs.getInt(1));
+                        write.addBatch();
+                        written++;
+                        if (++pending == BATCH_SIZE) {
+                            write.executeBatch();
+                            pending = 0;
+                        }
+                    }
+                }
+                if (pending > 0) write.executeBatch();
+            }
+            if (autoCommit) conn.commit();
+        } catch (SQLException ex) {
+            if (autoCommit) conn.rollback();
+            throw ex;
+        } finally {
+            if (autoCommit) conn.setAutoCommit(true);
+        }
+        return written;
+    }
+}
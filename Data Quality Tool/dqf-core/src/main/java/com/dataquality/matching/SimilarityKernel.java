@@ -0,0 +1,238 @@
+package com.dataquality.matching;
+
+/**
+ * Threshold-aware edit-distance kernel used by the fuzzy matcher.
+ *
+ * Similarity is defined as before: (1 - levenshtein / maxLength) * 100, floored at 0.
+ * A similarity threshold therefore fixes the largest distance that can still pass, which lets
+ * the kernel stop as soon as that distance is exceeded:
+ *
+ * - if the shorter string has at most 64 chars, Myers' bit-parallel algorithm (Hyyro's
+ *   formulation) computes one column per text character in a handful of word operations;
+ * - otherwise a banded DP (Ukkonen) only fills the cells within the allowed distance of the
+ *   diagonal and aborts when a whole row exceeds it.
+ *
+ * Work buffers are thread-local and reused, so a comparison does not allocate.
+ */
+public final class SimilarityKernel {
+
+    private static final int WORD = 64;
+    private static final int INF = Integer.MAX_VALUE / 2;
+
+    private static final ThreadLocal<Buffers> BUFFERS = ThreadLocal.withInitial(Buffers::new);
+
+    private SimilarityKernel() {}
+
+    /**
+     * Full similarity percentage, no cut-off.
+     */
+    public static double similarityPercent(String a, String b) {
+        if (a == null) a = "";
+        if (b == null) b = "";
+        int max = Math.max(a.length(), b.length());
+        if (max == 0) return 100.0;
+        return toPercent(boundedDistance(a, b, max), max);
+    }
+
+    /**
+     * Similarity percentage if it reaches {@code thresholdPct}, otherwise -1.
+     * Returns exactly the value {@link #similarityPercent} would for passing pairs.
+     */
+    public static double similarityAtLeast(String a, String b, double thresholdPct) {
+        if (a == null) a = "";
+        if (b == null) b = "";
+        int max = Math.max(a.length(), b.length());
+        if (max == 0) return thresholdPct <= 100.0 ? 100.0 : -1;
+
+        int k = maxAllowedDistance(max, thresholdPct);
+        if (k < 0) return -1;
+
+        int d = boundedDistance(a, b, k);
+        return d > k ? -1 : toPercent(d, max);
+    }
+
+    /**
+     * Largest edit distance whose similarity over {@code maxLen} chars still reaches
+     * {@code thresholdPct}; -1 if even an exact match would not.
+     */
+    public static int maxAllowedDistance(int maxLen, double thresholdPct) {
+        if (maxLen <= 0) return thresholdPct <= 100.0 ? 0 : -1;
+
+        int k = (int) Math.floor(maxLen * (100.0 - thresholdPct) / 100.0);
+        if (k > maxLen) k = maxLen;
+        if (k < 0) k = 0;
+
+        // Settle floating-point edge cases with the exact comparison the scorer uses.
+        while (k >= 0 && toPercent(k, maxLen) < thresholdPct) k--;
+        while (k < maxLen && toPercent(k + 1, maxLen) >= thresholdPct) k++;
+        return k;
+    }
+
+    /**
+     * Levenshtein distance of {@code a} and {@code b} if it is at most {@code k}, otherwise {@code k + 1}.
+     */
+    public static int boundedDistance(String a, String b, int k) {
+        if (k < 0) return 0;
+
+        // Pattern = shorter string, text = longer string.
+        String p = a.length() <= b.length() ? a : b;
+        String t = p == a ? b : a;
+        int m = p.length();
+        int n = t.length();
+
+        if (n - m > k) return k + 1;
+        if (m == 0) return n;
+        if (p.equals(t)) return 0;
+
+        return m <= WORD ? myers(p, t, k) : banded(p, t, k);
+    }
+
+    private static double toPercent(int dist, int max) {
+        double sim = (1.0 - (double) dist / max) * 100.0;
+        return Math.max(sim, 0.0);
+    }
+
+    // -------------------------------------------------------------
+    // Myers / Hyyro bit-parallel edit distance (pattern <= 64 chars)
+    // -------------------------------------------------------------
+
+    private static int myers(String p, String t, int k) {
+        Buffers buf = BUFFERS.get();
+        int m = p.length();
+        int n = t.length();
+
+        buf.loadPattern(p);
+        try {
+            long pv = (m == WORD) ? -1L : (1L << m) - 1;
+            long mv = 0L;
+            long last = 1L << (m - 1);
+            int score = m;
+
+            for (int j = 0; j < n; j++) {
+                long eq = buf.peq(t.charAt(j));
+                long xv = eq | mv;
+                long xh = (((eq & pv) + pv) ^ pv) | eq;
+                long ph = mv | ~(xh | pv);
+                long mh = pv & xh;
+
+                if ((ph & last) != 0) score++;
+                else if ((mh & last) != 0) score--;
+
+                // The remaining text chars can lower the score by at most one each.
+                if (score - (n - j - 1) > k) return k + 1;
+
+                ph = (ph << 1) | 1L;
+                mh = mh << 1;
+                pv = mh | ~(xv | ph);
+                mv = ph & xv;
+            }
+            return score <= k ? score : k + 1;
+        } finally {
+            buf.clearPattern(p);
+        }
+    }
+
+    // -------------------------------------------------------------
+    // Banded DP with cut-off (longer strings)
+    // -------------------------------------------------------------
+
+    private static int banded(String p, String t, int k) {
+        Buffers buf = BUFFERS.get();
+        int m = p.length();
+        int n = t.length();
+        buf.ensureRows(m + 2);
+        int[] prev = buf.rowA;
+        int[] curr = buf.rowB;
+
+        int init = Math.min(m, k);
+        for (int j = 0; j <= init; j++) prev[j] = j;
+        if (init + 1 <= m) prev[init + 1] = INF;
+
+        for (int i = 1; i <= n; i++) {
+            int lo = Math.max(1, i - k);
+            int hi = Math.min(m, i + k);
+            char ct = t.charAt(i - 1);
+
+            curr[lo - 1] = (lo == 1) ? i : INF;
+            int rowMin = curr[lo - 1];
+
+            for (int j = lo; j <= hi; j++) {
+                int v = prev[j - 1] + (ct == p.charAt(j - 1) ? 0 : 1);
+                int del = curr[j - 1] + 1;
+                if (del < v) v = del;
+                int ins = prev[j] + 1;
+                if (ins < v) v = ins;
+                curr[j] = v;
+                if (v < rowMin) rowMin = v;
+            }
+            if (hi + 1 <= m) curr[hi + 1] = INF;
+
+            if (rowMin > k) return k + 1;
+
+            int[] tmp = prev; prev = curr; curr = tmp;
+        }
+        return prev[m] <= k ? prev[m] : k + 1;
+    }
+
+    // -------------------------------------------------------------
+    // Thread-local work buffers
+    // -------------------------------------------------------------
+
+    private static final class Buffers {
+        // Match masks for Latin-1 chars; other chars go to a small side table.
+        final long[] peqLatin = new long[256];
+        final char[] extChars = new char[WORD];
+        final long[] extMasks = new long[WORD];
+        int extCount = 0;
+
+        int[] rowA = new int[128];
+        int[] rowB = new int[128];
+
+        void loadPattern(String p) {
+            for (int i = 0; i < p.length(); i++) {
+                char c = p.charAt(i);
+                long bit = 1L << i;
+                if (c < 256) {
+                    peqLatin[c] |= bit;
+                } else {
+                    int slot = findExt(c);
+                    if (slot < 0) {
+                        slot = extCount++;
+                        extChars[slot] = c;
+                        extMasks[slot] = 0L;
+                    }
+                    extMasks[slot] |= bit;
+                }
+            }
+        }
+
+        void clearPattern(String p) {
+            for (int i = 0; i < p.length(); i++) {
+                char c = p.charAt(i);
+                if (c < 256) peqLatin[c] = 0L;
+            }
+            extCount = 0;
+        }
+
+        long peq(char c) {
+            if (c < 256) return peqLatin[c];
+            int slot = findExt(c);
+            return slot < 0 ? 0L : extMasks[slot];
+        }
+
+        private int findExt(char c) {
+            for (int i = 0; i < extCount; i++) {
+                if (extChars[i] == c) return i;
+            }
+            return -1;
+        }
+
+        void ensureRows(int size) {
+            if (rowA.length < size) {
+                int cap = Math.max(size, rowA.length * 2);
+                rowA = new int[cap];
+                rowB = new int[cap];
+            }
+        }
+    }
+}
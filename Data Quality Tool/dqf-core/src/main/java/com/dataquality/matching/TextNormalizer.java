@@ -0,0 +1,37 @@
+package com.dataquality.matching;
+
+import java.util.regex.Pattern;
+
+/**
+ * String normalization shared by the fuzzy matcher, the candidate sources and the
+ * uniqueness key. Input rows and master records must go through the same functions,
+ * otherwise their similarity scores are not comparable.
+ */
+public final class TextNormalizer {
+
+    private static final Pattern POSTAL_SEPARATORS = Pattern.compile("[\\s\\-]+");
+    private static final Pattern PUNCT_AND_SPACES = Pattern.compile("[\\s\\p{Punct}]+");
+
+    private TextNormalizer() {}
+
+    public static String normalizePostal(String p) {
+        if (p == null) return "";
+        return POSTAL_SEPARATORS.matcher(p).replaceAll("").trim().toUpperCase();
+    }
+
+    /**
+     * Same key the candidate SQL builds with REPLACE(REPLACE(UPPER(COALESCE(postal,'')),' ',''),'-','').
+     */
+    public static String sqlPostalKey(String p) {
+        if (p == null) return "";
+        return p.toUpperCase().replace(" ", "").replace("-", "");
+    }
+
+    public static String normalizeAndUpper(String s) {
+        if (s == null) return "";
+        // Removes punctuation and multiple spaces, then uppercases
+        return PUNCT_AND_SPACES.matcher(s).replaceAll(" ").trim().toUpperCase();
+    }
+
+    public static String safeUpper(String s) { return s == null ? "" : s.trim().toUpperCase(); }
+}
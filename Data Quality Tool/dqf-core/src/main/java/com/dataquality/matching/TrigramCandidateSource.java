@@ -0,0 +1,154 @@
+package com.dataquality.matching;
+
+import com.dataquality.config.ConfigReader;
+import com.dataquality.common.CoreLogStream;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Server-side candidate ranking with PostgreSQL's pg_trgm extension.
+ *
+ * Instead of pulling a whole postal block over JDBC, the database returns the top-k records of
+ * the country whose name or address is trigram-similar to the input row (GIN trigram indexes
+ * make the % operator an index scan). Only those few candidates are confirmed with the Java-side
+ * Levenshtein scoring.
+ *
+ * Enabled with Match_strategy = TRGM in userfile.xlsx; the extension and indexes are installed
+ * once by DataQualitySchemaTool.
+ */
+public class TrigramCandidateSource {
+
+    private final String table;
+    private final String idCol;
+    private final String dunsCol;
+    private final String nameCol;
+    private final String addrCol;
+    private final String cityCol;
+    private final String countryCol;
+    private final double similarityThreshold;
+    private final CandidateCache cache;
+
+    public TrigramCandidateSource(ConfigReader cfg, CandidateCache cache) {
+        this.table = cfg.getTableName();
+        this.idCol = cfg.getIdColumn();
+        this.dunsCol = cfg.getDunsColumn();
+        this.nameCol = cfg.getCustomerNameColumn();
+        this.addrCol = cfg.getAddressLine1Column();
+        this.cityCol = cfg.getCityColumn();
+        this.countryCol = cfg.getCountryColumn();
+        this.similarityThreshold = cfg.getTrgmSimilarityThreshold();
+        this.cache = cache;
+    }
+
+    /**
+     * Creates the pg_trgm extension and the GIN trigram indexes on name and address if missing.
+     * The indexes are built CONCURRENTLY, so writers are not blocked while they build;
+     * {@code conn} must be in autocommit mode. One-time setup, run from
+     * {@link com.dataquality.main.DataQualitySchemaTool}, never from a validation run.
+     */
+    public static void installIndexes(Connection conn, ConfigReader cfg) throws SQLException {
+        String table = cfg.getTableName();
+        String prefix = indexPrefix(table);
+        try (Statement st = conn.createStatement()) {
+            st.execute("CREATE EXTENSION IF NOT EXISTS pg_trgm");
+            st.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + prefix + "_name ON " + table +
+                    " USING gin (" + cfg.getCustomerNameColumn() + " gin_trgm_ops)");
+            st.execute("CREATE INDEX CONCURRENTLY IF NOT EXISTS " + prefix + "_addr ON " + table +
+                    " USING gin (" + cfg.getAddressLine1Column() + " gin_trgm_ops)");
+        }
+    }
+
+    /**
+     * Checks that pg_trgm is installed and sets the session's similarity threshold for the %
+     * operator. Runs no DDL: without the extension this returns false and the caller falls back
+     * to postal blocks; missing indexes are only logged (queries work, just without index support).
+     */
+    public boolean prepare(Connection conn) {
+        String check = "SELECT EXISTS (SELECT 1 FROM pg_extension WHERE extname = 'pg_trgm'), " +
+                "(SELECT count(*) FROM pg_indexes WHERE indexname IN (?, ?))";
+        try (PreparedStatement ps = conn.prepareStatement(check)) {
+            String prefix = indexPrefix(table);
+            ps.setString(1, prefix + "_name");
+            ps.setString(2, prefix + "_addr");
+            try (ResultSet rs = ps.executeQuery()) {
+                rs.next();
+                if (!rs.getBoolean(1)) {
+                    CoreLogStream.push("pg_trgm not installed (run DataQualitySchemaTool).");
+                    return false;
+                }
+                if (rs.getInt(2) < 2) {
+                    CoreLogStream.push("pg_trgm indexes missing on " + table + " (run DataQualitySchemaTool); queries will be slow.");
+                }
+            }
+        } catch (SQLException ex) {
+            CoreLogStream.push("pg_trgm check failed: " + ex.getMessage());
+            return false;
+        }
+
+        // SET takes no bind parameters; the threshold is a number, so it is safe to inline
+        try (Statement st = conn.createStatement()) {
+            st.execute("SET pg_trgm.similarity_threshold = " + String.format(Locale.ROOT, "%.4f", similarityThreshold));
+        } catch (SQLException ex) {
+            CoreLogStream.push("pg_trgm threshold not set: " + ex.getMessage());
+        }
+        return true;
+    }
+
+    // Index names of a table: dqf_trgm_<table>_name / _addr
+    private static String indexPrefix(String table) {
+        return "dqf_trgm_" + table.replaceAll("[^A-Za-z0-9_]", "_").toLowerCase();
+    }
+
+    /**
+     * Top-k records of the country ranked by trigram similarity of name or address.
+     */
+    public List<Candidate> fetchTopK(Connection conn, Set<String> countryVariants,
+                                     String name, String address, int k) {
+
+        List<Candidate> list = new ArrayList<>();
+        if (countryVariants == null || countryVariants.isEmpty()) return list;
+
+        StringBuilder in = new StringBuilder();
+        for (int i = 0; i < countryVariants.size(); i++) {
+            if (i > 0) in.append(",");
+            in.append("?");
+        }
+
+        String sql =
+                "SELECT " + idCol + ", " + dunsCol + ", " + nameCol + ", " + addrCol + ", " + cityCol +
+                        " FROM " + table +
+                        " WHERE UPPER(COALESCE(" + countryCol + ",'') ) IN (" + in + ")" +
+                        " AND (" + nameCol + " % ? OR " + addrCol + " % ?)" +
+                        " ORDER BY GREATEST(similarity(" + nameCol + ", ?), similarity(" + addrCol + ", ?)) DESC" +
+                        " LIMIT " + k;
+
+        try (PreparedStatement ps = conn.prepareStatement(sql)) {
+            int idx = 1;
+            for (String c : countryVariants) ps.setString(idx++, c.toUpperCase());
+            ps.setString(idx++, name);
+            ps.setString(idx++, address);
+            ps.setString(idx++, name);
+            ps.setString(idx, address);
+
+            try (ResultSet rs = ps.executeQuery()) {
+                while (rs.next()) {
+                    int id = rs.getInt(1);
+                    list.add(cache != null
+                            ? cache.get(id, rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5))
+                            : Candidate.fromRaw(id, rs.getString(2), rs.getString(3), rs.getString(4), rs.getString(5)));
+                }
+            }
+        } catch (Exception ex) {
+            System.err.println("Trigram candidate fetch failed: " + ex.getMessage());
+        }
+        return list;
+    }
+}
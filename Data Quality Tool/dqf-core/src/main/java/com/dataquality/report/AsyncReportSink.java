@@ -0,0 +1,123 @@
+package com.dataquality.report;
+
+import com.dataquality.report.ExcelReportGenerator.ValidationResult;
+
+import java.io.IOException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * Runs another sink on its own thread. The run loop only enqueues results; a bounded queue
+ * keeps memory flat and slows the producer down if the sink cannot keep up. Formatting,
+ * compression and the final write (e.g. the Excel summary) happen on the sink thread.
+ */
+public class AsyncReportSink implements ReportSink {
+
+    private static final int QUEUE_CAPACITY = 4096;
+
+    // Marks the end of the results
+    private static final Object END = new Object();
+
+    private final ReportSink delegate;
+    private final BlockingQueue<Object> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+    private final Thread thread;
+
+    private volatile Throwable failure = null;
+    private volatile boolean aborted = false;
+    private boolean ended = false;
+
+    public AsyncReportSink(ReportSink delegate, String name) {
+        this.delegate = delegate;
+        this.thread = new Thread(this::drain, "dqf-report-" + name);
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    private void drain() {
+        try {
+            while (true) {
+                Object o = queue.take();
+                if (o == END || aborted) break;
+                if (failure != null) continue; // keep consuming so the producer is not blocked
+
+                try {
+                    delegate.write((ValidationResult) o);
+                } catch (Throwable t) {
+                    failure = t; // the producer sees it on its next write
+                }
+            }
+            if (!aborted && failure == null) delegate.finish();
+        } catch (Throwable t) {
+            if (failure == null) failure = t;
+        }
+    }
+
+    @Override
+    public void write(ValidationResult r) throws IOException {
+        checkFailure();
+        try {
+            queue.put(r);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while writing " + delegate.getPath(), e);
+        }
+    }
+
+    /**
+     * Signals the end of the results without waiting; see {@link #awaitFinished()}.
+     */
+    public void end() throws IOException {
+        if (ended) return;
+        ended = true;
+        try {
+            queue.put(END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while finishing " + delegate.getPath(), e);
+        }
+    }
+
+    /**
+     * Waits until the sink thread has written and finished the output.
+     */
+    public void awaitFinished() throws IOException {
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while finishing " + delegate.getPath(), e);
+        }
+        checkFailure();
+    }
+
+    @Override
+    public void finish() throws IOException {
+        end();
+        awaitFinished();
+    }
+
+    @Override
+    public String getPath() { return delegate.getPath(); }
+
+    @Override
+    public void close() throws IOException {
+        if (thread.isAlive()) {
+            aborted = true;
+            queue.clear();
+            queue.offer(END);
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        delegate.close();
+    }
+
+    private void checkFailure() throws IOException {
+        Throwable t = failure;
+        if (t == null) return;
+        if (t instanceof IOException) throw (IOException) t;
+        throw new IOException("Report sink " + delegate.getPath() + " failed: " + t.getMessage(), t);
+    }
+}
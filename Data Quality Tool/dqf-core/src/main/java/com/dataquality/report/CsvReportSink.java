@@ -0,0 +1,69 @@
+package com.dataquality.report;
+
+import com.dataquality.report.ExcelReportGenerator.ValidationResult;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * RFC 4180 CSV report with the same columns as the Excel data sheet.
+ */
+public class CsvReportSink extends TextReportSink {
+
+    public CsvReportSink(String filePath, boolean gzip) throws IOException {
+        super(filePath, gzip);
+    }
+
+    public CsvReportSink(OutputStream out, boolean gzip) throws IOException {
+        super(out, gzip);
+    }
+
+    @Override
+    protected String header() {
+        return "MDMID,Customer Name,Address Line 1,City,Region,Country,Postal Code,DUNS Number," +
+                "Name Status,Address Status,Postal Status,Region Status,Record Validation,Remarks,Duplicate Cluster";
+    }
+
+    @Override
+    protected void format(ValidationResult r, StringBuilder sb) {
+        if (r.MDMID != 0) sb.append(r.MDMID);
+        field(sb, r.CustomerName);
+        field(sb, r.AddressLine1);
+        field(sb, r.city);
+        field(sb, r.region);
+        field(sb, r.country);
+        field(sb, r.postal);
+        field(sb, r.dunsnumber);
+        field(sb, r.nameStatus());
+        field(sb, r.addressStatus());
+        field(sb, r.postalStatus());
+        field(sb, r.regionStatus());
+        field(sb, r.recordValidation());
+        field(sb, r.remarks());
+        sb.append(',');
+        if (r.duplicateCluster != 0) sb.append(r.duplicateCluster);
+    }
+
+    private static void field(StringBuilder sb, String value) {
+        sb.append(',');
+        String v = ns(value);
+
+        boolean quote = false;
+        for (int i = 0; i < v.length() && !quote; i++) {
+            char c = v.charAt(i);
+            quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+        }
+        if (!quote) {
+            sb.append(v);
+            return;
+        }
+
+        sb.append('"');
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            if (c == '"') sb.append('"');
+            sb.append(c);
+        }
+        sb.append('"');
+    }
+}
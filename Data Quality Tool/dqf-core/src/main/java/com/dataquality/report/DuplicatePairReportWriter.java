@@ -0,0 +1,103 @@
+package com.dataquality.report;
+
+import com.dataquality.matching.DuplicatePair;
+
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.Font;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Streaming Excel report of master-table duplicate pairs.
+ *
+ * Rows are flushed to a temp file as they are added (SXSSF), so the report does not hold the
+ * pairs in memory. Excel sheets end at 1,048,576 rows; pairs beyond that are only in the
+ * result table and the report says so in its last row.
+ *
+ * The finished workbook is written next to its target under a temp name and renamed over it,
+ * so a download of the previous report never sees a half-written file.
+ */
+public class DuplicatePairReportWriter implements AutoCloseable {
+
+    private static final int MAX_ROWS = 1_048_575;
+
+    private static final String[] HEADERS = {
+            "Block (Country|Postal)", "Score",
+            "MDM ID A", "DUNS A", "Customer Name A", "Address A", "City A",
+            "MDM ID B", "DUNS B", "Customer Name B", "Address B", "City B"
+    };
+
+    private final SXSSFWorkbook wb = new SXSSFWorkbook(100);
+    private final Sheet sheet;
+    private int nextRow = 1;
+    private long dropped = 0;
+
+    public DuplicatePairReportWriter() {
+        sheet = wb.createSheet("DuplicatePairs");
+
+        Font bold = wb.createFont();
+        bold.setBold(true);
+        CellStyle headerStyle = wb.createCellStyle();
+        headerStyle.setFont(bold);
+
+        Row header = sheet.createRow(0);
+        for (int i = 0; i < HEADERS.length; i++) {
+            header.createCell(i).setCellValue(HEADERS[i]);
+            header.getCell(i).setCellStyle(headerStyle);
+            sheet.setColumnWidth(i, (i == 1 ? 10 : 24) * 256);
+        }
+        sheet.createFreezePane(0, 1);
+    }
+
+    public void add(DuplicatePair p) {
+        if (nextRow >= MAX_ROWS) {
+            dropped++;
+            return;
+        }
+        Row row = sheet.createRow(nextRow++);
+        int c = 0;
+        row.createCell(c++).setCellValue(p.blockKey);
+        row.createCell(c++).setCellValue(Math.round(p.score * 100.0) / 100.0);
+        row.createCell(c++).setCellValue(p.a.id);
+        row.createCell(c++).setCellValue(p.a.duns == null ? "" : p.a.duns);
+        row.createCell(c++).setCellValue(p.a.name);
+        row.createCell(c++).setCellValue(p.a.address);
+        row.createCell(c++).setCellValue(p.a.city);
+        row.createCell(c++).setCellValue(p.b.id);
+        row.createCell(c++).setCellValue(p.b.duns == null ? "" : p.b.duns);
+        row.createCell(c++).setCellValue(p.b.name);
+        row.createCell(c++).setCellValue(p.b.address);
+        row.createCell(c).setCellValue(p.b.city);
+    }
+
+    public void write(String filePath) throws IOException {
+        if (dropped > 0) {
+            sheet.createRow(nextRow).createCell(0).setCellValue(
+                    dropped + " more pairs not shown; see table dqf_duplicate_pairs.");
+        }
+        Path target = Paths.get(filePath).toAbsolutePath();
+        Path tmp = Files.createTempFile(target.getParent(), "." + target.getFileName(), ".tmp");
+        try {
+            try (OutputStream out = Files.newOutputStream(tmp)) {
+                wb.write(out);
+            }
+            Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        wb.dispose();
+        wb.close();
+    }
+}
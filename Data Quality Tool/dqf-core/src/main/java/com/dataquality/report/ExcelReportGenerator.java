@@ -1,22 +1,46 @@
 package com.dataquality.report;
 
-import org.apache.poi.ss.usermodel.*;
+import com.dataquality.common.RunContext;
 
-import org.apache.poi.xssf.usermodel.*;
+import java.util.List;
 
-import org.apache.poi.xddf.usermodel.chart.*;
+public class ExcelReportGenerator {
 
-import org.apache.poi.xddf.usermodel.*;
+    public static final String VALID = "Valid";
 
-import org.apache.poi.ss.util.CellRangeAddress;
+    public static final String INVALID = "Invalid";
 
-import java.io.FileOutputStream;
+    /**
+     * Compact result of one validated record.
+     *
+     * The four field checks and the record verdict are bits of {@link #status}; the failure
+     * reasons are rendered into one remarks string, only for a record that failed a check, and
+     * the fuzzy-match outcome is kept as outcome + score. The "Valid"/"Invalid" strings and the
+     * match remarks are rendered only by the sinks (report, database). Within a run, repeated
+     * values (city, region, country, postal) share one String instance (the run's
+     * {@link ValueInterner}).
+     */
+    public static class ValidationResult {
 
-import java.util.*;
+        // Status bits
 
-public class ExcelReportGenerator {
+        public static final int NAME_VALID = 1;
 
-    public static class ValidationResult {
+        public static final int ADDRESS_VALID = 1 << 1;
+
+        public static final int POSTAL_VALID = 1 << 2;
+
+        public static final int REGION_VALID = 1 << 3;
+
+        public static final int RECORD_VALID = 1 << 4;
+
+        // Fuzzy-match outcome (Excel mode)
+
+        public static final byte MATCH_NONE = 0;
+
+        public static final byte MATCH_FOUND = 1;
+
+        public static final byte MATCH_NOT_FOUND = 2;
 
         public final int MDMID;
 
@@ -34,18 +58,25 @@ public class ExcelReportGenerator {
 
         public final String dunsnumber;
 
-        public final String nameStatus;
+        public final byte status;
+
+        public final byte matchOutcome;
 
-        public final String addressStatus;
+        public final double matchScore;
 
-        public final String postalStatus;
+        // 0 = no near-duplicate in the same upload, otherwise the cluster the row belongs to
 
-        public final String regionStatus;
+        public final int duplicateCluster;
 
-        public final String recordValidation;
+        // Rendered failure reasons, null if every check passed (so valid rows carry nothing)
 
-        public final String remarks;
+        private final String reasons;
 
+        /**
+         * Result without fuzzy matching (DB mode, listener).
+         *
+         * @param nameReason failure reason of the name check, null if valid (same for the others)
+         */
         public ValidationResult(
 
                 int MDMID, String CustomerName, String AddressLine1,
@@ -54,386 +85,223 @@ public class ExcelReportGenerator {
 
                 String dunsnumber,
 
-                String nameStatus, String addressStatus, String postalStatus,
-
-                String regionStatus, String recordValidation, String remarks
+                String nameReason, String addressReason, String regionReason, String postalReason
 
         ) {
 
-            this.MDMID = MDMID;
-
-            this.CustomerName = CustomerName;
-
-            this.AddressLine1 = AddressLine1;
-
-            this.city = city;
-
-            this.region = region;
-
-            this.country = country;
-
-            this.postal = postal;
-
-            this.dunsnumber = dunsnumber;
-
-            this.nameStatus = nameStatus;
-
-            this.addressStatus = addressStatus;
-
-            this.postalStatus = postalStatus;
+            this(MDMID, CustomerName, AddressLine1, city, region, country, postal, dunsnumber,
 
-            this.regionStatus = regionStatus;
-
-            this.recordValidation = recordValidation;
-
-            this.remarks = remarks;
+                    nameReason, addressReason, regionReason, postalReason, MATCH_NONE, 0.0, 0);
 
         }
 
-    }
-
-    // ---------------- GENERATE REPORT --------------------
-
-    public static void generateExcelReport(List<ValidationResult> rows, String filePath) throws Exception {
-
-        try (XSSFWorkbook wb = new XSSFWorkbook()) {
-
-            XSSFSheet dataSheet = wb.createSheet("ValidationResults");
-
-            XSSFFont boldFont = wb.createFont();
-
-            boldFont.setBold(true);
-
-            CellStyle boldStyle = wb.createCellStyle();
-
-            boldStyle.setFont(boldFont);
-
-            // --- NEW: Styles for Valid and Invalid cells (Light Green and Light Red) ---
-
-            CellStyle validStyle = wb.createCellStyle();
-
-            validStyle.setFillForegroundColor(IndexedColors. LIGHT_GREEN.getIndex()); 
-
-            validStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-
-            CellStyle invalidStyle = wb.createCellStyle();
-
-            invalidStyle.setFillForegroundColor(IndexedColors.LIGHT_ORANGE.getIndex()); 
-
-            invalidStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
-
-            // ---------------------------------------------------------------------------
-
-            String[] headers = {
-
-                    "MDMID", "Customer Name", "Address Line 1", "City", "Region",
-
-                    "Country", "Postal Code", "DUNS Number",
-
-                    "Name Status", "Address Status", "Postal Status", "Region Status",
-
-                    "Record Validation", "Remarks"
-
-            };
-
-            Row headerRow = dataSheet.createRow(0);
-
-            for (int i = 0; i < headers.length; i++) {
-
-                Cell c = headerRow.createCell(i);
-
-                c.setCellValue(headers[i]);
-
-                c.setCellStyle(boldStyle);
-
-            }
-
-            // ----------- WRITE UNIQUE ROWS ONLY -------------
-
-            int index = 1;
-
-            for (ValidationResult r : rows) {
-
-                Row row = dataSheet.createRow(index++);
-
-                int col = 0;
-
-                if (r.MDMID == 0) row.createCell(col++).setCellValue("");
-
-                else row.createCell(col++).setCellValue(r.MDMID);
-
-                row.createCell(col++).setCellValue(ns(r.CustomerName));
-
-                row.createCell(col++).setCellValue(ns(r.AddressLine1));
-
-                row.createCell(col++).setCellValue(ns(r.city));
-
-                row.createCell(col++).setCellValue(ns(r.region));
-
-                row.createCell(col++).setCellValue(ns(r.country));
-
-                row.createCell(col++).setCellValue(ns(r.postal));
-
-                row.createCell(col++).setCellValue(ns(r.dunsnumber));
-
-                row.createCell(col++).setCellValue(ns(r.nameStatus));
-
-                row.createCell(col++).setCellValue(ns(r.addressStatus));
-
-                row.createCell(col++).setCellValue(ns(r.postalStatus));
-
-                row.createCell(col++).setCellValue(ns(r.regionStatus));
-
-                // --- NEW: Apply conditional style to the Record Validation cell ---
-
-                Cell validationCell = row.createCell(col++);
-
-                validationCell.setCellValue(ns(r.recordValidation));
-
-                if ("Valid".equalsIgnoreCase(r.recordValidation)) {
-
-                    validationCell.setCellStyle(validStyle);
-
-                } else if ("Invalid".equalsIgnoreCase(r.recordValidation)) {
-
-                    validationCell.setCellStyle(invalidStyle);
-
-                }
-
-                // ------------------------------------------------------------------
-
-                row.createCell(col++).setCellValue(ns(r.remarks));
+        public ValidationResult(
 
-            }
+                int MDMID, String CustomerName, String AddressLine1,
 
-            for (int i = 0; i < headers.length; i++)
+                String city, String region, String country, String postal,
 
-                dataSheet.autoSizeColumn(i);
+                String dunsnumber,
 
-            // ----------------- SUMMARY -----------------
+                String nameReason, String addressReason, String regionReason, String postalReason,
 
-            XSSFSheet summary = wb.createSheet("Summary");
+                byte matchOutcome, double matchScore, int duplicateCluster
 
-            int sRow = 0;
+        ) {
 
-            Row t = summary.createRow(sRow++);
+            this.MDMID = MDMID;
 
-            Cell title = t.createCell(0);
+            this.CustomerName = CustomerName;
 
-            title.setCellValue("Summary Report");
+            this.AddressLine1 = AddressLine1;
 
-            CellStyle titleStyle = wb.createCellStyle();
+            ValueInterner values = interner();
 
-            XSSFFont tf = wb.createFont();
+            this.city = values.intern(city);
 
-            tf.setBold(true);
+            this.region = values.intern(region);
 
-            tf.setFontHeightInPoints((short) 12);
+            this.country = values.intern(country);
 
-            titleStyle.setFont(tf);
+            this.postal = values.intern(postal);
 
-            title.setCellStyle(titleStyle);
+            this.dunsnumber = dunsnumber;
 
-            summary.createRow(sRow++);
+            int bits = 0;
 
-            int total = rows.size();
+            if (nameReason == null) bits |= NAME_VALID;
 
-            int valid = (int) rows.stream().filter(r -> r.recordValidation.equals("Valid")).count();
+            if (addressReason == null) bits |= ADDRESS_VALID;
 
-            int invalid = total - valid;
+            if (postalReason == null) bits |= POSTAL_VALID;
 
-            Row r1 = summary.createRow(sRow++);
+            if (regionReason == null) bits |= REGION_VALID;
 
-            r1.createCell(0).setCellValue("Total Records Processed:");
+            if (bits == (NAME_VALID | ADDRESS_VALID | POSTAL_VALID | REGION_VALID)) bits |= RECORD_VALID;
 
-            r1.createCell(1).setCellValue(total);
+            this.status = (byte) bits;
 
-            Row r2 = summary.createRow(sRow++);
+            this.matchOutcome = matchOutcome;
 
-            r2.createCell(0).setCellValue("Total Valid Records:");
+            this.matchScore = matchScore;
 
-            r2.createCell(1).setCellValue(valid);
+            this.duplicateCluster = duplicateCluster;
 
-            Row r3 = summary.createRow(sRow++);
+            this.reasons = (bits & RECORD_VALID) != 0 ? null
 
-            r3.createCell(0).setCellValue("Total Invalid Records:");
+                    : renderReasons(nameReason, addressReason, regionReason, postalReason);
 
-            r3.createCell(1).setCellValue(invalid);
+        }
 
-            sRow += 2;
+        /**
+         * Result read back from a {@link ResultSpill}; {@code reasons} is the rendered failure
+         * text (null for a record without failures).
+         */
+        ValidationResult(
 
-            // ---------------- VALIDATION STATS --------------------
+                int MDMID, String CustomerName, String AddressLine1,
 
-            String[] valTypes = {"Name", "Address", "Region", "Postal"};
+                String city, String region, String country, String postal,
 
-            Map<String, Integer> pass = new LinkedHashMap<>();
+                String dunsnumber, byte status, byte matchOutcome, double matchScore,
 
-            Map<String, Integer> fail = new LinkedHashMap<>();
+                int duplicateCluster, String reasons
 
-            for (String v : valTypes) {
+        ) {
 
-                pass.put(v, 0);
+            this.MDMID = MDMID;
 
-                fail.put(v, 0);
+            this.CustomerName = CustomerName;
 
-            }
+            this.AddressLine1 = AddressLine1;
 
-            for (ValidationResult r : rows) {
+            ValueInterner values = interner();
 
-                if (r.nameStatus.equals("Valid")) pass.put("Name", pass.get("Name") + 1);
+            this.city = values.intern(city);
 
-                else fail.put("Name", fail.get("Name") + 1);
+            this.region = values.intern(region);
 
-                if (r.addressStatus.equals("Valid")) pass.put("Address", pass.get("Address") + 1);
+            this.country = values.intern(country);
 
-                else fail.put("Address", fail.get("Address") + 1);
+            this.postal = values.intern(postal);
 
-                if (r.regionStatus.equals("Valid")) pass.put("Region", pass.get("Region") + 1);
+            this.dunsnumber = dunsnumber;
 
-                else fail.put("Region", fail.get("Region") + 1);
+            this.status = status;
 
-                if (r.postalStatus.equals("Valid")) pass.put("Postal", pass.get("Postal") + 1);
+            this.matchOutcome = matchOutcome;
 
-                else fail.put("Postal", fail.get("Postal") + 1);
+            this.matchScore = matchScore;
 
-            }
+            this.duplicateCluster = duplicateCluster;
 
-            Map<String, Double> pct = new LinkedHashMap<>();
+            this.reasons = reasons;
 
-            for (String v : valTypes) {
+        }
 
-                pct.put(v, total == 0 ? 0 : (pass.get(v) * 100.0 / total));
+        boolean hasReasons() {
 
-            }
+            return reasons != null;
 
-            // Header
+        }
 
-            Row vrh = summary.createRow(sRow++);
+        public boolean isValid(int bit) { return (status & bit) != 0; }
 
-            String[] statHead = {"Validation Type", "Passed", "Failed", "Pass%", "Fail%"};
+        public boolean isRecordValid() { return isValid(RECORD_VALID); }
 
-            for (int i = 0; i < statHead.length; i++) {
+        public String nameStatus() { return text(NAME_VALID); }
 
-                Cell c = vrh.createCell(i);
+        public String addressStatus() { return text(ADDRESS_VALID); }
 
-                c.setCellValue(statHead[i]);
+        public String postalStatus() { return text(POSTAL_VALID); }
 
-                c.setCellStyle(boldStyle);
+        public String regionStatus() { return text(REGION_VALID); }
 
-            }
+        public String recordValidation() { return text(RECORD_VALID); }
 
-            for (String v : valTypes) {
+        /**
+         * Remarks text: the failure reasons, or for a valid record the fuzzy-match outcome.
+         */
+        public String remarks() {
 
-                Row rr = summary.createRow(sRow++);
+            if (!hasReasons()) {
 
-                rr.createCell(0).setCellValue(v);
+                if (matchOutcome == MATCH_FOUND) {
 
-                rr.createCell(1).setCellValue(pass.get(v));
+                    return "Record exists (fuzzy match) | Score: " + String.format("%.2f", matchScore) + "%";
 
-                rr.createCell(2).setCellValue(fail.get(v));
+                }
 
-                rr.createCell(3).setCellValue(round(pct.get(v), 2));
+                if (matchOutcome == MATCH_NOT_FOUND) return "Record doesn't exist (no fuzzy match)";
 
-                rr.createCell(4).setCellValue(round(100 - pct.get(v), 2));
+                return "";
 
             }
 
-            int chartStart = sRow + 2;
-
-            // ----------- BAR CHART (Pass % only) -------------------
-
-            List<String> sorted = new ArrayList<>(Arrays.asList(valTypes));
-
-            sorted.sort((a, b) -> Double.compare(pct.get(b), pct.get(a)));
-
-            int chartDataStart = chartStart;
-
-            Row ch = summary.createRow(chartDataStart++);
-
-            ch.createCell(0).setCellValue("Validation");
-
-            ch.createCell(1).setCellValue("Pass%");
-
-            for (String v : sorted) {
-
-                Row rr = summary.createRow(chartDataStart++);
-
-                rr.createCell(0).setCellValue(v);
-
-                rr.createCell(1).setCellValue(round(pct.get(v), 2));
+            return reasons;
 
-            }
+        }
 
-            XSSFDrawing draw = summary.createDrawingPatriarch();
+        // Remarks order: Name, Address, Region, Postal
 
-            XSSFClientAnchor a = draw.createAnchor(0, 0, 0, 0, 0, chartDataStart + 1, 8, chartDataStart + 20);
+        private static String renderReasons(String nameReason, String addressReason,
 
-            XSSFChart chart = draw.createChart(a);
+                                            String regionReason, String postalReason) {
 
-            chart.setTitleText("Validation Pass% (Descending)");
+            StringBuilder sb = new StringBuilder();
 
-            XDDFCategoryAxis x = chart.createCategoryAxis(AxisPosition.BOTTOM);
+            appendReason(sb, "Name: ", nameReason);
 
-            XDDFValueAxis y = chart.createValueAxis(AxisPosition.LEFT);
+            appendReason(sb, "Address: ", addressReason);
 
-            XDDFDataSource<String> cats = XDDFDataSourcesFactory.fromStringCellRange(
+            appendReason(sb, "Region: ", regionReason);
 
-                    summary,
+            appendReason(sb, "Postal: ", postalReason);
 
-                    new CellRangeAddress(chartStart + 1, chartDataStart - 1, 0, 0)
+            return sb.toString();
 
-            );
+        }
 
-            XDDFNumericalDataSource<Double> vals = XDDFDataSourcesFactory.fromNumericCellRange(
+        private static void appendReason(StringBuilder sb, String label, String reason) {
 
-                    summary,
+            if (reason == null) return;
 
-                    new CellRangeAddress(chartStart + 1, chartDataStart - 1, 1, 1)
+            if (sb.length() > 0) sb.append(" | ");
 
-            );
+            sb.append(label).append(reason);
 
-            XDDFChartData data = chart.createData(ChartTypes.BAR, x, y);
+        }
 
-            ((XDDFBarChartData) data).setBarDirection(BarDirection.COL);
+        // The current run's interner; results built outside a run are not interned
 
-            XDDFChartData.Series s = data.addSeries(cats, vals);
+        private static ValueInterner interner() {
 
-            s.setTitle("Pass%", null);
+            RunContext ctx = RunContext.current();
 
-            XDDFSolidFillProperties fill = new XDDFSolidFillProperties(XDDFColor.from(new byte[]{0, (byte) 128, 0}));
+            return ctx != null ? ctx.getValueInterner() : ValueInterner.NONE;
 
-            XDDFShapeProperties props = new XDDFShapeProperties();
+        }
 
-            props.setFillProperties(fill);
+        private String text(int bit) { return isValid(bit) ? VALID : INVALID; }
 
-            s.setShapeProperties(props);
+    }
 
-            chart.plot(data);
+    // ---------------- GENERATE REPORT --------------------
 
-            // ---- WRITE FILE ----
+    /**
+     * Writes a complete list of results; runs that produce results one by one use
+     * {@link ExcelReportWriter} directly instead of collecting them first.
+     */
+    public static void generateExcelReport(List<ValidationResult> rows, String filePath) throws Exception {
 
-            try (FileOutputStream fos = new FileOutputStream(filePath)) {
+        try (ExcelReportWriter writer = new ExcelReportWriter()) {
 
-                wb.write(fos);
+            for (ValidationResult r : rows) writer.write(r);
 
-            }
+            writer.finish(filePath);
 
         }
 
     }
 
-    private static String ns(String s) { return s == null ? "" : s; }
-
-    private static double round(double v, int p) {
-
-        double scale = Math.pow(10,p);
-
-        return Math.round(v*scale)/scale;
-
-    }
-
 }
- 
-
- 
-
@@ -0,0 +1,360 @@
+package com.dataquality.report;
+
+import com.dataquality.report.ExcelReportGenerator.ValidationResult;
+
+import org.apache.poi.ss.usermodel.Cell;
+import org.apache.poi.ss.usermodel.CellStyle;
+import org.apache.poi.ss.usermodel.FillPatternType;
+import org.apache.poi.ss.usermodel.IndexedColors;
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.util.CellRangeAddress;
+import org.apache.poi.xddf.usermodel.XDDFColor;
+import org.apache.poi.xddf.usermodel.XDDFShapeProperties;
+import org.apache.poi.xddf.usermodel.XDDFSolidFillProperties;
+import org.apache.poi.xddf.usermodel.chart.AxisPosition;
+import org.apache.poi.xddf.usermodel.chart.BarDirection;
+import org.apache.poi.xddf.usermodel.chart.ChartTypes;
+import org.apache.poi.xddf.usermodel.chart.XDDFBarChartData;
+import org.apache.poi.xddf.usermodel.chart.XDDFCategoryAxis;
+import org.apache.poi.xddf.usermodel.chart.XDDFChartData;
+import org.apache.poi.xddf.usermodel.chart.XDDFDataSource;
+import org.apache.poi.xddf.usermodel.chart.XDDFDataSourcesFactory;
+import org.apache.poi.xddf.usermodel.chart.XDDFNumericalDataSource;
+import org.apache.poi.xddf.usermodel.chart.XDDFValueAxis;
+import org.apache.poi.xssf.streaming.SXSSFSheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.apache.poi.xssf.usermodel.XSSFChart;
+import org.apache.poi.xssf.usermodel.XSSFClientAnchor;
+import org.apache.poi.xssf.usermodel.XSSFDrawing;
+import org.apache.poi.xssf.usermodel.XSSFFont;
+import org.apache.poi.xssf.usermodel.XSSFSheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Streaming validation report.
+ *
+ * Rows are written as the run produces them: the data sheet goes through SXSSF with a bounded
+ * row window, and the Summary sheet is built at the end from the counters of a
+ * {@link ReportSummary}, so memory stays flat regardless of the number of rows. The report is
+ * written to a temp file next to the target and moved into place on success; a run that fails
+ * before {@link #finish} leaves no report behind.
+ */
+public class ExcelReportWriter implements ReportSink {
+
+    /** Data rows per sheet (Excel's 1,048,576 rows minus the header). */
+    public static final int MAX_ROWS = 1_048_575;
+
+    // Rows kept in memory by the streaming workbook; older rows are flushed to a temp file
+    private static final int ROW_WINDOW = 100;
+
+    // Excel's column width limit, in characters
+    private static final int MAX_COLUMN_CHARS = 255;
+
+    private static final String[] HEADERS = {
+            "MDMID", "Customer Name", "Address Line 1", "City", "Region",
+            "Country", "Postal Code", "DUNS Number",
+            "Name Status", "Address Status", "Postal Status", "Region Status",
+            "Record Validation", "Remarks", "Duplicate Cluster"
+    };
+
+    private final SXSSFWorkbook sxwb = new SXSSFWorkbook(ROW_WINDOW);
+    // Summary sheet and chart live on the underlying XSSF workbook (SXSSF sheets cannot hold charts)
+    private final XSSFWorkbook wb = sxwb.getXSSFWorkbook();
+    private final SXSSFSheet dataSheet;
+
+    private final CellStyle boldStyle;
+    private final CellStyle validStyle;
+    private final CellStyle invalidStyle;
+
+    // Longest value per column, tracked while writing (replaces autoSizeColumn)
+    private final int[] maxChars = new int[HEADERS.length];
+
+    private final ReportSummary summary = new ReportSummary();
+    private int nextRow = 1;
+
+    // Target of finish(); both null when the caller passes the path to finish(String)
+    private final String filePath;
+    private final OutputStream stream;
+
+    public ExcelReportWriter() {
+        this((String) null);
+    }
+
+    public ExcelReportWriter(String filePath) {
+        this(filePath, null);
+    }
+
+    /**
+     * Writer whose {@link #finish()} writes the workbook into {@code out} (left open).
+     */
+    public ExcelReportWriter(OutputStream out) {
+        this(null, out);
+    }
+
+    private ExcelReportWriter(String filePath, OutputStream stream) {
+        this.filePath = filePath;
+        this.stream = stream;
+        dataSheet = sxwb.createSheet("ValidationResults");
+
+        XSSFFont boldFont = wb.createFont();
+        boldFont.setBold(true);
+        boldStyle = wb.createCellStyle();
+        boldStyle.setFont(boldFont);
+
+        // Styles for Valid and Invalid cells (Light Green and Light Orange)
+        validStyle = wb.createCellStyle();
+        validStyle.setFillForegroundColor(IndexedColors.LIGHT_GREEN.getIndex());
+        validStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+
+        invalidStyle = wb.createCellStyle();
+        invalidStyle.setFillForegroundColor(IndexedColors.LIGHT_ORANGE.getIndex());
+        invalidStyle.setFillPattern(FillPatternType.SOLID_FOREGROUND);
+
+        Row headerRow = dataSheet.createRow(0);
+        for (int i = 0; i < HEADERS.length; i++) {
+            Cell c = headerRow.createCell(i);
+            c.setCellValue(HEADERS[i]);
+            c.setCellStyle(boldStyle);
+            maxChars[i] = HEADERS[i].length();
+        }
+    }
+
+    /**
+     * Appends one result row and counts it for the summary.
+     */
+    @Override
+    public void write(ValidationResult r) throws IOException {
+        if (nextRow > MAX_ROWS) {
+            throw new IOException("Report exceeds " + MAX_ROWS + " rows; use Report_shard_rows to split it.");
+        }
+        summary.add(r);
+
+        Row row = dataSheet.createRow(nextRow++);
+        int col = 0;
+
+        if (r.MDMID == 0) text(row, col++, "");
+        else number(row, col++, r.MDMID);
+
+        text(row, col++, r.CustomerName);
+        text(row, col++, r.AddressLine1);
+        text(row, col++, r.city);
+        text(row, col++, r.region);
+        text(row, col++, r.country);
+        text(row, col++, r.postal);
+        text(row, col++, r.dunsnumber);
+        text(row, col++, r.nameStatus());
+        text(row, col++, r.addressStatus());
+        text(row, col++, r.postalStatus());
+        text(row, col++, r.regionStatus());
+
+        // Conditional style on the Record Validation cell
+        Cell validationCell = text(row, col++, r.recordValidation());
+        validationCell.setCellStyle(r.isRecordValid() ? validStyle : invalidStyle);
+
+        text(row, col++, r.remarks());
+
+        if (r.duplicateCluster == 0) text(row, col, "");
+        else number(row, col, r.duplicateCluster);
+    }
+
+    public ReportSummary getSummary() { return summary; }
+
+    @Override
+    public void finish() throws IOException {
+        if (stream != null) finish(stream);
+        else finish(filePath);
+    }
+
+    @Override
+    public String getPath() { return filePath; }
+
+    /**
+     * Adds the Summary sheet and chart and writes the report to {@code filePath}.
+     */
+    public void finish(String filePath) throws IOException {
+        completeWorkbook();
+
+        Path target = new File(filePath).getAbsoluteFile().toPath();
+        Path tmp = Files.createTempFile(target.getParent(), "dqf_report_", ".xlsx.tmp");
+        try {
+            try (FileOutputStream fos = new FileOutputStream(tmp.toFile())) {
+                sxwb.write(fos);
+            }
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Adds the Summary sheet and chart and writes the report into {@code out}, which is left open.
+     */
+    public void finish(OutputStream out) throws IOException {
+        completeWorkbook();
+        sxwb.write(out);
+        out.flush();
+    }
+
+    private void completeWorkbook() {
+        for (int i = 0; i < HEADERS.length; i++) {
+            dataSheet.setColumnWidth(i, Math.min(maxChars[i] + 2, MAX_COLUMN_CHARS) * 256);
+        }
+
+        writeSummarySheet(wb, boldStyle, summary);
+    }
+
+    @Override
+    public void close() throws IOException {
+        sxwb.dispose();
+        sxwb.close();
+    }
+
+    // ----------------- SUMMARY -----------------
+
+    /**
+     * Writes a workbook holding only the Summary sheet of {@code summary}; the stream is not closed.
+     */
+    public static void writeSummary(ReportSummary summary, OutputStream out) throws IOException {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            XSSFFont boldFont = wb.createFont();
+            boldFont.setBold(true);
+            CellStyle boldStyle = wb.createCellStyle();
+            boldStyle.setFont(boldFont);
+
+            writeSummarySheet(wb, boldStyle, summary);
+            wb.write(out);
+        }
+    }
+
+    private static void writeSummarySheet(XSSFWorkbook wb, CellStyle boldStyle, ReportSummary summary) {
+        XSSFSheet sheet = wb.createSheet("Summary");
+        int sRow = 0;
+
+        Row t = sheet.createRow(sRow++);
+        Cell title = t.createCell(0);
+        title.setCellValue("Summary Report");
+
+        CellStyle titleStyle = wb.createCellStyle();
+        XSSFFont tf = wb.createFont();
+        tf.setBold(true);
+        tf.setFontHeightInPoints((short) 12);
+        titleStyle.setFont(tf);
+        title.setCellStyle(titleStyle);
+
+        sheet.createRow(sRow++);
+
+        Row r1 = sheet.createRow(sRow++);
+        r1.createCell(0).setCellValue("Total Records Processed:");
+        r1.createCell(1).setCellValue(summary.getTotal());
+
+        Row r2 = sheet.createRow(sRow++);
+        r2.createCell(0).setCellValue("Total Valid Records:");
+        r2.createCell(1).setCellValue(summary.getValid());
+
+        Row r3 = sheet.createRow(sRow++);
+        r3.createCell(0).setCellValue("Total Invalid Records:");
+        r3.createCell(1).setCellValue(summary.getInvalid());
+
+        sRow += 2;
+
+        // ---------------- VALIDATION STATS --------------------
+        Row vrh = sheet.createRow(sRow++);
+        String[] statHead = {"Validation Type", "Passed", "Failed", "Pass%", "Fail%"};
+        for (int i = 0; i < statHead.length; i++) {
+            Cell c = vrh.createCell(i);
+            c.setCellValue(statHead[i]);
+            c.setCellStyle(boldStyle);
+        }
+
+        for (int v = 0; v < ReportSummary.TYPES.length; v++) {
+            double pct = summary.getPassPercent(v);
+            Row rr = sheet.createRow(sRow++);
+            rr.createCell(0).setCellValue(ReportSummary.TYPES[v]);
+            rr.createCell(1).setCellValue(summary.getPassed(v));
+            rr.createCell(2).setCellValue(summary.getFailed(v));
+            rr.createCell(3).setCellValue(round(pct, 2));
+            rr.createCell(4).setCellValue(round(100 - pct, 2));
+        }
+
+        int chartStart = sRow + 2;
+
+        // ----------- BAR CHART (Pass % only) -------------------
+        List<Integer> sorted = new ArrayList<>();
+        for (int v = 0; v < ReportSummary.TYPES.length; v++) sorted.add(v);
+        sorted.sort((a, b) -> Double.compare(summary.getPassPercent(b), summary.getPassPercent(a)));
+
+        int chartDataStart = chartStart;
+        Row ch = sheet.createRow(chartDataStart++);
+        ch.createCell(0).setCellValue("Validation");
+        ch.createCell(1).setCellValue("Pass%");
+
+        for (int v : sorted) {
+            Row rr = sheet.createRow(chartDataStart++);
+            rr.createCell(0).setCellValue(ReportSummary.TYPES[v]);
+            rr.createCell(1).setCellValue(round(summary.getPassPercent(v), 2));
+        }
+
+        XSSFDrawing draw = sheet.createDrawingPatriarch();
+        XSSFClientAnchor a = draw.createAnchor(0, 0, 0, 0, 0, chartDataStart + 1, 8, chartDataStart + 20);
+        XSSFChart chart = draw.createChart(a);
+        chart.setTitleText("Validation Pass% (Descending)");
+
+        XDDFCategoryAxis x = chart.createCategoryAxis(AxisPosition.BOTTOM);
+        XDDFValueAxis y = chart.createValueAxis(AxisPosition.LEFT);
+
+        XDDFDataSource<String> cats = XDDFDataSourcesFactory.fromStringCellRange(
+                sheet,
+                new CellRangeAddress(chartStart + 1, chartDataStart - 1, 0, 0)
+        );
+        XDDFNumericalDataSource<Double> vals = XDDFDataSourcesFactory.fromNumericCellRange(
+                sheet,
+                new CellRangeAddress(chartStart + 1, chartDataStart - 1, 1, 1)
+        );
+
+        XDDFChartData data = chart.createData(ChartTypes.BAR, x, y);
+        ((XDDFBarChartData) data).setBarDirection(BarDirection.COL);
+
+        XDDFChartData.Series s = data.addSeries(cats, vals);
+        s.setTitle("Pass%", null);
+
+        XDDFSolidFillProperties fill = new XDDFSolidFillProperties(XDDFColor.from(new byte[]{0, (byte) 128, 0}));
+        XDDFShapeProperties props = new XDDFShapeProperties();
+        props.setFillProperties(fill);
+        s.setShapeProperties(props);
+
+        chart.plot(data);
+    }
+
+    // ----------------- CELLS -----------------
+
+    private Cell text(Row row, int col, String value) {
+        String v = value == null ? "" : value;
+        Cell c = row.createCell(col);
+        c.setCellValue(v);
+        if (v.length() > maxChars[col]) maxChars[col] = v.length();
+        return c;
+    }
+
+    private Cell number(Row row, int col, int value) {
+        Cell c = row.createCell(col);
+        c.setCellValue(value);
+        int len = Integer.toString(value).length();
+        if (len > maxChars[col]) maxChars[col] = len;
+        return c;
+    }
+
+    private static double round(double v, int p) {
+        double scale = Math.pow(10, p);
+        return Math.round(v * scale) / scale;
+    }
+}
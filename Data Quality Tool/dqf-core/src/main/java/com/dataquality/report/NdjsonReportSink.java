@@ -0,0 +1,70 @@
+package com.dataquality.report;
+
+import com.dataquality.report.ExcelReportGenerator.ValidationResult;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Newline-delimited JSON report: one object per result.
+ */
+public class NdjsonReportSink extends TextReportSink {
+
+    public NdjsonReportSink(String filePath, boolean gzip) throws IOException {
+        super(filePath, gzip);
+    }
+
+    public NdjsonReportSink(OutputStream out, boolean gzip) throws IOException {
+        super(out, gzip);
+    }
+
+    @Override
+    protected String header() {
+        return null;
+    }
+
+    @Override
+    protected void format(ValidationResult r, StringBuilder sb) {
+        sb.append("{\"mdmId\":");
+        if (r.MDMID == 0) sb.append("null");
+        else sb.append(r.MDMID);
+
+        string(sb, "customerName", r.CustomerName);
+        string(sb, "addressLine1", r.AddressLine1);
+        string(sb, "city", r.city);
+        string(sb, "region", r.region);
+        string(sb, "country", r.country);
+        string(sb, "postalCode", r.postal);
+        string(sb, "dunsNumber", r.dunsnumber);
+        string(sb, "nameStatus", r.nameStatus());
+        string(sb, "addressStatus", r.addressStatus());
+        string(sb, "postalStatus", r.postalStatus());
+        string(sb, "regionStatus", r.regionStatus());
+        string(sb, "recordValidation", r.recordValidation());
+        string(sb, "remarks", r.remarks());
+
+        sb.append(",\"duplicateCluster\":");
+        if (r.duplicateCluster == 0) sb.append("null");
+        else sb.append(r.duplicateCluster);
+        sb.append('}');
+    }
+
+    private static void string(StringBuilder sb, String key, String value) {
+        sb.append(",\"").append(key).append("\":\"");
+        String v = ns(value);
+        for (int i = 0; i < v.length(); i++) {
+            char c = v.charAt(i);
+            switch (c) {
+                case '"':  sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        sb.append('"');
+    }
+}
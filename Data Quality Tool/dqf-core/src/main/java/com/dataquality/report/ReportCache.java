@@ -0,0 +1,368 @@
+package com.dataquality.report;
+
+import com.dataquality.config.ConfigReader;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+import java.util.stream.Stream;
+
+/**
+ * On-disk cache of finished reports, keyed by content.
+ *
+ * The key is the SHA-256 of the input file bytes, all settings of userfile.xlsx, the
+ * standardization dictionary, {@link #RULE_VERSION}, the report formats and the master data
+ * version (change counters of the master and reference tables, maintained by triggers that
+ * DataQualitySchemaTool installs). A repeated upload of the same file against unchanged master
+ * data gets the cached report back without a run; without the triggers nothing is cached.
+ *
+ * Reports are always stored, but only looked up with Report_cache_skip_upserts = true: a hit
+ * skips the run, and with it the excel_data_quality_check upserts. Those rows may have been
+ * changed by other uploads since the cached run, so a hit does not leave the table as a full run
+ * would.
+ *
+ * One directory per entry holds the report files and the result spill (hard links to the run's
+ * output where possible). A hit is linked (or copied) the same way into the output directory of
+ * the run that gets it, so a job never serves files from the cache directory itself. Entries are
+ * evicted least recently used first once there are more than Report_cache_entries of them or they
+ * take more than Report_cache_max_mb; evicting one never removes a file a job serves.
+ */
+public class ReportCache {
+
+    /** Bump when validation, matching or report rules change, so older reports are not reused. */
+    public static final String RULE_VERSION = "2026.10-1";
+
+    // Reference table of the region / postal validation
+    private static final String REFERENCE_TABLE = "country_region_postal_validation";
+
+    // Change counters of the master and reference tables (see installVersionTriggers)
+    private static final String VERSION_TABLE = "dqf_table_version";
+    private static final String VERSION_TRIGGER = "dqf_table_version";
+
+    // Qualified name, trigger present and counter of one table
+    private static final String VERSION_QUERY =
+            "SELECT n.nspname || '.' || c.relname, " +
+                    "EXISTS (SELECT 1 FROM pg_trigger t WHERE t.tgrelid = c.oid AND t.tgname = ?), " +
+                    "COALESCE((SELECT v.version FROM " + VERSION_TABLE + " v " +
+                    "WHERE v.table_name = n.nspname || '.' || c.relname), 0) " +
+                    "FROM pg_class c JOIN pg_namespace n ON n.oid = c.relnamespace " +
+                    "WHERE c.oid = to_regclass(?)";
+
+    private static final String ENTRY_FILE = "entry.properties";
+
+    // Entries of all runs share one directory
+    private static final Object LOCK = new Object();
+
+    private final Path dir;
+    private final long maxBytes;
+    private final int maxEntries;
+
+    /** Cached report of one key. */
+    public static class Entry {
+        public final String reportPath;
+        public final String resultsPath; // null if the run kept no result spill
+
+        Entry(String reportPath, String resultsPath) {
+            this.reportPath = reportPath;
+            this.resultsPath = resultsPath;
+        }
+    }
+
+    public ReportCache(ConfigReader cfg) {
+        String d = cfg.getReportCacheDir();
+        this.dir = Paths.get(d == null || d.trim().isEmpty()
+                ? System.getProperty("user.dir") + File.separator + "report-cache" : d.trim()).toAbsolutePath();
+        this.maxBytes = Math.max(1, cfg.getReportCacheMaxMb()) * 1024L * 1024L;
+        this.maxEntries = Math.max(1, cfg.getReportCacheEntries());
+    }
+
+    /**
+     * Creates dqf_table_version and the statement-level triggers that count every change of the
+     * master and reference tables in it. DDL on the master table: run once from
+     * {@link com.dataquality.main.DataQualitySchemaTool}, never from a validation run.
+     */
+    public static void installVersionTriggers(Connection conn, ConfigReader cfg) throws SQLException {
+        try (Statement st = conn.createStatement()) {
+            String schema;
+            try (ResultSet rs = st.executeQuery("SELECT current_schema()")) {
+                rs.next();
+                schema = rs.getString(1);
+            }
+            st.execute("CREATE TABLE IF NOT EXISTS " + VERSION_TABLE + " (" +
+                    "table_name TEXT PRIMARY KEY, " +
+                    "version BIGINT NOT NULL)");
+            // Schema-qualified, so writers with another search_path still find the table
+            st.execute("CREATE OR REPLACE FUNCTION " + VERSION_TRIGGER + "() RETURNS trigger AS $$ " +
+                    "BEGIN " +
+                    "INSERT INTO \"" + schema + "\"." + VERSION_TABLE + " (table_name, version) " +
+                    "VALUES (TG_TABLE_SCHEMA || '.' || TG_TABLE_NAME, 1) " +
+                    "ON CONFLICT (table_name) DO UPDATE SET version = " + VERSION_TABLE + ".version + 1; " +
+                    "RETURN NULL; " +
+                    "END $$ LANGUAGE plpgsql");
+        }
+
+        String exists = "SELECT 1 FROM pg_trigger WHERE tgrelid = to_regclass(?) AND tgname = ?";
+        for (String table : new String[]{cfg.getTableName(), REFERENCE_TABLE}) {
+            try (PreparedStatement ps = conn.prepareStatement(exists)) {
+                ps.setString(1, table);
+                ps.setString(2, VERSION_TRIGGER);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (rs.next()) continue;
+                }
+            }
+            try (Statement st = conn.createStatement()) {
+                st.execute("CREATE TRIGGER " + VERSION_TRIGGER +
+                        " AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON " + table +
+                        " FOR EACH STATEMENT EXECUTE FUNCTION " + VERSION_TRIGGER + "()");
+            }
+        }
+    }
+
+    /**
+     * Change counters of the master and reference tables from dqf_table_version, or null if the
+     * triggers are not installed (without them a cached report cannot be trusted). The counters
+     * are bumped in the writing transaction, so they are exact and survive restarts.
+     */
+    public static String masterVersion(Connection conn, ConfigReader cfg) {
+        StringBuilder sb = new StringBuilder();
+        try (PreparedStatement ps = conn.prepareStatement(VERSION_QUERY)) {
+            for (String table : new String[]{cfg.getTableName(), REFERENCE_TABLE}) {
+                ps.setString(1, VERSION_TRIGGER);
+                ps.setString(2, table);
+                try (ResultSet rs = ps.executeQuery()) {
+                    if (!rs.next() || !rs.getBoolean(2)) return null;
+                    sb.append(rs.getString(1)).append(':').append(rs.getLong(3)).append(';');
+                }
+            }
+        } catch (SQLException ex) {
+            return null; // dqf_table_version missing
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Change counter of one table from dqf_table_version, or null if its trigger is not installed.
+     */
+    public static Long tableVersion(Connection conn, String table) {
+        try (PreparedStatement ps = conn.prepareStatement(VERSION_QUERY)) {
+            ps.setString(1, VERSION_TRIGGER);
+            ps.setString(2, table);
+            try (ResultSet rs = ps.executeQuery()) {
+                if (!rs.next() || !rs.getBoolean(2)) return null;
+                return rs.getLong(3);
+            }
+        } catch (SQLException ex) {
+            return null; // dqf_table_version missing
+        }
+    }
+
+    /**
+     * Cache key of a run over {@code input}.
+     */
+    public static String key(File input, ConfigReader cfg, String formats, String masterVersion) throws IOException {
+        MessageDigest md = sha256();
+        digestFile(md, input.toPath());
+
+        update(md, cfg.fingerprint());
+        String dictionary = cfg.getStandardizationDictionary();
+        if (dictionary != null && !dictionary.trim().isEmpty() && new File(dictionary.trim()).isFile()) {
+            digestFile(md, Paths.get(dictionary.trim()));
+        }
+        update(md, RULE_VERSION);
+        update(md, formats);
+        update(md, masterVersion);
+
+        StringBuilder hex = new StringBuilder(64);
+        for (byte b : md.digest()) hex.append(String.format("%02x", b));
+        return hex.toString();
+    }
+
+    /**
+     * Cached report of {@code key} linked into {@code outputDir}, or null. The returned paths are
+     * in {@code outputDir}. A hit counts as a use for eviction.
+     */
+    public Entry lookup(String key, Path outputDir) {
+        synchronized (LOCK) {
+            Path entryDir = dir.resolve(key);
+            Path entryFile = entryDir.resolve(ENTRY_FILE);
+            if (!Files.isRegularFile(entryFile)) return null;
+
+            Properties p = new Properties();
+            try (InputStream in = Files.newInputStream(entryFile)) {
+                p.load(in);
+            } catch (IOException ex) {
+                return null;
+            }
+
+            Path report = entryDir.resolve(p.getProperty("report", ""));
+            if (!Files.isRegularFile(report)) return null;
+            String results = p.getProperty("results");
+            Path resultsPath = results == null ? null : entryDir.resolve(results);
+
+            try {
+                Files.setLastModifiedTime(entryFile, FileTime.fromMillis(System.currentTimeMillis()));
+            } catch (IOException ignored) {}
+
+            // Under the lock, so eviction cannot remove the entry half-way
+            try {
+                Files.createDirectories(outputDir);
+                Path servedReport = outputDir.resolve(report.getFileName());
+                link(report, servedReport);
+                Path servedResults = null;
+                if (resultsPath != null && Files.isRegularFile(resultsPath)) {
+                    servedResults = outputDir.resolve(resultsPath.getFileName());
+                    link(resultsPath, servedResults);
+                }
+                return new Entry(servedReport.toString(), servedResults == null ? null : servedResults.toString());
+            } catch (IOException ex) {
+                return null; // run as a miss
+            }
+        }
+    }
+
+    /**
+     * Stores the outputs of a finished run under {@code key} and evicts old entries.
+     *
+     * @param paths       all output files of the run
+     * @param reportPath  the report that is served for downloads (one of {@code paths})
+     * @param resultsPath result spill, or null
+     */
+    public void store(String key, List<String> paths, String reportPath, String resultsPath) throws IOException {
+        synchronized (LOCK) {
+            Files.createDirectories(dir);
+            Path entryDir = dir.resolve(key);
+            if (Files.isDirectory(entryDir)) return;
+
+            // Filled under a temp name and renamed, so lookups never see a partial entry
+            Path tmp = Files.createTempDirectory(dir, ".entry_");
+            try {
+                for (String path : paths) {
+                    Path src = Paths.get(path);
+                    if (Files.isRegularFile(src)) link(src, tmp.resolve(src.getFileName()));
+                }
+
+                Properties p = new Properties();
+                p.setProperty("report", Paths.get(reportPath).getFileName().toString());
+                if (resultsPath != null) p.setProperty("results", Paths.get(resultsPath).getFileName().toString());
+                try (OutputStream out = Files.newOutputStream(tmp.resolve(ENTRY_FILE))) {
+                    p.store(out, "DQF report cache entry");
+                }
+
+                Files.move(tmp, entryDir, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                if (Files.exists(tmp)) deleteTree(tmp);
+            }
+
+            evict(key);
+        }
+    }
+
+    // Same file without copying where the file system allows it; reports are always replaced by
+    // a rename, never rewritten in place, so the link keeps the old content
+    private static void link(Path src, Path dst) throws IOException {
+        try {
+            Files.deleteIfExists(dst);
+            Files.createLink(dst, src);
+        } catch (IOException | UnsupportedOperationException ex) {
+            Files.copy(src, dst, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private void evict(String keep) throws IOException {
+        List<Path> entries = new ArrayList<>();
+        try (Stream<Path> s = Files.list(dir)) {
+            s.filter(p -> !p.getFileName().toString().startsWith(".") && Files.isDirectory(p)).forEach(entries::add);
+        }
+
+        // Oldest use first
+        entries.sort(Comparator.comparingLong(ReportCache::lastUsed));
+
+        long total = 0;
+        List<Long> sizes = new ArrayList<>();
+        for (Path e : entries) {
+            long size = size(e);
+            sizes.add(size);
+            total += size;
+        }
+
+        int count = entries.size();
+        for (int i = 0; i < entries.size() && (total > maxBytes || count > maxEntries); i++) {
+            Path e = entries.get(i);
+            if (e.getFileName().toString().equals(keep)) continue;
+            deleteTree(e);
+            total -= sizes.get(i);
+            count--;
+        }
+    }
+
+    private static long lastUsed(Path entryDir) {
+        try {
+            return Files.getLastModifiedTime(entryDir.resolve(ENTRY_FILE)).toMillis();
+        } catch (IOException ex) {
+            return 0; // incomplete entry, evict first
+        }
+    }
+
+    private static long size(Path entryDir) throws IOException {
+        try (Stream<Path> s = Files.walk(entryDir)) {
+            return s.filter(Files::isRegularFile).mapToLong(p -> p.toFile().length()).sum();
+        }
+    }
+
+    private static void deleteTree(Path root) throws IOException {
+        try (Stream<Path> s = Files.walk(root)) {
+            for (Path p : (Iterable<Path>) s.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+
+    private static void digestFile(MessageDigest md, Path file) throws IOException {
+        byte[] buf = new byte[1 << 16];
+        long size = 0;
+        try (InputStream in = Files.newInputStream(file)) {
+            int n;
+            while ((n = in.read(buf)) > 0) {
+                md.update(buf, 0, n);
+                size += n;
+            }
+        }
+        update(md, Long.toString(size));
+    }
+
+    // Length-prefixed, so adjacent parts cannot run into each other
+    private static void update(MessageDigest md, String s) {
+        byte[] b = (s == null ? "" : s).getBytes(StandardCharsets.UTF_8);
+        md.update((byte) (b.length >>> 24));
+        md.update((byte) (b.length >>> 16));
+        md.update((byte) (b.length >>> 8));
+        md.update((byte) b.length);
+        md.update(b);
+    }
+}
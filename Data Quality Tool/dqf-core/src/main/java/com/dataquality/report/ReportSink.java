@@ -0,0 +1,31 @@
+package com.dataquality.report;
+
+import com.dataquality.report.ExcelReportGenerator.ValidationResult;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Destination of the validation results of one run (Excel, CSV, NDJSON, ...).
+ *
+ * Results are written as they are produced. Nothing is visible at {@link #getPath()} until
+ * {@link #finish()} succeeds; closing a sink without finishing it discards the output.
+ */
+public interface ReportSink extends AutoCloseable {
+
+    void write(ValidationResult r) throws IOException;
+
+    void finish() throws IOException;
+
+    /** Path of the finished output. */
+    String getPath();
+
+    /** Paths of all finished outputs, {@link #getPath()} first. */
+    default List<String> getPaths() {
+        return Collections.singletonList(getPath());
+    }
+
+    @Override
+    void close() throws IOException;
+}
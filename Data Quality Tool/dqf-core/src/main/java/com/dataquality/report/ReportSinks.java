@@ -0,0 +1,164 @@
+package com.dataquality.report;
+
+import com.dataquality.report.ExcelReportGenerator.ValidationResult;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Opens the report sinks of a run from a format list such as "XLSX,CSV.GZ,NDJSON".
+ *
+ * Supported formats: XLSX, CSV, CSV.GZ, NDJSON, NDJSON.GZ. Every sink runs on its own thread;
+ * the returned sink fans each result out to all of them, and {@link ReportSink#getPath()} is
+ * the path of the first format. XLSX output is split into shards of at most {@code shardRows}
+ * rows (see {@link ShardedReportSink}). With the result spill enabled, a compact copy of the
+ * results is kept as well, from which {@link #openStream} sinks regenerate the report later.
+ */
+public final class ReportSinks {
+
+    public static final String DEFAULT_FORMATS = "XLSX";
+
+    private ReportSinks() {}
+
+    public static ReportSink open(String formats, String basePath) throws IOException {
+        return open(formats, basePath, ExcelReportWriter.MAX_ROWS, false);
+    }
+
+    /**
+     * @param formats   comma-separated format list; null or empty means {@link #DEFAULT_FORMATS}
+     * @param basePath  output path without extension
+     * @param shardRows rows per XLSX shard
+     * @param spill     also keep the results at {@link #resultsPath}
+     */
+    public static ReportSink open(String formats, String basePath, int shardRows, boolean spill) throws IOException {
+        List<ReportSink> sinks = new ArrayList<>();
+        try {
+            for (String format : parse(formats)) {
+                ReportSink sink = create(format, basePath, shardRows);
+                // Shards already run on their own threads
+                sinks.add(sink instanceof ShardedReportSink ? sink : new AsyncReportSink(sink, format.toLowerCase()));
+            }
+            if (spill) sinks.add(new AsyncReportSink(new ResultSpill(resultsPath(basePath)), "results"));
+        } catch (IOException | RuntimeException e) {
+            for (ReportSink s : sinks) s.close();
+            throw e;
+        }
+        return new MultiReportSink(sinks);
+    }
+
+    /**
+     * Normalized, de-duplicated format list.
+     */
+    public static List<String> parse(String formats) {
+        String f = formats == null || formats.trim().isEmpty() ? DEFAULT_FORMATS : formats;
+        Set<String> out = new LinkedHashSet<>();
+        for (String part : f.split("[,;\\s]+")) {
+            String p = part.trim().toUpperCase();
+            if (p.startsWith(".")) p = p.substring(1);
+            if (p.equals("JSONL")) p = "NDJSON";
+            if (p.equals("JSONL.GZ")) p = "NDJSON.GZ";
+            if (!p.isEmpty()) out.add(p);
+        }
+        return new ArrayList<>(out);
+    }
+
+    /**
+     * Path of the result spill written next to the report at {@code basePath}.
+     */
+    public static String resultsPath(String basePath) {
+        return basePath + ResultSpill.EXTENSION;
+    }
+
+    /**
+     * Synchronous sink of one format that writes into {@code out}; the XLSX workbook is written
+     * on {@link ReportSink#finish()}, the text formats as rows arrive. {@code out} stays open.
+     */
+    public static ReportSink openStream(String format, OutputStream out) throws IOException {
+        switch (format) {
+            case "XLSX":      return new ExcelReportWriter(out);
+            case "CSV":       return new CsvReportSink(out, false);
+            case "CSV.GZ":    return new CsvReportSink(out, true);
+            case "NDJSON":    return new NdjsonReportSink(out, false);
+            case "NDJSON.GZ": return new NdjsonReportSink(out, true);
+            default:
+                throw new IllegalArgumentException("Unsupported report format: " + format);
+        }
+    }
+
+    /**
+     * File extension of a format, e.g. ".csv.gz".
+     */
+    public static String extension(String format) {
+        return "." + format.toLowerCase();
+    }
+
+    private static ReportSink create(String format, String basePath, int shardRows) throws IOException {
+        switch (format) {
+            case "XLSX":      return new ShardedReportSink(basePath, shardRows);
+            case "CSV":       return new CsvReportSink(basePath + ".csv", false);
+            case "CSV.GZ":    return new CsvReportSink(basePath + ".csv.gz", true);
+            case "NDJSON":    return new NdjsonReportSink(basePath + ".ndjson", false);
+            case "NDJSON.GZ": return new NdjsonReportSink(basePath + ".ndjson.gz", true);
+            default:
+                throw new IllegalArgumentException("Unsupported report format: " + format);
+        }
+    }
+
+    /**
+     * Fans results out to several sinks; finishing ends all of them first, so they complete in parallel.
+     */
+    private static final class MultiReportSink implements ReportSink {
+
+        private final List<ReportSink> sinks;
+
+        MultiReportSink(List<ReportSink> sinks) {
+            this.sinks = sinks;
+        }
+
+        @Override
+        public void write(ValidationResult r) throws IOException {
+            for (ReportSink s : sinks) s.write(r);
+        }
+
+        @Override
+        public void finish() throws IOException {
+            for (ReportSink s : sinks) {
+                if (s instanceof AsyncReportSink) ((AsyncReportSink) s).end();
+            }
+            // Sharded XLSX finishes on this thread while the other sinks complete
+            for (ReportSink s : sinks) {
+                if (!(s instanceof AsyncReportSink)) s.finish();
+            }
+            for (ReportSink s : sinks) {
+                if (s instanceof AsyncReportSink) ((AsyncReportSink) s).awaitFinished();
+            }
+        }
+
+        @Override
+        public String getPath() { return sinks.get(0).getPath(); }
+
+        @Override
+        public List<String> getPaths() {
+            List<String> paths = new ArrayList<>();
+            for (ReportSink s : sinks) paths.addAll(s.getPaths());
+            return paths;
+        }
+
+        @Override
+        public void close() throws IOException {
+            IOException first = null;
+            for (ReportSink s : sinks) {
+                try {
+                    s.close();
+                } catch (IOException e) {
+                    if (first == null) first = e;
+                }
+            }
+            if (first != null) throw first;
+        }
+    }
+}
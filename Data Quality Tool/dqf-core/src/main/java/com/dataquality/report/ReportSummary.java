@@ -0,0 +1,53 @@
+package com.dataquality.report;
+
+import com.dataquality.report.ExcelReportGenerator.ValidationResult;
+
+/**
+ * Running totals for the Summary sheet, updated as each result is written.
+ */
+public class ReportSummary {
+
+    /** Validation types in Summary sheet order. */
+    public static final String[] TYPES = {"Name", "Address", "Region", "Postal"};
+
+    public static final int NAME = 0;
+    public static final int ADDRESS = 1;
+    public static final int REGION = 2;
+    public static final int POSTAL = 3;
+
+    private int total = 0;
+    private int valid = 0;
+    private final int[] passed = new int[TYPES.length];
+
+    public void add(ValidationResult r) {
+        total++;
+        if (r.isValid(ValidationResult.RECORD_VALID)) valid++;
+        if (r.isValid(ValidationResult.NAME_VALID)) passed[NAME]++;
+        if (r.isValid(ValidationResult.ADDRESS_VALID)) passed[ADDRESS]++;
+        if (r.isValid(ValidationResult.REGION_VALID)) passed[REGION]++;
+        if (r.isValid(ValidationResult.POSTAL_VALID)) passed[POSTAL]++;
+    }
+
+    /**
+     * Adds the counts of another summary, e.g. of one report shard.
+     */
+    public void merge(ReportSummary o) {
+        total += o.total;
+        valid += o.valid;
+        for (int i = 0; i < passed.length; i++) passed[i] += o.passed[i];
+    }
+
+    public int getTotal() { return total; }
+
+    public int getValid() { return valid; }
+
+    public int getInvalid() { return total - valid; }
+
+    public int getPassed(int type) { return passed[type]; }
+
+    public int getFailed(int type) { return total - passed[type]; }
+
+    public double getPassPercent(int type) {
+        return total == 0 ? 0 : passed[type] * 100.0 / total;
+    }
+}
@@ -0,0 +1,149 @@
+package com.dataquality.report;
+
+import com.dataquality.report.ExcelReportGenerator.ValidationResult;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compact, gzip-compressed binary copy of a run's results, so a report in any format can be
+ * generated again later (e.g. streamed into a download) without re-running the validation.
+ *
+ * Record layout: MDMID, the eight text fields, status bits, match outcome, match score,
+ * duplicate cluster and the failure reasons text. Strings are length-prefixed UTF-8, -1 for null.
+ */
+public class ResultSpill implements ReportSink {
+
+    /** Appended to the report base path. */
+    public static final String EXTENSION = ".results.gz";
+
+    private static final int MAGIC = 0x44514652; // "DQFR"
+    private static final int VERSION = 1;
+    private static final int BUFFER = 1 << 16;
+
+    private final Path target;
+    private final Path tmp;
+    private final DataOutputStream out;
+    private boolean finished = false;
+
+    public ResultSpill(String filePath) throws IOException {
+        this.target = new File(filePath).getAbsoluteFile().toPath();
+        this.tmp = Files.createTempFile(target.getParent(), "dqf_results_", ".tmp");
+        this.out = new DataOutputStream(new BufferedOutputStream(
+                new GZIPOutputStream(new FileOutputStream(tmp.toFile()), BUFFER), BUFFER));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+    }
+
+    @Override
+    public void write(ValidationResult r) throws IOException {
+        out.writeByte(1); // record follows
+        out.writeInt(r.MDMID);
+        writeString(out, r.CustomerName);
+        writeString(out, r.AddressLine1);
+        writeString(out, r.city);
+        writeString(out, r.region);
+        writeString(out, r.country);
+        writeString(out, r.postal);
+        writeString(out, r.dunsnumber);
+        out.writeByte(r.status);
+        out.writeByte(r.matchOutcome);
+        out.writeDouble(r.matchScore);
+        out.writeInt(r.duplicateCluster);
+        writeString(out, r.hasReasons() ? r.remarks() : null);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        out.writeByte(0); // end marker, tells a complete spill from a truncated one
+        out.close();
+        Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        finished = true;
+    }
+
+    @Override
+    public String getPath() { return target.toString(); }
+
+    @Override
+    public void close() throws IOException {
+        if (finished) return;
+        try {
+            out.close();
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    /**
+     * Writes every result of the spill at {@code path} to {@code sink} (without finishing it).
+     *
+     * @return number of results
+     */
+    public static int replay(String path, ReportSink sink) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(path), BUFFER), BUFFER))) {
+
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a result spill: " + path);
+            }
+
+            byte[] buf = new byte[256];
+            int count = 0;
+            try {
+                while (in.readByte() != 0) {
+                    int id = in.readInt();
+                    String name = readString(in, buf);
+                    String address = readString(in, buf);
+                    String city = readString(in, buf);
+                    String region = readString(in, buf);
+                    String country = readString(in, buf);
+                    String postal = readString(in, buf);
+                    String duns = readString(in, buf);
+                    byte status = in.readByte();
+                    byte matchOutcome = in.readByte();
+                    double matchScore = in.readDouble();
+                    int cluster = in.readInt();
+                    String reasons = readString(in, buf);
+
+                    sink.write(new ValidationResult(id, name, address, city, region, country, postal, duns,
+                            status, matchOutcome, matchScore, cluster, reasons));
+                    count++;
+                }
+            } catch (EOFException e) {
+                throw new IOException("Result spill is truncated: " + path, e);
+            }
+            return count;
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String s) throws IOException {
+        if (s == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] b = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(b.length);
+        out.write(b);
+    }
+
+    private static String readString(DataInputStream in, byte[] buf) throws IOException {
+        int len = in.readInt();
+        if (len < 0) return null;
+        byte[] b = len <= buf.length ? buf : new byte[len];
+        in.readFully(b, 0, len);
+        return new String(b, 0, len, StandardCharsets.UTF_8);
+    }
+}
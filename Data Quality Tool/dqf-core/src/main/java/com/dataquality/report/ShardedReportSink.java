@@ -0,0 +1,154 @@
+package com.dataquality.report;
+
+import com.dataquality.report.ExcelReportGenerator.ValidationResult;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Excel report split into workbooks of at most {@code shardRows} rows.
+ *
+ * Every shard is an {@link ExcelReportWriter} on its own thread: when a shard is full it is
+ * ended and finishes (summary sheet, zip compression, file write) while the next shard is
+ * being filled. A run that fits into one shard produces the usual single {@code .xlsx}; larger
+ * runs are bundled as {@code <base>.zip} with the numbered shards and a Summary.xlsx over all
+ * rows.
+ */
+public class ShardedReportSink implements ReportSink {
+
+    private final String basePath;
+    private final int shardRows;
+
+    private final List<AsyncReportSink> shards = new ArrayList<>();
+    private final List<ExcelReportWriter> writers = new ArrayList<>();
+    private int rowsInShard = 0;
+
+    private String path;
+    private boolean finished = false;
+
+    /**
+     * @param basePath  output path without extension
+     * @param shardRows rows per shard; values outside 1..{@link ExcelReportWriter#MAX_ROWS} use the maximum
+     */
+    public ShardedReportSink(String basePath, int shardRows) {
+        this.basePath = basePath;
+        this.shardRows = shardRows <= 0 || shardRows > ExcelReportWriter.MAX_ROWS
+                ? ExcelReportWriter.MAX_ROWS : shardRows;
+        this.path = basePath + ".xlsx";
+    }
+
+    @Override
+    public void write(ValidationResult r) throws IOException {
+        if (shards.isEmpty() || rowsInShard >= shardRows) nextShard();
+        shards.get(shards.size() - 1).write(r);
+        rowsInShard++;
+    }
+
+    private void nextShard() throws IOException {
+        // The full shard finishes in the background while the next one fills
+        if (!shards.isEmpty()) shards.get(shards.size() - 1).end();
+
+        int n = shards.size() + 1;
+        ExcelReportWriter writer = new ExcelReportWriter(basePath + "_part" + n + ".xlsx");
+        writers.add(writer);
+        shards.add(new AsyncReportSink(writer, "xlsx-" + n));
+        rowsInShard = 0;
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (shards.isEmpty()) nextShard(); // empty run: header-only report
+
+        for (AsyncReportSink s : shards) s.end();
+        for (AsyncReportSink s : shards) s.awaitFinished();
+
+        // Reports of an earlier run in the other layout are dropped, so they are not served instead
+        Path target = Paths.get(basePath + ".xlsx").toAbsolutePath();
+        Path zip = Paths.get(basePath + ".zip").toAbsolutePath();
+        if (shards.size() == 1) {
+            Files.move(Paths.get(shards.get(0).getPath()), target, StandardCopyOption.REPLACE_EXISTING);
+            Files.deleteIfExists(zip);
+            path = target.toString();
+            finished = true;
+            return;
+        }
+
+        ReportSummary combined = new ReportSummary();
+        for (ExcelReportWriter w : writers) combined.merge(w.getSummary());
+
+        bundle(zip, combined);
+        Files.deleteIfExists(target);
+        path = zip.toString();
+        finished = true;
+    }
+
+    /**
+     * Writes the shards and the combined summary into {@code zip} and deletes the shard files.
+     * Entries are not compressed again: xlsx files are zip archives already.
+     */
+    private void bundle(Path zip, ReportSummary combined) throws IOException {
+        Path tmp = Files.createTempFile(zip.getParent(), "dqf_report_", ".zip.tmp");
+        try {
+            try (OutputStream fos = new BufferedOutputStream(Files.newOutputStream(tmp), 1 << 16);
+                 ZipOutputStream zos = new ZipOutputStream(fos)) {
+                zos.setLevel(0);
+
+                zos.putNextEntry(new ZipEntry("Summary.xlsx"));
+                ExcelReportWriter.writeSummary(combined, zos);
+                zos.closeEntry();
+
+                for (AsyncReportSink s : shards) {
+                    Path shard = Paths.get(s.getPath());
+                    zos.putNextEntry(new ZipEntry(shard.getFileName().toString()));
+                    Files.copy(shard, zos);
+                    zos.closeEntry();
+                }
+            }
+            Files.move(tmp, zip, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+
+        for (AsyncReportSink s : shards) Files.deleteIfExists(Paths.get(s.getPath()));
+    }
+
+    public int getShardCount() { return shards.size(); }
+
+    @Override
+    public String getPath() { return path; }
+
+    /**
+     * Releases the shards; if {@link #finish} did not complete, the shard files already written
+     * are deleted so a failed run leaves no {@code _partN.xlsx} behind.
+     */
+    @Override
+    public void close() throws IOException {
+        IOException first = null;
+        for (AsyncReportSink s : shards) {
+            try {
+                s.close();
+            } catch (IOException e) {
+                if (first == null) first = e;
+            }
+        }
+        if (!finished) {
+            for (AsyncReportSink s : shards) {
+                try {
+                    Files.deleteIfExists(Paths.get(s.getPath()));
+                } catch (IOException e) {
+                    if (first == null) first = e;
+                }
+            }
+        }
+        if (first != null) throw first;
+    }
+}
@@ -0,0 +1,106 @@
+package com.dataquality.report;
+
+import com.dataquality.report.ExcelReportGenerator.ValidationResult;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Line-oriented report sink: one line per result, optionally gzip-compressed.
+ * Written to a temp file next to the target and moved into place by {@link #finish()}, or
+ * straight into a caller's stream (e.g. an HTTP response).
+ */
+public abstract class TextReportSink implements ReportSink {
+
+    private static final int BUFFER = 1 << 16;
+
+    // Both null when writing to a caller's stream
+    private final Path target;
+    private final Path tmp;
+
+    private final GZIPOutputStream gz;
+    private final Writer out;
+    private final StringBuilder line = new StringBuilder(256);
+    private boolean finished = false;
+
+    protected TextReportSink(String filePath, boolean gzip) throws IOException {
+        this.target = new File(filePath).getAbsoluteFile().toPath();
+        this.tmp = Files.createTempFile(target.getParent(), "dqf_report_", ".tmp");
+
+        OutputStream os = new FileOutputStream(tmp.toFile());
+        this.gz = gzip ? new GZIPOutputStream(os, BUFFER) : null;
+        this.out = new BufferedWriter(new OutputStreamWriter(gzip ? gz : os, StandardCharsets.UTF_8), BUFFER);
+        writeHeader();
+    }
+
+    /**
+     * Writes into {@code os}; {@link #finish()} flushes (and ends the gzip stream) but leaves
+     * {@code os} open.
+     */
+    protected TextReportSink(OutputStream os, boolean gzip) throws IOException {
+        this.target = null;
+        this.tmp = null;
+        this.gz = gzip ? new GZIPOutputStream(os, BUFFER) : null;
+        this.out = new BufferedWriter(new OutputStreamWriter(gzip ? gz : os, StandardCharsets.UTF_8), BUFFER);
+        writeHeader();
+    }
+
+    private void writeHeader() throws IOException {
+        String header = header();
+        if (header != null) {
+            out.write(header);
+            out.write('\n');
+        }
+    }
+
+    /** First line of the file, or null. */
+    protected abstract String header();
+
+    /** Appends the line of {@code r} (without line break) to {@code sb}. */
+    protected abstract void format(ValidationResult r, StringBuilder sb);
+
+    @Override
+    public void write(ValidationResult r) throws IOException {
+        line.setLength(0);
+        format(r, line);
+        line.append('\n');
+        out.append(line);
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (target == null) {
+            out.flush();
+            if (gz != null) gz.finish();
+        } else {
+            out.close();
+            Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+        }
+        finished = true;
+    }
+
+    @Override
+    public String getPath() { return target == null ? null : target.toString(); }
+
+    @Override
+    public void close() throws IOException {
+        if (finished || target == null) return;
+        try {
+            out.close();
+        } finally {
+            Files.deleteIfExists(tmp);
+        }
+    }
+
+    protected static String ns(String s) { return s == null ? "" : s; }
+}
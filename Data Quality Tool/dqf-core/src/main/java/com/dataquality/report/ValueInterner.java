@@ -0,0 +1,36 @@
+package com.dataquality.report;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Shares one String instance between results of a run that repeat the same value (city,
+ * region, country, postal code). One instance per run ({@link com.dataquality.common.RunContext}),
+ * so the table goes away with the run. Bounded: once full, new values are returned as they are.
+ */
+public final class ValueInterner {
+
+    /** Interner that keeps every value as it is (results built outside a run). */
+    public static final ValueInterner NONE = new ValueInterner(0);
+
+    private static final int MAX_VALUES = 100_000;
+
+    private final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+    private final int maxValues;
+
+    public ValueInterner() {
+        this(MAX_VALUES);
+    }
+
+    private ValueInterner(int maxValues) {
+        this.maxValues = maxValues;
+    }
+
+    public String intern(String value) {
+        if (value == null) return null;
+        String shared = values.get(value);
+        if (shared != null) return shared;
+        if (values.size() >= maxValues) return value;
+        shared = values.putIfAbsent(value, value);
+        return shared == null ? value : shared;
+    }
+}
@@ -0,0 +1,63 @@
+package com.dataquality.common;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Ring-buffer cursors of the shared log stream. The stream is process-wide, so every test works
+ * relative to the head it finds.
+ */
+class CoreLogStreamTest {
+
+    @Test
+    void publishedLinesAreReadInOrderFromACursor() {
+        long from = CoreLogStream.head();
+        for (int i = 0; i < 5; i++) assertEquals(from + i, CoreLogStream.publish("line " + i));
+
+        assertEquals(from + 5, CoreLogStream.head());
+        assertTrue(CoreLogStream.hasLine(from));
+        assertFalse(CoreLogStream.hasLine(from + 5));
+
+        List<CoreLogStream.Line> lines = CoreLogStream.read(from + 1, 3);
+        assertEquals(3, lines.size());
+        for (int i = 0; i < 3; i++) {
+            assertEquals(from + 1 + i, lines.get(i).seq);
+            assertEquals("line " + (1 + i), lines.get(i).text);
+        }
+        assertTrue(CoreLogStream.read(from + 5, 10).isEmpty());
+    }
+
+    @Test
+    void readerThatFellBehindContinuesAtOldestLine() {
+        long from = CoreLogStream.head();
+        for (int i = 0; i < CoreLogStream.CAPACITY + 10; i++) CoreLogStream.publish("x" + i);
+
+        long oldest = CoreLogStream.oldest();
+        assertEquals(CoreLogStream.head() - CoreLogStream.CAPACITY, oldest);
+        assertTrue(oldest > from);
+
+        List<CoreLogStream.Line> lines = CoreLogStream.read(from, 4);
+        assertEquals(4, lines.size());
+        assertEquals(oldest, lines.get(0).seq);
+        assertEquals("x" + (oldest - from), lines.get(0).text);
+        assertTrue(CoreLogStream.hasLine(from));
+    }
+
+    @Test
+    void listenersRunAfterEveryPublish() {
+        int[] calls = new int[1];
+        Runnable l = () -> calls[0]++;
+        CoreLogStream.addListener(l);
+        try {
+            CoreLogStream.publish("a");
+            CoreLogStream.publish("b");
+        } finally {
+            CoreLogStream.removeListener(l);
+        }
+        CoreLogStream.publish("c");
+        assertEquals(2, calls[0]);
+    }
+}
@@ -0,0 +1,46 @@
+package com.dataquality.common;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FingerprintSetTest {
+
+    @Test
+    void addReportsDuplicates() {
+        FingerprintSet set = new FingerprintSet();
+        assertTrue(set.add("ACME|US|12345"));
+        assertTrue(set.add("ACME|US|12346"));
+        assertFalse(set.add("ACME|US|12345"));
+        assertEquals(2, set.size());
+    }
+
+    @Test
+    void keepsEveryKeyAcrossGrowth() {
+        FingerprintSet set = new FingerprintSet(16);
+        int n = 50_000;
+        for (int i = 0; i < n; i++) assertTrue(set.add("key-" + i));
+        for (int i = 0; i < n; i++) assertFalse(set.add("key-" + i));
+        assertEquals(n, set.size());
+    }
+
+    @Test
+    void zeroFingerprintIsAnOrdinaryValue() {
+        FingerprintSet set = new FingerprintSet();
+        assertTrue(set.add(0, 0));
+        assertFalse(set.add(0, 0));
+        assertTrue(set.add(0, 1));
+        assertTrue(set.add(1, 0));
+        assertFalse(set.add(0, 1));
+        assertEquals(3, set.size());
+    }
+
+    @Test
+    void collidingSlotsAreProbed() {
+        FingerprintSet set = new FingerprintSet(16);
+        // Same h1 (same home slot), different h2
+        for (long h2 = 1; h2 <= 20; h2++) assertTrue(set.add(42, h2));
+        for (long h2 = 1; h2 <= 20; h2++) assertFalse(set.add(42, h2));
+        assertEquals(20, set.size());
+    }
+}
@@ -0,0 +1,51 @@
+package com.dataquality.main;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pre-passes of Excel mode over the uploaded sheet.
+ */
+class DataQualityExcelToolTest {
+
+    // Name1, Street/House, City, Postal Code, Country, Region
+    private static Sheet sheet(XSSFWorkbook wb, String[]... rows) {
+        Sheet sheet = wb.createSheet();
+        String[] header = {"Name1", "Street/House", "City", "Postal Code", "Country", "Region"};
+        Row h = sheet.createRow(0);
+        for (int c = 0; c < header.length; c++) h.createCell(c).setCellValue(header[c]);
+        for (int r = 0; r < rows.length; r++) {
+            Row row = sheet.createRow(r + 1);
+            for (int c = 0; c < rows[r].length; c++) row.createCell(c).setCellValue(rows[r][c]);
+        }
+        return sheet;
+    }
+
+    @Test
+    void exactRepeatsAreDroppedBeforeClustering() throws Exception {
+        try (XSSFWorkbook wb = new XSSFWorkbook()) {
+            Sheet sheet = sheet(wb,
+                    new String[]{"ACME TRADING LTD", "12 MAIN STREET", "SPRINGFIELD", "12345", "US", "IL"},
+                    new String[]{"GLOBEX INDUSTRIES", "99 OCEAN DRIVE", "MIAMI", "33101", "US", "FL"},
+                    new String[]{"acme trading ltd", " 12 Main Street ", "Springfield", "12345", "us", "IL"},
+                    new String[]{"GLOBEX INDUSTRIE", "99 OCEAN DRIVE", "MIAMI", "33101", "US", "FL"});
+            int last = sheet.getLastRowNum();
+
+            boolean[] repeated = new boolean[last + 1];
+            assertEquals(1, DataQualityExcelTool.markRepeatedRows(sheet, last, repeated, 0, 1, 2, 5, 4, 3));
+            assertArrayEquals(new boolean[]{false, false, false, true, false}, repeated);
+
+            int[] clusters = DataQualityExcelTool.clusterDuplicates(sheet, last, repeated, 10, 0, 1, 2, 3);
+            // The ACME copy is gone, so ACME has no partner left; the two GLOBEX rows still cluster
+            assertEquals(0, clusters[1]);
+            assertEquals(0, clusters[3]);
+            assertTrue(clusters[2] > 0);
+            assertEquals(clusters[2], clusters[4]);
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package com.dataquality.main;
+
+import com.dataquality.common.RunContext;
+import com.dataquality.config.ConfigReader;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.postgresql.PGConnection;
+import org.postgresql.PGNotification;
+
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DataQualityListenerToolTest {
+
+    // batch 3, latency 1000 ms, linger 100 ms, at most 5 pending
+    private static DataQualityListenerTool.Pending pending() {
+        return new DataQualityListenerTool.Pending(3, 1000, 100, 5);
+    }
+
+    @Test
+    void batchIsDueWhenFull() {
+        DataQualityListenerTool.Pending p = pending();
+        p.add(1, 0);
+        p.add(2, 10);
+        assertFalse(p.due(20));
+        p.add(3, 20);
+        assertTrue(p.due(20));
+        assertEquals(List.of(1, 2, 3), p.next(3));
+    }
+
+    @Test
+    void duplicatesAreCoalesced() {
+        DataQualityListenerTool.Pending p = pending();
+        p.add(7, 0);
+        p.add(7, 10);
+        p.add(8, 20);
+        assertEquals(2, p.size());
+        assertFalse(p.due(20));
+    }
+
+    @Test
+    void batchIsDueAfterLingerOrMaxLatency() {
+        DataQualityListenerTool.Pending p = pending();
+        assertEquals(500, p.waitMs(0, 500)); // idle
+        assertFalse(p.due(0));
+
+        p.add(1, 0);
+        assertEquals(100, p.waitMs(0, 500));
+        assertFalse(p.due(99));
+        assertTrue(p.due(100)); // quiet for the linger time
+
+        // A steady trickle keeps the linger deadline moving, the latency limit does not move
+        DataQualityListenerTool.Pending q = pending();
+        q.add(1, 0);
+        for (long t = 50; t < 1000; t += 50) {
+            q.add(1, t);
+            assertFalse(q.due(t));
+        }
+        assertEquals(50, q.waitMs(950, 500));
+        assertTrue(q.due(1000));
+    }
+
+    @Test
+    void flushedIdsAreRemovedAndTheRestKeepTheirDeadline() {
+        DataQualityListenerTool.Pending p = new DataQualityListenerTool.Pending(2, 1000, 100, 50);
+        for (int i = 1; i <= 5; i++) p.add(i, 0);
+
+        List<Integer> batch = p.next(2);
+        assertEquals(List.of(1, 2), batch);
+        p.remove(batch);
+        assertEquals(3, p.size());
+        assertTrue(p.due(0)); // still full
+        p.remove(p.next(2));
+        assertFalse(p.due(50));
+        assertTrue(p.due(100));
+    }
+
+    @Test
+    void overflowSwitchesToOneRescan() {
+        DataQualityListenerTool.Pending p = pending();
+        for (int i = 1; i <= 6; i++) p.add(i, 0);
+
+        assertTrue(p.overflowed());
+        assertEquals(0, p.size()); // ids dropped, memory bounded
+        assertTrue(p.due(0));
+        assertEquals(1, p.waitMs(0, 500));
+
+        p.add(99, 1); // covered by the re-scan
+        assertEquals(0, p.size());
+
+        p.rescanned();
+        assertTrue(p.isEmpty());
+        assertFalse(p.due(1000));
+    }
+
+    @Test
+    void listenerRequiresTheTriggerFromTheSchemaTool(@TempDir Path dir) throws Exception {
+        try (EmbeddedPostgres pg = EmbeddedPostgres.start()) {
+            Map<String, String> settings = new HashMap<>();
+            settings.put("URL", pg.getJdbcUrl("postgres", "postgres"));
+            settings.put("USER", "postgres");
+            settings.put("Table_Name", "master");
+            settings.put("Id", "id");
+            ConfigReader cfg = ConfigReader.of(settings);
+
+            try (Connection c = pg.getPostgresDatabase().getConnection(); Statement st = c.createStatement()) {
+                st.execute("CREATE TABLE master (id INT PRIMARY KEY, name TEXT)");
+            }
+
+            List<String> log = new CopyOnWriteArrayList<>();
+            DataQualityListenerTool listener = new DataQualityListenerTool(new RunContext("t", cfg, dir, log::add));
+            assertTrue(listener.start());
+            for (int i = 0; i < 100 && listener.isRunning(); i++) Thread.sleep(50);
+            assertFalse(listener.isRunning());
+            assertTrue(log.stream().anyMatch(l -> l.startsWith("Listen Mode Failed: trigger dqf_record_changed_master")),
+                    log.toString());
+
+            try (Connection c = pg.getPostgresDatabase().getConnection(); Statement st = c.createStatement()) {
+                DataQualityListenerTool.installTrigger(c, cfg);
+                DataQualityListenerTool.installTrigger(c, cfg); // idempotent
+                assertTrue(DataQualityListenerTool.triggerInstalled(c, "master"));
+
+                st.execute("LISTEN " + DataQualityListenerTool.CHANNEL);
+                st.execute("INSERT INTO master VALUES (42, 'x')");
+                PGNotification[] notes = c.unwrap(PGConnection.class).getNotifications(1000);
+                assertEquals("42", notes[0].getParameter());
+            }
+        }
+    }
+}
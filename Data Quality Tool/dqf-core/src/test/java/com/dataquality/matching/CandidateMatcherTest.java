@@ -0,0 +1,118 @@
+package com.dataquality.matching;
+
+import com.dataquality.config.ConfigReader;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Candidate fetch limits, the canonical-key fast path and parallel scoring of
+ * {@link CandidateMatcher}, without a database.
+ */
+class CandidateMatcherTest {
+
+    private static ConfigReader config(String... pairs) {
+        Map<String, String> settings = new HashMap<>();
+        settings.put("Match_cache", "false");
+        settings.put("Phonetic_blocking", "false");
+        settings.put("Canonical_fast_path", "false");
+        for (int i = 0; i < pairs.length; i += 2) settings.put(pairs[i], pairs[i + 1]);
+        return ConfigReader.of(settings);
+    }
+
+    private static List<Candidate> candidates(int n) {
+        List<Candidate> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            // Every 97th candidate is close; the last close one is closest
+            String name = i % 97 == 0 ? (i == 4850 ? "ACME CORPORATION" : "ACME CORPORATIONS") : "GLOBEX " + i;
+            list.add(new Candidate(i, "D" + i, name, "1 MAIN STREET", "SPRINGFIELD"));
+        }
+        return list;
+    }
+
+    @Test
+    void candidateLimitAppliesWithAndWithoutPruning() {
+        for (String pruning : new String[]{"true", "false"}) {
+            List<Integer> limits = new ArrayList<>();
+            CandidateSource source = (conn, variants, postal, limit) -> {
+                limits.add(limit);
+                return candidates(3);
+            };
+            try (CandidateMatcher matcher = new CandidateMatcher(null,
+                    config("Ngram_pruning", pruning, "Candidate_limit", "40"), source, null)) {
+                matcher.match(null, Set.of("US"), "12345", "K", "GLOBEX 1", "1 MAIN STREET", "SPRINGFIELD");
+            }
+            assertEquals(List.of(40), limits, "Ngram_pruning = " + pruning);
+        }
+    }
+
+    @Test
+    void parallelScoringAgreesWithSequentialScoring() {
+        List<Candidate> list = candidates(10_000);
+        MatchResult sequential = CandidateMatcher.bestMatch(list, "ACME CORPORATION", "1 MAIN STREET", "SPRINGFIELD");
+        assertNotNull(sequential);
+        assertEquals(4850, sequential.id);
+
+        ExecutorService pool = Executors.newFixedThreadPool(3);
+        try {
+            MatchResult parallel = CandidateMatcher.bestMatchParallel(pool, 3, list,
+                    "ACME CORPORATION", "1 MAIN STREET", "SPRINGFIELD");
+            assertEquals(sequential.id, parallel.id);
+            assertEquals(sequential.score, parallel.score);
+
+            assertNull(CandidateMatcher.bestMatchParallel(pool, 3, candidates(10_000).subList(1, 97),
+                    "ACME CORPORATION", "1 MAIN STREET", "SPRINGFIELD"));
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void longListsAreScoredOnTheRunsPool() {
+        CandidateSource source = (conn, variants, postal, limit) -> candidates(10_000);
+        try (CandidateMatcher matcher = new CandidateMatcher(null, config("Ngram_pruning", "false",
+                "Candidate_limit", "0", "Parallel_scoring_threshold", "1000", "Scoring_threads", "2"), source, null)) {
+            MatchResult best = matcher.match(null, Set.of("US"), "12345", "K",
+                    "ACME CORPORATION", "1 MAIN STREET", "SPRINGFIELD");
+            assertEquals(4850, best.id);
+        }
+    }
+
+    @Test
+    void canonicalHitsAreScoredAndMustPassTheThresholds(@TempDir Path dir) throws Exception {
+        Path dictionary = dir.resolve("dictionary.txt");
+        Files.writeString(dictionary, "COMPANY => CO\nHOLDINGS =>\n");
+        ConfigReader cfg = config("Canonical_fast_path", "true", "Standardization_dictionary", dictionary.toString());
+
+        Candidate company = new Candidate(1, "111", "ACME GLOBAL TRADING AND LOGISTICS COMPANY",
+                "1 MAIN STREET", "SPRINGFIELD");
+        try (CandidateMatcher matcher = new CandidateMatcher(null, cfg,
+                (conn, variants, postal, limit) -> List.of(company), null)) {
+            MatchResult best = matcher.match(null, Set.of("US"), "1", "K1",
+                    "ACME GLOBAL TRADING AND LOGISTICS CO", "1 MAIN STREET", "SPRINGFIELD");
+            assertEquals(1, best.id);
+            assertEquals(FuzzyMatcher.score("ACME GLOBAL TRADING AND LOGISTICS CO", "1 MAIN STREET",
+                    "SPRINGFIELD", company), best.score);
+            assertTrue(best.score < 100.0);
+        }
+
+        // Same canonical key once HOLDINGS is dropped, but the names are too far apart
+        Candidate holdings = new Candidate(2, "222", "ACME HOLDINGS", "1 MAIN STREET", "SPRINGFIELD");
+        try (CandidateMatcher matcher = new CandidateMatcher(null, cfg,
+                (conn, variants, postal, limit) -> List.of(holdings), null)) {
+            assertNull(matcher.match(null, Set.of("US"), "2", "K2", "ACME", "1 MAIN STREET", "SPRINGFIELD"));
+        }
+    }
+}
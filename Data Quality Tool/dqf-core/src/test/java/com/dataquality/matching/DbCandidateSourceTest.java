@@ -0,0 +1,109 @@
+package com.dataquality.matching;
+
+import com.dataquality.config.ConfigReader;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Phonetic secondary block and its trigger-maintained key table against a local (embedded)
+ * PostgreSQL.
+ */
+class DbCandidateSourceTest {
+
+    private static EmbeddedPostgres pg;
+    private static ConfigReader cfg;
+
+    @BeforeAll
+    static void startDatabase() throws Exception {
+        pg = EmbeddedPostgres.start();
+
+        Map<String, String> settings = new HashMap<>();
+        settings.put("Table_Name", "master");
+        settings.put("Id", "id");
+        settings.put("Customer_name", "name");
+        settings.put("Address_locality_line_1", "address");
+        settings.put("Address_city", "city");
+        settings.put("Address_country_code", "country");
+        settings.put("Address_postal_code", "postal");
+        settings.put("Duns_Number", "duns");
+        cfg = ConfigReader.of(settings);
+
+        try (Connection c = connect(); Statement st = c.createStatement()) {
+            st.execute("CREATE TABLE master (id INT PRIMARY KEY, duns TEXT, name TEXT, address TEXT, " +
+                    "city TEXT, country TEXT, postal TEXT)");
+            st.execute("INSERT INTO master VALUES " +
+                    "(1, '111', 'KATHERINE TRADING COMPANY INTERNATIONAL', 'A', 'X', 'us', '1'), " +
+                    "(2, '222', 'CATHERINE TRADING', 'B', 'X', 'US', '2'), " +
+                    "(3, '333', 'KATHERINE TRADING CO', 'C', 'X', 'US', '3'), " +
+                    "(4, '444', 'CATHERINE TRADING', 'D', 'X', 'CA', '4'), " +
+                    "(5, '555', 'GLOBEX', 'E', 'X', 'US', '5')");
+        }
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        if (pg != null) pg.close();
+    }
+
+    private static Connection connect() throws SQLException {
+        return pg.getPostgresDatabase().getConnection();
+    }
+
+    @Test
+    void phoneticBlockReadsPersistedKeysClosestNamesFirst() throws Exception {
+        try (Connection c = connect()) {
+            assertTrue(new DbCandidateSource(cfg).fetchByPhoneticKey(
+                    c, Set.of("US"), PhoneticKey.of("CATHERINE TRADING"), "CATHERINE TRADING", 5).isEmpty());
+
+            assertEquals(5, PhoneticKeyTable.install(c, cfg));
+            assertEquals(0, PhoneticKeyTable.refresh(c, cfg)); // nothing changed
+            assertEquals(0, PhoneticKeyTable.install(c, cfg)); // idempotent
+
+            String key = PhoneticKey.of("CATHERINE TRADING");
+            List<Candidate> top = new DbCandidateSource(cfg).fetchByPhoneticKey(
+                    c, Set.of("US", "USA"), key, "CATHERINE TRADING", 2);
+            assertEquals(2, top.size());
+            assertEquals(2, top.get(0).id);
+            assertEquals(3, top.get(1).id);
+
+            try (Statement st = c.createStatement()) {
+                st.execute("UPDATE master SET name = 'GLOBEX' WHERE id = 2");
+                st.execute("DELETE FROM master WHERE id = 3");
+                st.execute("INSERT INTO master VALUES (6, '666', 'KATHRYN TRADING', 'F', 'X', 'US', '6')");
+                st.execute("UPDATE master SET address = 'G' WHERE id = 5"); // not a key column
+            }
+            // The trigger marked ids 2 and 6 stale; runs read the keys but never encode them
+            assertEquals(2, PhoneticKeyTable.staleCount(c, cfg));
+            top = new DbCandidateSource(cfg).fetchByPhoneticKey(c, Set.of("US"), key, "CATHERINE TRADING", 10);
+            assertEquals(List.of(1), top.stream().map(x -> x.id).toList());
+            assertEquals(2, PhoneticKeyTable.staleCount(c, cfg));
+
+            assertEquals(2, PhoneticKeyTable.refresh(c, cfg)); // ids 2 and 6
+            assertEquals(0, PhoneticKeyTable.staleCount(c, cfg));
+
+            top = new DbCandidateSource(cfg).fetchByPhoneticKey(c, Set.of("US"), key, "CATHERINE TRADING", 10);
+            assertEquals(List.of(6, 1), top.stream().map(x -> x.id).toList());
+
+            try (Statement st = c.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT count(*) FROM dqf_phonetic_master WHERE master_id = 3")) {
+                rs.next();
+                assertEquals(0, rs.getInt(1));
+            }
+        }
+    }
+}
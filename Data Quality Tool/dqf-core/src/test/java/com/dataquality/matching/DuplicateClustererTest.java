@@ -0,0 +1,61 @@
+package com.dataquality.matching;
+
+import com.dataquality.matching.DuplicateClusterer.Record;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DuplicateClustererTest {
+
+    private static Record r(String name, String address, String city, String postal) {
+        return new Record(name, address, city, postal);
+    }
+
+    @Test
+    void nearDuplicatesShareAClusterNumberedByFirstAppearance() {
+        List<Record> records = Arrays.asList(
+                r("GLOBEX INDUSTRIES", "22 OAK AVENUE", "SHELBYVILLE", "62565"),
+                r("ACME CORPORATION", "1 MAIN STREET", "SPRINGFIELD", "62701"),
+                r("INITECH", "9 ELM ROAD", "CAPITAL CITY", "10001"),
+                r("ACME CORPORATON", "1 MAIN STREET", "SPRINGFIELD", "62701"),
+                r("GLOBEX INDUSTRIE", "22 OAK AVENUE", "SHELBYVILLE", "62565"));
+
+        assertArrayEquals(new int[]{1, 2, 0, 2, 1}, DuplicateClusterer.cluster(records, 10));
+    }
+
+    @Test
+    void matchesChainIntoOneCluster() {
+        // A ~ B and B ~ C, while A and C alone are too far apart
+        List<Record> records = Arrays.asList(
+                r("NORTHWIND TRADERS LIMITED", "1 MAIN STREET", "SPRINGFIELD", "62701"),
+                r("NORTHWIND TRADING LIMITED", "1 MAIN STREET", "SPRINGFIELD", "62701"),
+                r("NORTHWIND TRADING LTD", "1 MAIN STREET", "SPRINGFIELD", "62701"));
+        assertEquals(FuzzyMatcher.NO_MATCH, FuzzyMatcher.score(
+                "NORTHWIND TRADERS LIMITED", "1 MAIN STREET", "SPRINGFIELD",
+                "NORTHWIND TRADING LTD", "1 MAIN STREET", "SPRINGFIELD"));
+
+        assertArrayEquals(new int[]{1, 1, 1}, DuplicateClusterer.cluster(records, 3));
+    }
+
+    @Test
+    void recordsWithoutNameOrAddressAreNeverClustered() {
+        List<Record> records = new ArrayList<>();
+        records.add(r("", "1 MAIN STREET", "SPRINGFIELD", "62701"));
+        records.add(null);
+        records.add(r("ACME CORPORATION", null, "SPRINGFIELD", "62701"));
+        records.add(r("", "1 MAIN STREET", "SPRINGFIELD", "62701"));
+        records.add(r("ACME CORPORATION", null, "SPRINGFIELD", "62701"));
+
+        assertArrayEquals(new int[5], DuplicateClusterer.cluster(records, 10));
+    }
+
+    @Test
+    void emptyInput() {
+        assertEquals(0, DuplicateClusterer.cluster(new ArrayList<>(), 10).length);
+    }
+}
@@ -0,0 +1,139 @@
+package com.dataquality.matching;
+
+import com.dataquality.config.ConfigReader;
+import com.dataquality.report.ReportCache;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Persistent match cache against a local (embedded) PostgreSQL with the change counters of
+ * DataQualitySchemaTool installed.
+ */
+class MatchCacheTest {
+
+    private static final String KEY = "ACME CORPORATION|1 MAIN STREET|SPRINGFIELD||US|12345";
+
+    private static final CandidateSource ACME = (conn, variants, postal, limit) ->
+            List.of(new Candidate(1, "111", "ACME CORPORATION", "1 MAIN STREET", "SPRINGFIELD"));
+    private static final CandidateSource NOTHING = (conn, variants, postal, limit) ->
+            Collections.emptyList();
+
+    private static EmbeddedPostgres pg;
+
+    @BeforeAll
+    static void startDatabase() throws Exception {
+        pg = EmbeddedPostgres.start();
+
+        try (Connection c = connect(); Statement st = c.createStatement()) {
+            st.execute("CREATE TABLE master (id INT PRIMARY KEY, duns TEXT, name TEXT, address TEXT, " +
+                    "city TEXT, country TEXT, postal TEXT)");
+            st.execute("CREATE TABLE country_region_postal_validation (alpha2code TEXT, alpha3code TEXT, " +
+                    "ebxregioncode__regioncode TEXT, requiresregion TEXT, requirespostalcode TEXT)");
+            st.execute("CREATE TABLE unversioned (id INT PRIMARY KEY)");
+            st.execute("INSERT INTO master VALUES " +
+                    "(1, '111', 'ACME CORPORATION', '1 MAIN STREET', 'SPRINGFIELD', 'US', '12345'), " +
+                    "(2, '222', 'GLOBEX', '2 OAK AVENUE', 'SPRINGFIELD', 'US', '12345')");
+
+            ReportCache.installVersionTriggers(c, config("master", 500));
+            MatchCache.install(c);
+        }
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        if (pg != null) pg.close();
+    }
+
+    private static Connection connect() throws SQLException {
+        return pg.getPostgresDatabase().getConnection();
+    }
+
+    private static ConfigReader config(String table, int candidateLimit) {
+        Map<String, String> settings = new HashMap<>();
+        settings.put("Table_Name", table);
+        settings.put("Id", "id");
+        settings.put("Customer_name", "name");
+        settings.put("Address_locality_line_1", "address");
+        settings.put("Address_city", "city");
+        settings.put("Address_country_code", "country");
+        settings.put("Address_postal_code", "postal");
+        settings.put("Duns_Number", "duns");
+        settings.put("Candidate_limit", String.valueOf(candidateLimit));
+        settings.put("Phonetic_blocking", "false");
+        return ConfigReader.of(settings);
+    }
+
+    // One window of a single row, as DataQualityExcelTool runs it
+    private static MatchResult matchWindow(Connection c, CandidateMatcher matcher) {
+        matcher.prefetch(c, List.of(KEY), List.of(Set.of("US")), List.of("12345"));
+        MatchResult best = matcher.match(c, Set.of("US"), "12345", KEY,
+                "ACME CORPORATION", "1 MAIN STREET", "SPRINGFIELD");
+        matcher.flush(c);
+        return best;
+    }
+
+    @Test
+    void cachedMatchIsReusedUntilTheMasterTableChanges() throws Exception {
+        ConfigReader cfg = config("master", 500);
+        try (Connection c = connect()) {
+            MatchResult fresh = matchWindow(c, new CandidateMatcher(c, cfg, ACME, null));
+            assertNotNull(fresh);
+            assertEquals(1, fresh.id);
+
+            // No candidates any more: only the cache can answer
+            CandidateMatcher cacheOnly = new CandidateMatcher(c, cfg, NOTHING, null);
+            MatchResult cached = matchWindow(c, cacheOnly);
+            assertNotNull(cached);
+            assertEquals(1, cached.id);
+            assertEquals("111", cached.duns);
+            assertEquals(fresh.score, cached.score);
+
+            // Any write to the master table bumps its counter and invalidates the entry
+            try (Statement st = c.createStatement()) {
+                st.executeUpdate("UPDATE master SET duns = '999' WHERE id = 1");
+            }
+            assertNull(matchWindow(c, cacheOnly));
+        }
+    }
+
+    @Test
+    void entriesAreScopedByTableAndMatchSettings() throws Exception {
+        ConfigReader cfg = config("master", 500);
+        assertEquals(MatchCache.scope(cfg), MatchCache.scope(config("master", 500)));
+        assertNotEquals(MatchCache.scope(cfg), MatchCache.scope(config("master", 100)));
+        assertNotEquals(MatchCache.scope(cfg), MatchCache.scope(config("master_copy", 500)));
+
+        try (Connection c = connect()) {
+            MatchCache cache = new MatchCache(cfg);
+            long version = cache.masterVersion(c);
+            cache.storeAll(c, List.of("SCOPED"), List.of(new MatchResult(2, "222", 95.0)), version);
+
+            assertEquals(2, cache.lookupAll(c, List.of("SCOPED", "OTHER"), version).get("SCOPED").id);
+            assertTrue(new MatchCache(config("master", 100)).lookupAll(c, List.of("SCOPED"), version).isEmpty());
+            assertTrue(cache.lookupAll(c, List.of("SCOPED"), version + 1).isEmpty());
+        }
+    }
+
+    @Test
+    void nothingIsCachedWithoutChangeCounters() throws Exception {
+        try (Connection c = connect()) {
+            assertNull(new MatchCache(config("unversioned", 500)).masterVersion(c));
+            assertNotNull(new MatchCache(config("master", 500)).masterVersion(c));
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.dataquality.matching;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Checks the bit-parallel and banded kernels against a plain Levenshtein DP.
+ */
+class SimilarityKernelTest {
+
+    @Test
+    void knownDistances() {
+        assertEquals(3, SimilarityKernel.boundedDistance("KITTEN", "SITTING", 10));
+        assertEquals(0, SimilarityKernel.boundedDistance("ACME", "ACME", 0));
+        assertEquals(4, SimilarityKernel.boundedDistance("", "ACME", 10));
+        assertEquals(100.0, SimilarityKernel.similarityPercent(null, ""));
+        assertEquals(50.0, SimilarityKernel.similarityPercent("ABCD", "ABXY"), 1e-9);
+    }
+
+    @Test
+    void boundedDistanceMatchesReferenceOrCutsOff() {
+        Random rnd = new Random(7);
+        for (int round = 0; round < 3000; round++) {
+            // Short patterns take the bit-parallel path, long ones the banded DP
+            int len = round % 3 == 0 ? 60 + rnd.nextInt(80) : rnd.nextInt(70);
+            String a = randomText(rnd, len);
+            String b = mutate(rnd, a);
+            int d = levenshtein(a, b);
+            for (int k : new int[]{0, 1, 3, d - 1, d, d + 2}) {
+                if (k < 0) continue;
+                int got = SimilarityKernel.boundedDistance(a, b, k);
+                assertEquals(d <= k ? d : k + 1, got, () -> "k=" + k + " a=" + a + " b=" + b);
+            }
+        }
+    }
+
+    @Test
+    void patternOfExactly64CharsAndNonLatinChars() {
+        String a = "\u00c4\u00d6\u00dc" + "\u0416\u0436".repeat(20) + "X".repeat(21);
+        assertEquals(64, a.length());
+        String b = a.replace('\u0416', 'Z');
+        assertEquals(levenshtein(a, b), SimilarityKernel.boundedDistance(a, b, 64));
+        assertEquals(levenshtein(a, b + "\u4e2d"), SimilarityKernel.boundedDistance(a, b + "\u4e2d", 64));
+    }
+
+    @Test
+    void similarityAtLeastAgreesWithFullSimilarity() {
+        Random rnd = new Random(11);
+        for (int round = 0; round < 2000; round++) {
+            String a = randomText(rnd, rnd.nextInt(40));
+            String b = mutate(rnd, a);
+            double full = SimilarityKernel.similarityPercent(a, b);
+            for (double t : new double[]{0, 50, 75, 80, 85, 90, 100}) {
+                double got = SimilarityKernel.similarityAtLeast(a, b, t);
+                if (full >= t) assertEquals(full, got, 0.0);
+                else assertEquals(-1, got, 0.0);
+            }
+        }
+    }
+
+    @Test
+    void maxAllowedDistanceIsTheLargestPassingDistance() {
+        for (int len = 1; len <= 200; len++) {
+            for (double t = 0; t <= 100; t += 2.5) {
+                int k = SimilarityKernel.maxAllowedDistance(len, t);
+                assertTrue(percent(k, len) >= t);
+                if (k < len) assertTrue(percent(k + 1, len) < t);
+            }
+        }
+        assertEquals(-1, SimilarityKernel.maxAllowedDistance(10, 101));
+    }
+
+    private static double percent(int dist, int len) {
+        return Math.max((1.0 - (double) dist / len) * 100.0, 0.0);
+    }
+
+    private static String randomText(Random rnd, int len) {
+        String alphabet = "ABCDE FGH";
+        StringBuilder sb = new StringBuilder(len);
+        for (int i = 0; i < len; i++) sb.append(alphabet.charAt(rnd.nextInt(alphabet.length())));
+        return sb.toString();
+    }
+
+    private static String mutate(Random rnd, String s) {
+        StringBuilder sb = new StringBuilder(s);
+        int edits = rnd.nextInt(Math.max(1, s.length() / 3) + 1);
+        for (int i = 0; i < edits; i++) {
+            int op = rnd.nextInt(3);
+            int pos = sb.length() == 0 ? 0 : rnd.nextInt(sb.length());
+            if (op == 0 || sb.length() == 0) sb.insert(pos, (char) ('A' + rnd.nextInt(6)));
+            else if (op == 1) sb.deleteCharAt(pos);
+            else sb.setCharAt(pos, (char) ('A' + rnd.nextInt(6)));
+        }
+        return sb.toString();
+    }
+
+    private static int levenshtein(String a, String b) {
+        int[] prev = new int[b.length() + 1];
+        int[] curr = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) prev[j] = j;
+        for (int i = 1; i <= a.length(); i++) {
+            curr[0] = i;
+            for (int j = 1; j <= b.length(); j++) {
+                int sub = prev[j - 1] + (a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1);
+                curr[j] = Math.min(sub, Math.min(prev[j] + 1, curr[j - 1] + 1));
+            }
+            int[] t = prev; prev = curr; curr = t;
+        }
+        return prev[b.length()];
+    }
+}
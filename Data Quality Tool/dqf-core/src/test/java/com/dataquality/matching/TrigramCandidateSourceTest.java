@@ -0,0 +1,109 @@
+package com.dataquality.matching;
+
+import com.dataquality.config.ConfigReader;
+
+import io.zonky.test.db.postgres.embedded.EmbeddedPostgres;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * pg_trgm setup and top-k ranking against a local (embedded) PostgreSQL.
+ */
+class TrigramCandidateSourceTest {
+
+    private static EmbeddedPostgres pg;
+    private static ConfigReader cfg;
+
+    @BeforeAll
+    static void startDatabase() throws Exception {
+        pg = EmbeddedPostgres.start();
+
+        Map<String, String> settings = new HashMap<>();
+        settings.put("Table_Name", "master");
+        settings.put("Id", "id");
+        settings.put("Customer_name", "name");
+        settings.put("Address_locality_line_1", "address");
+        settings.put("Address_city", "city");
+        settings.put("Address_country_code", "country");
+        settings.put("Duns_Number", "duns");
+        settings.put("Trgm_similarity_threshold", "0.3");
+        cfg = ConfigReader.of(settings);
+
+        try (Connection c = connect(); Statement st = c.createStatement()) {
+            st.execute("CREATE TABLE master (id INT PRIMARY KEY, duns TEXT, name TEXT, address TEXT, " +
+                    "city TEXT, country TEXT)");
+            st.execute("INSERT INTO master VALUES " +
+                    "(1, '111', 'ACME CORPORATION', '12 MAIN STREET', 'SPRINGFIELD', 'US'), " +
+                    "(2, '222', 'ACME CORP', '12 MAIN ST', 'SPRINGFIELD', 'US'), " +
+                    "(3, '333', 'GLOBEX INDUSTRIES', '99 OCEAN DRIVE', 'MIAMI', 'US'), " +
+                    "(4, '444', 'ACME CORPORATION', '12 MAIN STREET', 'TORONTO', 'CA')");
+        }
+    }
+
+    @AfterAll
+    static void stopDatabase() throws Exception {
+        if (pg != null) pg.close();
+    }
+
+    private static Connection connect() throws SQLException {
+        return pg.getPostgresDatabase().getConnection();
+    }
+
+    @Test
+    void prepareRefusesWithoutExtensionAndRunsNoDdl() throws Exception {
+        try (Connection c = connect(); Statement st = c.createStatement()) {
+            st.execute("DROP EXTENSION IF EXISTS pg_trgm CASCADE");
+            assertFalse(new TrigramCandidateSource(cfg, null).prepare(c));
+            try (ResultSet rs = st.executeQuery("SELECT count(*) FROM pg_extension WHERE extname = 'pg_trgm'")) {
+                rs.next();
+                assertEquals(0, rs.getInt(1));
+            }
+        }
+    }
+
+    @Test
+    void installedIndexesRankTopKByTrigramSimilarity() throws Exception {
+        try (Connection c = connect()) {
+            c.setAutoCommit(true);
+            TrigramCandidateSource.installIndexes(c, cfg);
+            TrigramCandidateSource.installIndexes(c, cfg); // idempotent
+
+            try (Statement st = c.createStatement();
+                 ResultSet rs = st.executeQuery("SELECT count(*) FROM pg_indexes " +
+                         "WHERE tablename = 'master' AND indexname LIKE 'dqf_trgm_master_%'")) {
+                rs.next();
+                assertEquals(2, rs.getInt(1));
+            }
+
+            TrigramCandidateSource source = new TrigramCandidateSource(cfg, null);
+            assertTrue(source.prepare(c));
+            try (Statement st = c.createStatement();
+                 ResultSet rs = st.executeQuery("SHOW pg_trgm.similarity_threshold")) {
+                rs.next();
+                assertEquals(0.3, Double.parseDouble(rs.getString(1)), 1e-9);
+            }
+
+            List<Candidate> top = source.fetchTopK(c, Set.of("US", "USA"), "ACME CORPORATION", "12 MAIN STREET", 2);
+            assertEquals(2, top.size());
+            assertEquals(1, top.get(0).id); // exact name first
+            assertEquals(2, top.get(1).id);
+
+            assertTrue(source.fetchTopK(c, Set.of("US"), "ZZZZ QQQQ", "NOWHERE", 5).isEmpty());
+            assertTrue(source.fetchTopK(c, Collections.emptySet(), "ACME", "MAIN", 5).isEmpty());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.dataquality.report;
+
+import com.dataquality.matching.Candidate;
+import com.dataquality.matching.DuplicatePair;
+
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DuplicatePairReportWriterTest {
+
+    @TempDir
+    Path dir;
+
+    private static DuplicatePair pair(int a, int b) {
+        return new DuplicatePair("US|12345",
+                new Candidate(a, "D" + a, "ACME", "1 MAIN ST", "SPRINGFIELD"),
+                new Candidate(b, "D" + b, "ACME INC", "1 MAIN ST", "SPRINGFIELD"), 93.456);
+    }
+
+    private static int rows(Path report) throws Exception {
+        try (InputStream in = Files.newInputStream(report); Workbook wb = new XSSFWorkbook(in)) {
+            return wb.getSheetAt(0).getLastRowNum();
+        }
+    }
+
+    @Test
+    void rewriteReplacesTheReportWithoutLeavingTempFiles() throws Exception {
+        Path report = dir.resolve("DuplicateReport.xlsx");
+
+        try (DuplicatePairReportWriter w = new DuplicatePairReportWriter()) {
+            w.add(pair(1, 2));
+            w.write(report.toString());
+        }
+        assertEquals(1, rows(report));
+
+        try (DuplicatePairReportWriter w = new DuplicatePairReportWriter()) {
+            w.add(pair(1, 2));
+            w.add(pair(3, 4));
+            w.write(report.toString());
+        }
+        assertEquals(2, rows(report));
+
+        try (Stream<Path> files = Files.list(dir)) {
+            assertEquals(1, files.count());
+        }
+    }
+}
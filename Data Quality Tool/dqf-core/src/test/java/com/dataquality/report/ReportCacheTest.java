@@ -0,0 +1,95 @@
+package com.dataquality.report;
+
+import com.dataquality.config.ConfigReader;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.io.File;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Report cache keys and entries on disk.
+ */
+class ReportCacheTest {
+
+    @TempDir
+    Path dir;
+
+    private ReportCache cache(int entries) {
+        return new ReportCache(ConfigReader.of(Map.of(
+                "Report_cache_dir", dir.resolve("cache").toString(),
+                "Report_cache_entries", String.valueOf(entries))));
+    }
+
+    // Output of one finished run
+    private Path run(String name, String content) throws Exception {
+        Path out = Files.createDirectories(dir.resolve(name));
+        Path report = out.resolve("ValidationReport_" + name + ".xlsx");
+        Files.writeString(report, content);
+        Files.writeString(out.resolve("ValidationReport_" + name + ".results"), content + " rows");
+        return report;
+    }
+
+    @Test
+    void hitsAreServedFromTheJobsOwnDirectoryAndSurviveEviction() throws Exception {
+        ReportCache cache = cache(1);
+        Path report = run("a", "first");
+        Path results = report.resolveSibling("ValidationReport_a.results");
+        cache.store("key-a", List.of(report.toString(), results.toString()), report.toString(), results.toString());
+
+        Path job = dir.resolve("runs").resolve("job-1");
+        ReportCache.Entry hit = cache.lookup("key-a", job);
+        assertNotNull(hit);
+        assertTrue(Path.of(hit.reportPath).startsWith(job));
+        assertTrue(Path.of(hit.resultsPath).startsWith(job));
+        assertEquals("first", Files.readString(Path.of(hit.reportPath)));
+
+        // A second entry evicts the first (one entry allowed); the job's files stay
+        Path other = run("b", "second");
+        cache.store("key-b", List.of(other.toString()), other.toString(), null);
+        assertNull(cache.lookup("key-a", dir.resolve("runs").resolve("job-2")));
+        assertEquals("first", Files.readString(Path.of(hit.reportPath)));
+        assertEquals("first rows", Files.readString(Path.of(hit.resultsPath)));
+    }
+
+    @Test
+    void missLeavesTheJobDirectoryAlone() {
+        Path job = dir.resolve("runs").resolve("job-1");
+        assertNull(cache(5).lookup("unknown", job));
+        assertFalse(Files.exists(job));
+    }
+
+    @Test
+    void keyCoversInputSettingsDictionaryFormatsAndMasterData() throws Exception {
+        File input = Files.writeString(dir.resolve("upload.xlsx"), "rows").toFile();
+        Path dictionary = Files.writeString(dir.resolve("dictionary.txt"), "STREET => ST\n");
+        Map<String, String> settings = new HashMap<>();
+        settings.put("Table_Name", "master");
+        settings.put("Standardization_dictionary", dictionary.toString());
+        ConfigReader cfg = ConfigReader.of(settings);
+
+        String key = ReportCache.key(input, cfg, "xlsx", "public.master:3;");
+        assertEquals(key, ReportCache.key(input, ConfigReader.of(new HashMap<>(settings)), "xlsx", "public.master:3;"));
+
+        assertNotEquals(key, ReportCache.key(input, cfg, "xlsx,csv", "public.master:3;"));
+        assertNotEquals(key, ReportCache.key(input, cfg, "xlsx", "public.master:4;"));
+
+        settings.put("Candidate_limit", "100");
+        assertNotEquals(key, ReportCache.key(input, ConfigReader.of(settings), "xlsx", "public.master:3;"));
+        settings.remove("Candidate_limit");
+
+        Files.writeString(dictionary, "STREET => STR\n");
+        String otherDictionary = ReportCache.key(input, cfg, "xlsx", "public.master:3;");
+        assertNotEquals(key, otherDictionary);
+
+        Files.writeString(input.toPath(), "other rows");
+        assertNotEquals(otherDictionary, ReportCache.key(input, cfg, "xlsx", "public.master:3;"));
+    }
+}
@@ -0,0 +1,37 @@
+package com.dataquality.report;
+
+import com.dataquality.report.ExcelReportGenerator.ValidationResult;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ValidationResultTest {
+
+    private static ValidationResult result(String name, String address, String region, String postal,
+                                           byte outcome, double score) {
+        return new ValidationResult(7, "ACME", "1 MAIN ST", "SPRINGFIELD", "IL", "US", "62701", "123",
+                name, address, region, postal, outcome, score, 0);
+    }
+
+    @Test
+    void failedChecksAreRenderedInFieldOrder() {
+        ValidationResult r = result("Name is empty", null, "Unknown region", "Bad postal",
+                ValidationResult.MATCH_NONE, 0.0);
+        assertFalse(r.isRecordValid());
+        assertTrue(r.hasReasons());
+        assertEquals("Name: Name is empty | Region: Unknown region | Postal: Bad postal", r.remarks());
+        assertEquals(ExcelReportGenerator.INVALID, r.nameStatus());
+        assertEquals(ExcelReportGenerator.VALID, r.addressStatus());
+    }
+
+    @Test
+    void validRecordsCarryOnlyTheMatchOutcome() {
+        ValidationResult r = result(null, null, null, null, ValidationResult.MATCH_FOUND, 91.5);
+        assertTrue(r.isRecordValid());
+        assertFalse(r.hasReasons());
+        assertEquals("Record exists (fuzzy match) | Score: 91.50%", r.remarks());
+
+        assertEquals("", result(null, null, null, null, ValidationResult.MATCH_NONE, 0.0).remarks());
+    }
+}
@@ -1,34 +1,109 @@
 package com.dataquality.web;
 
-import org.springframework.core.io.FileSystemResource;
+import com.dataquality.report.ReportSink;
+import com.dataquality.report.ReportSinks;
+import com.dataquality.report.ResultSpill;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
 
 @RestController
 public class DownloadController {
 
+    // Formats /download/report/stream can generate
+    private static final List<String> STREAM_FORMATS = Arrays.asList("XLSX", "CSV", "CSV.GZ", "NDJSON", "NDJSON.GZ");
+
+    /**
+     * The last run's report, with ETag / Last-Modified validators, byte ranges and gzip for the
+     * CSV and NDJSON formats (see {@link ReportFileSender}).
+     */
     @GetMapping("/download/report")
-    public ResponseEntity<?> downloadReport() {
+    public void downloadReport(HttpServletRequest request, HttpServletResponse response) throws IOException {
 
         String path = ReportTracker.getLastReportPath();
         if (path == null) {
-            return ResponseEntity.badRequest().body("No report available. Please run validation first.");
+            badRequest(response, "No report available. Please run validation first.");
+            return;
         }
 
         File file = new File(path);
         if (!file.exists()) {
-            return ResponseEntity.badRequest().body("Report file does not exist.");
+            badRequest(response, "Report file does not exist.");
+            return;
+        }
+
+        ReportFileSender.send(request, response, file, contentType(file.getName()).toString());
+    }
+
+    private static void badRequest(HttpServletResponse response, String message) throws IOException {
+        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write(message);
+    }
+
+    /**
+     * Generates the report of the latest successful run directly into the response from its
+     * result spill, without writing a report file (a given job's: /jobs/{id}/report/stream). CSV and NDJSON rows are sent as they are produced; XLSX is
+     * sent once the workbook is complete (a single sheet, so at most 1,048,575 rows).
+     *
+     * @param format XLSX (default), CSV, CSV.GZ, NDJSON or NDJSON.GZ
+     */
+    @GetMapping("/download/report/stream")
+    public ResponseEntity<?> streamReport(@RequestParam(value = "format", required = false) String format) {
+        return stream(ReportTracker.getLastResultsPath(), format);
+    }
+
+    /**
+     * Streams the report in {@code format} generated from the result spill at {@code resultsPath}
+     * (shared with /jobs/{id}/report/stream).
+     */
+    static ResponseEntity<?> stream(String resultsPath, String format) {
+
+        if (resultsPath == null || !new File(resultsPath).exists()) {
+            return ResponseEntity.badRequest().body("No results available. Please run validation first.");
+        }
+
+        String f = ReportSinks.parse(format).get(0);
+        if (!STREAM_FORMATS.contains(f)) {
+            return ResponseEntity.badRequest().body("Unsupported report format: " + format);
         }
 
-        FileSystemResource resource = new FileSystemResource(file);
+        String fileName = "ValidationReport" + ReportSinks.extension(f);
+
+        StreamingResponseBody body = out -> {
+            try (ReportSink sink = ReportSinks.openStream(f, out)) {
+                ResultSpill.replay(resultsPath, sink);
+                sink.finish();
+            }
+        };
 
         return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=ValidationReport.xlsx")
-                .contentType(MediaType.APPLICATION_OCTET_STREAM)
-                .body(resource);
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + fileName)
+                .contentType(contentType(fileName))
+                .body(body);
+    }
+
+    // Sharded reports are served as a zip bundle (shards + combined summary)
+    static MediaType contentType(String fileName) {
+        if (fileName.endsWith(".zip")) return MediaType.parseMediaType("application/zip");
+        if (fileName.endsWith(".xlsx")) {
+            return MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        }
+        if (fileName.endsWith(".gz")) return MediaType.parseMediaType("application/gzip");
+        if (fileName.endsWith(".csv")) return MediaType.parseMediaType("text/csv");
+        if (fileName.endsWith(".ndjson")) return MediaType.parseMediaType("application/x-ndjson");
+        return MediaType.APPLICATION_OCTET_STREAM;
     }
 }
\ No newline at end of file
@@ -0,0 +1,140 @@
+package com.dataquality.web;
+
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * One submitted run (DB mode, Excel mode, duplicate sweep) and its outcome.
+ * Public getters are the JSON of the /jobs endpoints.
+ */
+public class Job {
+
+    public enum Mode { DB, EXCEL, SWEEP }
+
+    public enum State { QUEUED, RUNNING, SUCCEEDED, FAILED }
+
+    /** Work of a job; sets the report paths on success and throws on failure. */
+    @FunctionalInterface
+    interface Task {
+        void run(Job job) throws Exception;
+    }
+
+    // Log lines kept per job for /jobs/{id}/log
+    private static final int LOG_LINES = 2000;
+
+    private final String id;
+    private final Mode mode;
+    private final String description;
+    private final long estimatedHeapBytes;
+    private final Task task;
+    private final Path outputDir;
+    private final Deque<String> log = new ArrayDeque<>();
+    private final Instant submittedAt = Instant.now();
+    private final CountDownLatch done = new CountDownLatch(1);
+
+    private volatile State state = State.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile String message;
+    private volatile String reportPath;
+    private volatile String resultsPath;
+
+    // Set once the job was reported as waiting for heap headroom
+    volatile boolean heapWaitLogged = false;
+
+    Job(String id, Mode mode, String description, long estimatedHeapBytes, Path outputDir, Task task) {
+        this.id = id;
+        this.mode = mode;
+        this.description = description;
+        this.estimatedHeapBytes = estimatedHeapBytes;
+        this.outputDir = outputDir;
+        this.task = task;
+    }
+
+    public String getId() { return id; }
+
+    public Mode getMode() { return mode; }
+
+    public String getDescription() { return description; }
+
+    public State getState() { return state; }
+
+    public Instant getSubmittedAt() { return submittedAt; }
+
+    public Instant getStartedAt() { return startedAt; }
+
+    public Instant getFinishedAt() { return finishedAt; }
+
+    /** Outcome text (success or failure). */
+    public String getMessage() { return message; }
+
+    /** Download URL of the report, or null while there is none. */
+    public String getReportUrl() {
+        return reportPath == null ? null : "/jobs/" + id + "/report";
+    }
+
+    public boolean isFinished() { return state == State.SUCCEEDED || state == State.FAILED; }
+
+    // ----------------- runner side -----------------
+
+    String reportPath() { return reportPath; }
+
+    String resultsPath() { return resultsPath; }
+
+    long estimatedHeapBytes() { return estimatedHeapBytes; }
+
+    /** Directory of this job's reports. */
+    Path outputDir() { return outputDir; }
+
+    void log(String line) {
+        synchronized (log) {
+            if (log.size() >= LOG_LINES) log.pollFirst();
+            log.addLast(line);
+        }
+    }
+
+    /** The job's most recent log lines, oldest first. */
+    List<String> logLines() {
+        synchronized (log) {
+            return new ArrayList<>(log);
+        }
+    }
+
+    void setReport(String reportPath, String resultsPath) {
+        this.reportPath = reportPath;
+        this.resultsPath = resultsPath;
+    }
+
+    void run() {
+        startedAt = Instant.now();
+        state = State.RUNNING;
+        try {
+            task.run(this);
+            message = description + " completed.";
+            state = State.SUCCEEDED;
+        } catch (Throwable t) {
+            message = t.getMessage() != null ? t.getMessage() : t.toString();
+            state = State.FAILED;
+        } finally {
+            finishedAt = Instant.now();
+            done.countDown();
+        }
+    }
+
+    void fail(String message) {
+        this.message = message;
+        finishedAt = Instant.now();
+        state = State.FAILED;
+        done.countDown();
+    }
+
+    /** Blocks until the job has finished. */
+    void await() throws InterruptedException {
+        done.await();
+    }
+}
@@ -0,0 +1,155 @@
+package com.dataquality.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Asynchronous runs: submitting returns 202 with the job id at once; status and report are
+ * fetched by id. 429 when the job queue is full.
+ */
+@RestController
+@RequestMapping("/jobs")
+public class JobController {
+
+    private final JobService jobService;
+
+    public JobController(JobService jobService) {
+        this.jobService = jobService;
+    }
+
+    @PostMapping("/db-mode")
+    public ResponseEntity<?> submitDbMode(@RequestParam(value = "formats", required = false) String formats) {
+        try {
+            return accepted(jobService.submit(Job.Mode.DB, "DB Mode", 0, j -> RunModes.db(j, formats)));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(429).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/excel-mode")
+    public ResponseEntity<?> submitExcelMode(@RequestParam("file") MultipartFile file,
+                                             @RequestParam(value = "formats", required = false) String formats) {
+        Path upload;
+        try {
+            upload = RunModes.storeUpload(file);
+        } catch (IOException e) {
+            return ResponseEntity.status(500).body("Upload could not be stored: " + e.getMessage());
+        }
+
+        try {
+            return accepted(jobService.submit(Job.Mode.EXCEL, "Excel Mode",
+                    file.getSize() * RunModes.EXCEL_HEAP_FACTOR,
+                    j -> RunModes.excel(j, upload, file.getOriginalFilename(), formats)));
+        } catch (RejectedExecutionException e) {
+            try { Files.deleteIfExists(upload); } catch (IOException ignored) {}
+            return ResponseEntity.status(429).body(e.getMessage());
+        }
+    }
+
+    @PostMapping("/duplicate-sweep")
+    public ResponseEntity<?> submitDuplicateSweep() {
+        try {
+            return accepted(jobService.submit(Job.Mode.SWEEP, "Duplicate Sweep", 0, RunModes::sweep));
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(429).body(e.getMessage());
+        }
+    }
+
+    @GetMapping
+    public List<Job> list() {
+        return jobService.list();
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<?> status(@PathVariable String id) {
+        Job job = jobService.get(id);
+        if (job == null) return ResponseEntity.status(404).body("Unknown job: " + id);
+        return ResponseEntity.ok(view(job));
+    }
+
+    /** The job's own log lines (the most recent ones for long runs). */
+    @GetMapping("/{id}/log")
+    public ResponseEntity<?> log(@PathVariable String id) {
+        Job job = jobService.get(id);
+        if (job == null) return ResponseEntity.status(404).body("Unknown job: " + id);
+        return ResponseEntity.ok(job.logLines());
+    }
+
+    @GetMapping("/{id}/report")
+    public void report(@PathVariable String id, HttpServletRequest request,
+                       HttpServletResponse response) throws IOException {
+        Job job = jobService.get(id);
+        if (job == null) {
+            plain(response, 404, "Unknown job: " + id);
+            return;
+        }
+        if (!job.isFinished()) {
+            plain(response, 409, "Job " + id + " is " + job.getState() + ".");
+            return;
+        }
+        String path = job.reportPath();
+        if (path == null || !new File(path).exists()) {
+            plain(response, 404, "Job " + id + " has no report.");
+            return;
+        }
+        File file = new File(path);
+        ReportFileSender.send(request, response, file, DownloadController.contentType(file.getName()).toString());
+    }
+
+    /**
+     * The job's report generated from its result spill directly into the response
+     * (see /download/report/stream).
+     */
+    @GetMapping("/{id}/report/stream")
+    public ResponseEntity<?> streamReport(@PathVariable String id,
+                                          @RequestParam(value = "format", required = false) String format) {
+        Job job = jobService.get(id);
+        if (job == null) return ResponseEntity.status(404).body("Unknown job: " + id);
+        if (!job.isFinished()) return ResponseEntity.status(409).body("Job " + id + " is " + job.getState() + ".");
+        if (job.resultsPath() == null) return ResponseEntity.status(404).body("Job " + id + " has no results.");
+        return DownloadController.stream(job.resultsPath(), format);
+    }
+
+    private ResponseEntity<?> accepted(Job job) {
+        return ResponseEntity.accepted()
+                .location(URI.create("/jobs/" + job.getId()))
+                .body(view(job));
+    }
+
+    // Job JSON plus the queue position while queued
+    private Map<String, Object> view(Job job) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("id", job.getId());
+        m.put("mode", job.getMode());
+        m.put("description", job.getDescription());
+        m.put("state", job.getState());
+        m.put("queuePosition", jobService.queuePosition(job));
+        m.put("submittedAt", job.getSubmittedAt());
+        m.put("startedAt", job.getStartedAt());
+        m.put("finishedAt", job.getFinishedAt());
+        m.put("message", job.getMessage());
+        m.put("reportUrl", job.getReportUrl());
+        return m;
+    }
+
+    private static void plain(HttpServletResponse response, int status, String message) throws IOException {
+        response.setStatus(status);
+        response.setContentType("text/plain");
+        response.setCharacterEncoding("UTF-8");
+        response.getWriter().write(message);
+    }
+}
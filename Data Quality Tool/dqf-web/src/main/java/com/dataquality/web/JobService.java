@@ -0,0 +1,228 @@
+package com.dataquality.web;
+
+import com.dataquality.common.CoreLogStream;
+
+import jakarta.annotation.PreDestroy;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Runs validation jobs in the background with admission control.
+ *
+ * Submitted jobs wait in a bounded FIFO queue (a full queue rejects the submission). A queued
+ * job starts when
+ *   - fewer than dqf.jobs.threads jobs are running,
+ *   - its mode is below its own limit (dqf.jobs.max-db / max-excel / max-sweep), and
+ *   - the free heap covers dqf.jobs.min-heap-headroom-mb plus the job's estimate
+ *     (skipped when nothing is running, so a job can always make progress).
+ * Jobs of a mode at its limit do not hold up jobs of other modes behind them. Finished jobs
+ * are kept for status queries up to dqf.jobs.history entries.
+ *
+ * Every job writes its reports to its own directory under dqf.jobs.output-dir (default
+ * "runs" in the working directory); the directory is deleted when the job leaves the history,
+ * except for the job whose report /download/report serves (see {@link ReportTracker}), which
+ * stays until a newer run takes its place.
+ */
+@Service
+public class JobService {
+
+    private final int threads;
+    private final int queueCapacity;
+    private final int history;
+    private final long minHeadroomBytes;
+    private final Path outputRoot;
+    private final Map<Job.Mode, Integer> modeLimits = new EnumMap<>(Job.Mode.class);
+
+    private final ExecutorService executor;
+
+    private final Deque<Job> pending = new ArrayDeque<>();
+    private final Map<Job.Mode, Integer> running = new EnumMap<>(Job.Mode.class);
+    private int runningTotal = 0;
+
+    // All known jobs in submission order, oldest evicted first once finished
+    private final Map<String, Job> jobs = new LinkedHashMap<>();
+
+    public JobService(@Value("${dqf.jobs.threads:4}") int threads,
+                      @Value("${dqf.jobs.queue-capacity:20}") int queueCapacity,
+                      @Value("${dqf.jobs.max-db:2}") int maxDb,
+                      @Value("${dqf.jobs.max-excel:3}") int maxExcel,
+                      @Value("${dqf.jobs.max-sweep:1}") int maxSweep,
+                      @Value("${dqf.jobs.min-heap-headroom-mb:256}") long minHeadroomMb,
+                      @Value("${dqf.jobs.history:100}") int history,
+                      @Value("${dqf.jobs.output-dir:}") String outputDir) {
+        this.threads = Math.max(1, threads);
+        this.queueCapacity = Math.max(1, queueCapacity);
+        this.history = Math.max(1, history);
+        this.minHeadroomBytes = Math.max(0, minHeadroomMb) * 1024L * 1024L;
+        this.outputRoot = (outputDir == null || outputDir.trim().isEmpty()
+                ? Paths.get(System.getProperty("user.dir"), "runs") : Paths.get(outputDir.trim())).toAbsolutePath();
+        modeLimits.put(Job.Mode.DB, Math.max(1, maxDb));
+        modeLimits.put(Job.Mode.EXCEL, Math.max(1, maxExcel));
+        modeLimits.put(Job.Mode.SWEEP, Math.max(1, maxSweep));
+        for (Job.Mode m : Job.Mode.values()) running.put(m, 0);
+
+        AtomicInteger n = new AtomicInteger();
+        // dispatch() never starts more than 'threads' jobs, so the pool's own queue stays empty
+        this.executor = Executors.newFixedThreadPool(this.threads, r -> {
+            Thread t = new Thread(r, "dqf-job-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Queues a job.
+     *
+     * @param estimatedHeapBytes heap the job is expected to need on top of the base headroom
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public Job submit(Job.Mode mode, String description, long estimatedHeapBytes, Job.Task task) {
+        String id = UUID.randomUUID().toString();
+        Job job = new Job(id, mode, description, estimatedHeapBytes, outputRoot.resolve(id), task);
+        synchronized (this) {
+            if (pending.size() >= queueCapacity) {
+                throw new RejectedExecutionException("Job queue is full (" + queueCapacity
+                        + " waiting). Please try again later.");
+            }
+            pending.addLast(job);
+            jobs.put(job.getId(), job);
+            trimHistory();
+        }
+        dispatch();
+        return job;
+    }
+
+    public synchronized Job get(String id) {
+        return jobs.get(id);
+    }
+
+    /** Known jobs, newest first. */
+    public synchronized List<Job> list() {
+        List<Job> out = new ArrayList<>(jobs.values());
+        Collections.reverse(out);
+        return out;
+    }
+
+    /** 1-based position in the queue, 0 if the job is not queued. */
+    public synchronized int queuePosition(Job job) {
+        int i = 1;
+        for (Job j : pending) {
+            if (j == job) return i;
+            i++;
+        }
+        return 0;
+    }
+
+    // Re-checks heap-gated jobs; finished jobs dispatch on their own
+    @Scheduled(fixedDelay = 1000)
+    public void retryAdmission() {
+        dispatch();
+    }
+
+    private void dispatch() {
+        List<Job> start = new ArrayList<>();
+        synchronized (this) {
+            Iterator<Job> it = pending.iterator();
+            while (it.hasNext() && runningTotal < threads) {
+                Job job = it.next();
+                if (running.get(job.getMode()) >= modeLimits.get(job.getMode())) continue;
+
+                if (runningTotal > 0 && headroom() < minHeadroomBytes + job.estimatedHeapBytes()) {
+                    if (!job.heapWaitLogged) {
+                        job.heapWaitLogged = true;
+                        CoreLogStream.publish("Job " + job.getId() + " (" + job.getDescription()
+                                + ") is waiting for free memory.");
+                    }
+                    break; // keep FIFO order among admissible jobs
+                }
+
+                it.remove();
+                running.merge(job.getMode(), 1, Integer::sum);
+                runningTotal++;
+                start.add(job);
+            }
+        }
+        for (Job job : start) executor.execute(() -> runJob(job));
+    }
+
+    private void runJob(Job job) {
+        try {
+            job.run();
+        } finally {
+            synchronized (this) {
+                running.merge(job.getMode(), -1, Integer::sum);
+                runningTotal--;
+            }
+            dispatch();
+        }
+    }
+
+    private void trimHistory() {
+        Iterator<Job> it = jobs.values().iterator();
+        while (jobs.size() > history && it.hasNext()) {
+            Job job = it.next();
+            if (job.isFinished() && !servesLastReport(job)) {
+                it.remove();
+                deleteOutput(job);
+            }
+        }
+    }
+
+    // Whether /download/report (or its stream) points into the job's output
+    private static boolean servesLastReport(Job job) {
+        String report = ReportTracker.getLastReportPath();
+        String results = ReportTracker.getLastResultsPath();
+        return (report != null && Paths.get(report).startsWith(job.outputDir()))
+                || (results != null && Paths.get(results).startsWith(job.outputDir()));
+    }
+
+    private static void deleteOutput(Job job) {
+        Path dir = job.outputDir();
+        if (!Files.isDirectory(dir)) return;
+        try (Stream<Path> s = Files.walk(dir)) {
+            for (Path p : (Iterable<Path>) s.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(p);
+            }
+        } catch (IOException e) {
+            CoreLogStream.publish("Output of job " + job.getId() + " not deleted: " + e.getMessage());
+        }
+    }
+
+    // Heap that can still be allocated: max heap minus what is in use
+    private static long headroom() {
+        Runtime rt = Runtime.getRuntime();
+        return rt.maxMemory() - (rt.totalMemory() - rt.freeMemory());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        synchronized (this) {
+            for (Job job : pending) job.fail("Server shutting down.");
+            pending.clear();
+        }
+        executor.shutdownNow();
+    }
+}
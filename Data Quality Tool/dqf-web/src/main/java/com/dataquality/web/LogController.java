@@ -1,19 +1,18 @@
 package com.dataquality.web;
 
-import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 @RestController
 public class LogController {
 
-    @GetMapping("/logs/stream")
-    public SseEmitter streamLogs() {
-        return LogStream.subscribe();
-    }
+    @Value("${dqf.logs.max-lag:4096}")
+    private int maxLag;
 
-    @Scheduled(fixedRate = 200)
-    public void flushLogs() {
-        LogStream.flush();
+    @GetMapping("/logs/stream")
+    public SseEmitter streamLogs(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return LogStream.subscribe(lastEventId, maxLag);
     }
-}
\ No newline at end of file
+}
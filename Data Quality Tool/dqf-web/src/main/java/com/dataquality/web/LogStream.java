@@ -2,38 +2,118 @@ package com.dataquality.web;
 
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 import java.io.IOException;
-import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import com.dataquality.common.CoreLogStream;
 
+/**
+ * Sends the shared log stream ({@link CoreLogStream}) to the UI consoles over SSE.
+ *
+ * Every subscriber has its own cursor and its own sender: a publish only wakes the senders up,
+ * and each one sends on a thread of its own, so a slow browser holds up nobody but itself.
+ * Events carry the line's sequence number as their id, so a reconnecting EventSource continues
+ * after the last line it saw (Last-Event-ID). A subscriber that falls more than its maximum lag
+ * behind skips ahead to the newest lines and is told how many it missed.
+ */
 public class LogStream {
 
-    private static final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    // Lines sent per wake-up before the cursor is re-checked
+    private static final int BATCH = 256;
 
-    public static SseEmitter subscribe() {
+    private static final AtomicInteger threadCount = new AtomicInteger();
+
+    // At most one running sender per subscriber; idle threads go away after a minute
+    private static final ExecutorService senders = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "dqf-log-sender-" + threadCount.incrementAndGet());
+        t.setDaemon(true);
+        return t;
+    });
+
+    /**
+     * @param lastEventId Last-Event-ID of a reconnecting client, or null to start with new lines
+     * @param maxLag      lines a subscriber may fall behind before older ones are dropped
+     */
+    public static SseEmitter subscribe(String lastEventId, int maxLag) {
         SseEmitter emitter = new SseEmitter(0L);
-        emitters.add(emitter);
+        Subscriber s = new Subscriber(emitter, startCursor(lastEventId),
+                Math.max(1, Math.min(maxLag, CoreLogStream.CAPACITY)));
 
-        emitter.onCompletion(() -> emitters.remove(emitter));
-        emitter.onTimeout(() -> emitters.remove(emitter));
-        emitter.onError((e) -> emitters.remove(emitter));
+        emitter.onCompletion(s::close);
+        emitter.onTimeout(s::close);
+        emitter.onError((e) -> s.close());
 
+        CoreLogStream.addListener(s.wakeUp);
+        s.wakeUp.run(); // replay after Last-Event-ID
         return emitter;
     }
 
-    // This is called from LogController every 200ms
-    public static void flush() {
-        List<String> msgs = CoreLogStream.drain();
-        if (msgs.isEmpty()) return;
+    // Resumes after Last-Event-ID; an id ahead of head is from before a server restart
+    static long startCursor(String lastEventId) {
+        long head = CoreLogStream.head();
+        if (lastEventId != null) {
+            try {
+                return Math.min(Long.parseLong(lastEventId.trim()) + 1, head);
+            } catch (NumberFormatException ignored) {}
+        }
+        return head;
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final int maxLag;
+        private final AtomicBoolean scheduled = new AtomicBoolean();
+        private volatile boolean closed = false;
 
-        for (SseEmitter emitter : emitters) {
+        // Next sequence to send; only the running sender touches it
+        private long cursor;
+
+        final Runnable wakeUp = () -> {
+            if (!closed && scheduled.compareAndSet(false, true)) senders.execute(this::send);
+        };
+
+        Subscriber(SseEmitter emitter, long cursor, int maxLag) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+            this.maxLag = maxLag;
+        }
+
+        private void send() {
             try {
-                for (String msg : msgs) {
-                    emitter.send(SseEmitter.event().data(msg));
+                while (!closed) {
+                    long head = CoreLogStream.head();
+                    long from = Math.max(cursor, Math.max(CoreLogStream.oldest(), head - maxLag));
+                    List<CoreLogStream.Line> lines = CoreLogStream.read(from, BATCH);
+                    if (!lines.isEmpty()) {
+                        long dropped = lines.get(0).seq - cursor;
+                        if (dropped > 0) {
+                            emitter.send(SseEmitter.event().data("... " + dropped + " log lines skipped ..."));
+                        }
+                        for (CoreLogStream.Line line : lines) {
+                            emitter.send(SseEmitter.event().id(Long.toString(line.seq)).data(line.text));
+                        }
+                        cursor = lines.get(lines.size() - 1).seq + 1;
+                        continue;
+                    }
+
+                    // Caught up: stand down, unless a line arrived after the last read
+                    scheduled.set(false);
+                    if (!CoreLogStream.hasLine(cursor) || !scheduled.compareAndSet(false, true)) return;
                 }
-            } catch (IOException e) {
-                emitters.remove(emitter);
+            } catch (IOException | IllegalStateException e) {
+                close();
+                emitter.completeWithError(e);
+            } finally {
+                if (closed) scheduled.set(false);
             }
         }
+
+        void close() {
+            closed = true;
+            CoreLogStream.removeListener(wakeUp);
+        }
     }
-}
\ No newline at end of file
+}
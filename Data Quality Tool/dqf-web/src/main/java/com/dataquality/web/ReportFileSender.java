@@ -0,0 +1,254 @@
+package com.dataquality.web;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.springframework.http.HttpHeaders;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Sends a report file with HTTP validators and byte ranges.
+ *
+ * - Strong ETag (size, modification time, file key) and Last-Modified; If-None-Match /
+ *   If-Modified-Since answer 304. Reports are only ever replaced by a rename, so the same
+ *   validators always mean the same bytes.
+ * - Single byte ranges (206, 416), honouring If-Range; multi-range requests get the whole file.
+ * - Zero-copy: on Tomcat the body is handed to the connector's sendfile, elsewhere it is
+ *   transferred from a FileChannel.
+ * - CSV and NDJSON reports are sent gzip-compressed to clients that accept it, from a .gz
+ *   variant created once next to the file, so ranges and sendfile work for it as well.
+ */
+final class ReportFileSender {
+
+    // Tomcat sendfile request attributes
+    private static final String SENDFILE_SUPPORT = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+    private static final Object GZIP_LOCK = new Object();
+
+    private ReportFileSender() {}
+
+    static void send(HttpServletRequest request, HttpServletResponse response,
+                     File file, String contentType) throws IOException {
+
+        boolean compressible = isCompressible(file.getName());
+        File body = file;
+        String encoding = null;
+        if (compressible && acceptsGzip(request)) {
+            body = gzipVariant(file);
+            encoding = "gzip";
+        }
+
+        BasicFileAttributes attrs = Files.readAttributes(body.toPath(), BasicFileAttributes.class);
+        long length = attrs.size();
+        long lastModified = attrs.lastModifiedTime().toMillis();
+        String etag = etag(attrs, encoding);
+
+        response.setHeader(HttpHeaders.ETAG, etag);
+        response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+        response.setHeader(HttpHeaders.ACCEPT_RANGES, "bytes");
+        // The URL always points at the latest report: cache, but revalidate every time
+        response.setHeader(HttpHeaders.CACHE_CONTROL, "private, no-cache");
+        if (compressible) response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+
+        if (notModified(request, etag, lastModified)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            return;
+        }
+
+        response.setContentType(contentType);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=" + file.getName());
+        if (encoding != null) response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding);
+
+        long start = 0;
+        long end = length; // exclusive
+        String range = request.getHeader(HttpHeaders.RANGE);
+        if (range != null && ifRangeMatches(request, etag, lastModified)) {
+            long[] r = parseRange(range, length);
+            if (r == null) {
+                // Not a single byte range: send the whole file
+            } else if (r.length == 0) {
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes */" + length);
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                return;
+            } else {
+                start = r[0];
+                end = r[1] + 1;
+                response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "bytes " + start + "-" + r[1] + "/" + length);
+            }
+        }
+
+        response.setContentLengthLong(end - start);
+        if ("HEAD".equals(request.getMethod()) || end == start) return;
+
+        if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORT))) {
+            request.setAttribute(SENDFILE_FILENAME, body.getCanonicalPath());
+            request.setAttribute(SENDFILE_START, start);
+            request.setAttribute(SENDFILE_END, end);
+            return;
+        }
+
+        try (FileChannel ch = FileChannel.open(body.toPath(), StandardOpenOption.READ)) {
+            OutputStream out = response.getOutputStream();
+            WritableByteChannel target = Channels.newChannel(out);
+            long pos = start;
+            while (pos < end) {
+                long n = ch.transferTo(pos, end - pos, target);
+                if (n <= 0) break;
+                pos += n;
+            }
+            out.flush();
+        }
+    }
+
+    private static String etag(BasicFileAttributes attrs, String encoding) {
+        StringBuilder sb = new StringBuilder("\"");
+        sb.append(Long.toHexString(attrs.size())).append('-')
+                .append(Long.toHexString(attrs.lastModifiedTime().toMillis()));
+        Object key = attrs.fileKey();
+        if (key != null) sb.append('-').append(Integer.toHexString(key.hashCode()));
+        if (encoding != null) sb.append('-').append(encoding);
+        return sb.append('"').toString();
+    }
+
+    static boolean notModified(HttpServletRequest request, String etag, long lastModified) {
+        String ifNoneMatch = request.getHeader(HttpHeaders.IF_NONE_MATCH);
+        if (ifNoneMatch != null) {
+            for (String tag : ifNoneMatch.split(",")) {
+                String t = tag.trim();
+                if (t.startsWith("W/")) t = t.substring(2); // weak comparison for If-None-Match
+                if (t.equals("*") || t.equals(etag)) return true;
+            }
+            return false;
+        }
+        long since = dateHeader(request, HttpHeaders.IF_MODIFIED_SINCE);
+        return since >= 0 && lastModified / 1000 <= since / 1000;
+    }
+
+    // If-Range holds a strong ETag or the exact Last-Modified date; otherwise the Range is ignored
+    static boolean ifRangeMatches(HttpServletRequest request, String etag, long lastModified) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) return true;
+        String v = ifRange.trim();
+        if (v.startsWith("\"")) return v.equals(etag);
+        if (v.startsWith("W/")) return false;
+        long date = dateHeader(request, HttpHeaders.IF_RANGE);
+        return date >= 0 && date / 1000 == lastModified / 1000;
+    }
+
+    /**
+     * Inclusive {start, end} of a single "bytes=" range, an empty array if it cannot be
+     * satisfied, or null if the header is not a single byte range.
+     */
+    static long[] parseRange(String header, long length) {
+        String h = header.trim();
+        if (!h.startsWith("bytes=") || h.indexOf(',') >= 0) return null;
+        String spec = h.substring(6).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) return null;
+
+        try {
+            String a = spec.substring(0, dash).trim();
+            String b = spec.substring(dash + 1).trim();
+            long start;
+            long end;
+            if (a.isEmpty()) {
+                // Suffix range: the last N bytes
+                if (b.isEmpty()) return null;
+                long suffix = Long.parseLong(b);
+                if (suffix <= 0 || length == 0) return new long[0];
+                start = Math.max(0, length - suffix);
+                end = length - 1;
+            } else {
+                start = Long.parseLong(a);
+                if (b.isEmpty()) {
+                    end = length - 1;
+                } else {
+                    long last = Long.parseLong(b);
+                    if (last < start) return null; // invalid range, ignored
+                    end = Math.min(last, length - 1);
+                }
+                if (start >= length) return new long[0];
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    private static long dateHeader(HttpServletRequest request, String name) {
+        try {
+            return request.getDateHeader(name);
+        } catch (IllegalArgumentException ex) {
+            return -1;
+        }
+    }
+
+    private static boolean isCompressible(String name) {
+        return name.endsWith(".csv") || name.endsWith(".ndjson");
+    }
+
+    private static boolean acceptsGzip(HttpServletRequest request) {
+        String ae = request.getHeader(HttpHeaders.ACCEPT_ENCODING);
+        if (ae == null) return false;
+        for (String part : ae.split(",")) {
+            String[] p = part.trim().split(";");
+            if (!p[0].trim().equalsIgnoreCase("gzip")) continue;
+            for (int i = 1; i < p.length; i++) {
+                String param = p[i].trim();
+                if (!param.startsWith("q=")) continue;
+                try {
+                    return Double.parseDouble(param.substring(2)) > 0;
+                } catch (NumberFormatException ex) {
+                    return false;
+                }
+            }
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * Hidden ".name.gz" next to {@code file}, created on first use. It carries the modification
+     * time of {@code file}, so a replaced report gets a fresh variant.
+     */
+    private static File gzipVariant(File file) throws IOException {
+        Path src = file.toPath();
+        Path gz = src.resolveSibling("." + file.getName() + ".gz");
+        FileTime srcTime = Files.getLastModifiedTime(src);
+
+        synchronized (GZIP_LOCK) {
+            if (Files.isRegularFile(gz) && Files.getLastModifiedTime(gz).equals(srcTime)) return gz.toFile();
+
+            Path tmp = Files.createTempFile(src.getParent(), ".dqf_gzip_", ".tmp");
+            try {
+                try (InputStream in = Files.newInputStream(src);
+                     OutputStream out = new GZIPOutputStream(Files.newOutputStream(tmp), 1 << 16)) {
+                    in.transferTo(out);
+                }
+                Files.setLastModifiedTime(tmp, srcTime);
+                Files.move(tmp, gz, StandardCopyOption.REPLACE_EXISTING);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+            return gz.toFile();
+        }
+    }
+}
@@ -1,14 +1,27 @@
 package com.dataquality.web;
 
+/**
+ * Report of the latest successful run, for /download/report and /download/report/stream.
+ * Every job also keeps its own report (/jobs/{id}/report), so concurrent runs never lose theirs.
+ */
 public class ReportTracker {
 
     private static String lastReportPath = null;
 
-    public static void setLastReportPath(String path) {
-        lastReportPath = path;
+    // Result spill of the last run; /download/report/stream regenerates the report from it
+    private static String lastResultsPath = null;
+
+    /** Both paths at once, so readers never see the report of one run with the spill of another. */
+    public static synchronized void setLast(String reportPath, String resultsPath) {
+        lastReportPath = reportPath;
+        lastResultsPath = resultsPath;
     }
 
-    public static String getLastReportPath() {
+    public static synchronized String getLastReportPath() {
         return lastReportPath;
     }
-}
\ No newline at end of file
+
+    public static synchronized String getLastResultsPath() {
+        return lastResultsPath;
+    }
+}
@@ -128,52 +128,42 @@
 package com.dataquality.web;
 
 import com.dataquality.common.CoreLogStream;
-import com.dataquality.main.DataQualityTool;
-import com.dataquality.main.DataQualityExcelTool;
+import com.dataquality.main.DataQualityListenerTool;
 
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.nio.file.*;
-import java.io.IOException;
-import java.util.Comparator;
+import java.util.concurrent.RejectedExecutionException;
 
+/**
+ * Blocking run endpoints used by the UI before the job API (/jobs). Runs go through
+ * {@link JobService} like jobs, so they share its queue and limits; the request returns when
+ * the run has finished.
+ */
 @RestController
 public class RunController {
 
+    private final JobService jobService;
+
+    // Listen mode of this application (its own run context); null until first started
+    private DataQualityListenerTool listener;
+
+    public RunController(JobService jobService) {
+        this.jobService = jobService;
+    }
+
     // -------------------------------------------------------
     // RUN DB MODE
     // -------------------------------------------------------
     @GetMapping("/run/db-mode")
-    public ResponseEntity<String> runDbMode() {
-
+    public ResponseEntity<String> runDbMode(@RequestParam(value = "formats", required = false) String formats) {
         try {
-            CoreLogStream.push("--------------------------------------------------");
-            CoreLogStream.push("Starting DB Mode Validation...");
-            CoreLogStream.push("--------------------------------------------------");
-
-            // RUN DB MAIN CLASS
-            DataQualityTool.main(new String[]{});
-
-            // FIND REPORT
-            String reportPath = findLatestReportFile();
-            ReportTracker.setLastReportPath(reportPath);
-
-            CoreLogStream.push("--------------------------------------------------");
-            CoreLogStream.push("DB Mode Completed Successfully.");
-            CoreLogStream.push("Report ready for download.");
-            CoreLogStream.push("--------------------------------------------------");
-
-            return ResponseEntity.ok("DB Mode executed successfully.");
-
-        } catch (Exception e) {
-//            CoreLogStream.push("DB Mode Failed: " + e.getMessage());
-
-            ReportTracker.setLastReportPath(null); // disable download
-
-            return ResponseEntity.status(500)
-                    .body("DB Mode Failed: " + e.getMessage());
+            Job job = jobService.submit(Job.Mode.DB, "DB Mode", 0, j -> RunModes.db(j, formats));
+            return awaitResult(job, "DB Mode executed successfully.");
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(429).body(e.getMessage());
         }
     }
 
@@ -181,73 +171,82 @@ public class RunController {
     // RUN EXCEL MODE
     // -------------------------------------------------------
     @PostMapping("/run/excel-mode")
-    public ResponseEntity<String> runExcelMode(@RequestParam("file") MultipartFile file) {
-
+    public ResponseEntity<String> runExcelMode(@RequestParam("file") MultipartFile file,
+                                               @RequestParam(value = "formats", required = false) String formats) {
+        Path upload;
         try {
-            CoreLogStream.push("--------------------------------------------------");
-            CoreLogStream.push("Excel file received: " + file.getOriginalFilename());
-            CoreLogStream.push("Starting Excel Mode Validation...");
-            CoreLogStream.push("--------------------------------------------------");
-
-            // Save uploaded file
-            Path temp = Files.createTempFile("dqf_upload_", ".xlsx");
-            Files.write(temp, file.getBytes());
-            CoreLogStream.push("Uploaded file stored at: " + temp);
-
-            // RUN EXCEL MAIN CLASS (ONLY ONCE)
-            DataQualityExcelTool.main(new String[]{ temp.toString() });
-
-            // FIND REPORT
-            String reportPath = findLatestReportFile();
-            ReportTracker.setLastReportPath(reportPath);
-
-            CoreLogStream.push("--------------------------------------------------");
-            CoreLogStream.push("Excel Mode Completed Successfully.");
-            CoreLogStream.push("Report ready for download.");
-            CoreLogStream.push("--------------------------------------------------");
-
-            return ResponseEntity.ok("Excel Mode executed successfully.");
-
+            upload = RunModes.storeUpload(file);
         } catch (Exception e) {
+            CoreLogStream.push("Excel Mode Failed: " + e.getMessage());
+            return ResponseEntity.status(500)
+                    .body("Please Maintain Your Excel Column Names with Exact Match");
+        }
 
-        	CoreLogStream.push("Excel Mode Failed: " + e.getMessage());
-            CoreLogStream.push("No report generated due to error.");
+        try {
+            Job job = jobService.submit(Job.Mode.EXCEL, "Excel Mode", file.getSize() * RunModes.EXCEL_HEAP_FACTOR,
+                    j -> RunModes.excel(j, upload, file.getOriginalFilename(), formats));
+            return awaitResult(job, "Excel Mode executed successfully.");
+        } catch (RejectedExecutionException e) {
+            try { Files.deleteIfExists(upload); } catch (Exception ignored) {}
+            return ResponseEntity.status(429).body(e.getMessage());
+        }
+    }
 
-            ReportTracker.setLastReportPath(null);  // disable download button
+    // -------------------------------------------------------
+    // DUPLICATE SWEEP (fuzzy duplicates inside the master table)
+    // -------------------------------------------------------
+    @GetMapping("/run/duplicate-sweep")
+    public ResponseEntity<String> runDuplicateSweep() {
+        try {
+            Job job = jobService.submit(Job.Mode.SWEEP, "Duplicate Sweep", 0, RunModes::sweep);
+            return awaitResult(job, "Duplicate Sweep executed successfully.");
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(429).body(e.getMessage());
+        }
+    }
 
-            return ResponseEntity.status(500)
-                    .body("Please Maintain Your Excel Column Names with Exact Match");
+    private static ResponseEntity<String> awaitResult(Job job, String success) {
+        try {
+            job.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return ResponseEntity.status(503).body("Interrupted; the run continues as job " + job.getId());
         }
+        if (job.getState() == Job.State.SUCCEEDED) return ResponseEntity.ok(success);
+        return ResponseEntity.status(500).body(job.getMessage());
     }
 
     // -------------------------------------------------------
-    // FIND LATEST ValidationReport*.xlsx in project or target
+    // LISTEN MODE (continuous validation via LISTEN/NOTIFY)
     // -------------------------------------------------------
-    private String findLatestReportFile() throws Exception {
+    @GetMapping("/run/listen-mode/start")
+    public ResponseEntity<String> startListenMode() {
+        synchronized (this) {
+            if (listener != null && listener.isRunning()) {
+                return ResponseEntity.ok("Listen Mode is already running.");
+            }
+            try {
+                listener = new DataQualityListenerTool(RunModes.listenerContext());
+            } catch (Exception e) {
+                CoreLogStream.push("Listen Mode Failed: " + e.getMessage());
+                return ResponseEntity.status(500).body("Listen Mode Failed: " + e.getMessage());
+            }
+            CoreLogStream.push("--------------------------------------------------");
+            CoreLogStream.push("Starting Listen Mode (continuous validation)...");
+            CoreLogStream.push("--------------------------------------------------");
+            listener.start();
+        }
+        return ResponseEntity.ok("Listen Mode started.");
+    }
 
-        Path root = Paths.get(System.getProperty("user.dir"));
+    @GetMapping("/run/listen-mode/stop")
+    public synchronized ResponseEntity<String> stopListenMode() {
+        if (listener != null) listener.stop();
+        return ResponseEntity.ok("Listen Mode stopping.");
+    }
 
-        // 1) Project Root
-        try {
-            Path p = Files.list(root)
-                    .filter(f -> f.getFileName().toString().startsWith("ValidationReport"))
-                    .filter(f -> f.toString().endsWith(".xlsx"))
-                    .max(Comparator.comparingLong(f -> f.toFile().lastModified()))
-                    .orElse(null);
-            if (p != null) return p.toString();
-        } catch (Exception ignored) {}
-
-        // 2) dqf-web/target
-        Path target = root.resolve("dqf-web").resolve("target");
-        try {
-            Path p = Files.list(target)
-                    .filter(f -> f.getFileName().toString().startsWith("ValidationReport"))
-                    .filter(f -> f.toString().endsWith(".xlsx"))
-                    .max(Comparator.comparingLong(f -> f.toFile().lastModified()))
-                    .orElse(null);
-            if (p != null) return p.toString();
-        } catch (Exception ignored) {}
-
-        throw new Exception("ValidationReport.xlsx not found!");
+    @GetMapping("/run/listen-mode/status")
+    public synchronized ResponseEntity<String> listenModeStatus() {
+        return ResponseEntity.ok(listener != null && listener.isRunning() ? "RUNNING" : "STOPPED");
     }
-}
\ No newline at end of file
+}
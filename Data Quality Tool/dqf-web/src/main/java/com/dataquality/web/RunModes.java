@@ -0,0 +1,144 @@
+package com.dataquality.web;
+
+import com.dataquality.common.CoreLogStream;
+import com.dataquality.common.RunContext;
+import com.dataquality.config.ConfigReader;
+import com.dataquality.main.DataQualityDuplicateSweepTool;
+import com.dataquality.main.DataQualityExcelTool;
+import com.dataquality.main.DataQualityTool;
+
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * The runs behind the job API and the /run endpoints. Each one gets its own run context
+ * (configuration, connections, log channel, output directory), logs its banners, runs the tool,
+ * records the report for downloads and throws if the run failed.
+ */
+final class RunModes {
+
+    // Heap per byte of uploaded .xlsx: XSSF expands the compressed sheet XML into a DOM
+    static final long EXCEL_HEAP_FACTOR = 40;
+
+    private RunModes() {}
+
+    static void db(Job job, String formats) throws Exception {
+        try {
+            RunContext ctx = context(job);
+            ctx.log("--------------------------------------------------");
+            ctx.log("Starting DB Mode Validation...");
+            ctx.log("--------------------------------------------------");
+
+            // RUN DB MAIN CLASS
+            DataQualityTool.run(ctx, new String[]{ formats });
+
+            finished(job, ctx);
+
+            ctx.log("--------------------------------------------------");
+            ctx.log("DB Mode Completed Successfully.");
+            ctx.log("Report ready for download.");
+            ctx.log("--------------------------------------------------");
+
+        } catch (Exception e) {
+            throw new Exception("DB Mode Failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stores an uploaded workbook in a temp file for {@link #excel}.
+     */
+    static Path storeUpload(MultipartFile file) throws IOException {
+        Path temp = Files.createTempFile("dqf_upload_", ".xlsx");
+        try {
+            file.transferTo(temp);
+        } catch (IOException | RuntimeException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        return temp;
+    }
+
+    /**
+     * @param upload stored upload (see {@link #storeUpload}); deleted when the run ends
+     */
+    static void excel(Job job, Path upload, String originalName, String formats) throws Exception {
+        try {
+            RunContext ctx = context(job);
+            ctx.log("--------------------------------------------------");
+            ctx.log("Excel file received: " + originalName);
+            ctx.log("Starting Excel Mode Validation...");
+            ctx.log("--------------------------------------------------");
+            ctx.log("Uploaded file stored at: " + upload);
+
+            // RUN EXCEL MAIN CLASS (ONLY ONCE)
+            DataQualityExcelTool.run(ctx, new String[]{ upload.toString(), formats });
+
+            finished(job, ctx);
+
+            ctx.log("--------------------------------------------------");
+            ctx.log("Excel Mode Completed Successfully.");
+            ctx.log("Report ready for download.");
+            ctx.log("--------------------------------------------------");
+
+        } catch (Exception e) {
+            log(job, "Excel Mode Failed: " + e.getMessage());
+            log(job, "No report generated due to error.");
+            throw new Exception("Please Maintain Your Excel Column Names with Exact Match", e);
+
+        } finally {
+            Files.deleteIfExists(upload);
+        }
+    }
+
+    static void sweep(Job job) throws Exception {
+        try {
+            RunContext ctx = context(job);
+            ctx.log("--------------------------------------------------");
+            ctx.log("Starting Duplicate Sweep...");
+            ctx.log("--------------------------------------------------");
+
+            DataQualityDuplicateSweepTool.run(ctx);
+
+            finished(job, ctx);
+
+            ctx.log("--------------------------------------------------");
+            ctx.log("Duplicate Sweep Completed Successfully.");
+            ctx.log("Report ready for download.");
+            ctx.log("--------------------------------------------------");
+
+        } catch (Exception e) {
+            throw new Exception("Duplicate Sweep Failed: " + e.getMessage(), e);
+        }
+    }
+
+    // Fresh userfile.xlsx settings, reports in the job's directory, log lines to the job and,
+    // tagged with the job id, to the shared console stream
+    private static RunContext context(Job job) throws IOException {
+        return new RunContext(job.getId(), ConfigReader.load(), job.outputDir(), line -> log(job, line));
+    }
+
+    /**
+     * Context of Listen mode: fresh userfile.xlsx settings, log lines to the shared console stream
+     * tagged "listen".
+     */
+    static RunContext listenerContext() throws IOException {
+        return new RunContext("listen", ConfigReader.load(), Paths.get(System.getProperty("user.dir")),
+                line -> CoreLogStream.publish("[listen] " + line));
+    }
+
+    private static void log(Job job, String line) {
+        job.log(line);
+        CoreLogStream.publish("[" + job.getId().substring(0, 8) + "] " + line);
+    }
+
+    // The job keeps its own report; /download/report serves the latest successful one
+    private static void finished(Job job, RunContext ctx) throws Exception {
+        if (ctx.getReportPath() == null) throw new Exception("No report was generated.");
+        job.setReport(ctx.getReportPath(), ctx.getResultsPath());
+        ReportTracker.setLast(ctx.getReportPath(), ctx.getResultsPath());
+    }
+}
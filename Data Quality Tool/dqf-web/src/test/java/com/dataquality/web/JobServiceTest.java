@@ -0,0 +1,118 @@
+package com.dataquality.web;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class JobServiceTest {
+
+    @TempDir
+    Path root;
+
+    private final List<JobService> services = new ArrayList<>();
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    @AfterEach
+    void shutdown() {
+        release.countDown();
+        services.forEach(JobService::shutdown);
+        ReportTracker.setLast(null, null);
+    }
+
+    // threads, queue capacity, max DB / Excel / sweep, no heap gate
+    private JobService service(int threads, int queue, int maxDb, int maxExcel, int maxSweep, int history) {
+        JobService s = new JobService(threads, queue, maxDb, maxExcel, maxSweep, 0, history, root.toString());
+        services.add(s);
+        return s;
+    }
+
+    // Runs until the test releases it
+    private Job blocking(JobService s, Job.Mode mode) {
+        return s.submit(mode, mode + " job", 0, job -> release.await());
+    }
+
+    private static void awaitState(Job job, Job.State state) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (job.getState() != state && System.nanoTime() < deadline) Thread.sleep(10);
+        assertEquals(state, job.getState());
+    }
+
+    @Test
+    void fullQueueRejectsSubmissions() throws Exception {
+        JobService s = service(1, 2, 1, 1, 1, 100);
+        Job running = blocking(s, Job.Mode.DB);
+        awaitState(running, Job.State.RUNNING);
+
+        Job first = blocking(s, Job.Mode.DB);
+        Job second = blocking(s, Job.Mode.DB);
+        assertEquals(1, s.queuePosition(first));
+        assertEquals(2, s.queuePosition(second));
+        assertEquals(0, s.queuePosition(running));
+
+        assertThrows(RejectedExecutionException.class, () -> blocking(s, Job.Mode.DB));
+
+        release.countDown();
+        second.await();
+        assertEquals(Job.State.SUCCEEDED, first.getState());
+        assertEquals(Job.State.SUCCEEDED, second.getState());
+    }
+
+    @Test
+    void modeAtItsLimitDoesNotHoldUpOtherModes() throws Exception {
+        JobService s = service(4, 10, 2, 3, 1, 100);
+        Job sweep = blocking(s, Job.Mode.SWEEP);
+        Job secondSweep = blocking(s, Job.Mode.SWEEP);
+        Job excel = blocking(s, Job.Mode.EXCEL);
+
+        awaitState(sweep, Job.State.RUNNING);
+        awaitState(excel, Job.State.RUNNING);
+        assertEquals(Job.State.QUEUED, secondSweep.getState());
+        assertEquals(1, s.queuePosition(secondSweep));
+
+        release.countDown();
+        secondSweep.await();
+        assertEquals(Job.State.SUCCEEDED, secondSweep.getState());
+    }
+
+    @Test
+    void historyKeepsTheOutputDownloadReportServes() throws Exception {
+        JobService s = service(1, 10, 1, 1, 1, 1);
+
+        Job served = s.submit(Job.Mode.EXCEL, "served", 0, job -> {
+            Path report = Files.createDirectories(job.outputDir()).resolve("ValidationReport.xlsx");
+            Files.writeString(report, "report");
+            job.setReport(report.toString(), null);
+            ReportTracker.setLast(report.toString(), null);
+        });
+        served.await();
+        Job failed = s.submit(Job.Mode.EXCEL, "failed", 0, job -> {
+            Files.createDirectories(job.outputDir());
+            throw new Exception("no report");
+        });
+        failed.await();
+
+        // Trimmed on the next submission: the failed job goes, the served one stays
+        Job next = s.submit(Job.Mode.EXCEL, "next", 0, job -> {});
+        next.await();
+        assertNull(s.get(failed.getId()));
+        assertFalse(Files.exists(failed.outputDir()));
+        assertNotNull(s.get(served.getId()));
+        assertTrue(Files.isRegularFile(Path.of(ReportTracker.getLastReportPath())));
+
+        // Once another run's report is the latest, the old one is trimmed as usual
+        ReportTracker.setLast(root.resolve("elsewhere.xlsx").toString(), null);
+        s.submit(Job.Mode.EXCEL, "after", 0, job -> {}).await();
+        assertNull(s.get(served.getId()));
+        assertFalse(Files.exists(served.outputDir()));
+    }
+}
@@ -0,0 +1,37 @@
+package com.dataquality.web;
+
+import com.dataquality.common.CoreLogStream;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LogStreamTest {
+
+    @Test
+    void startCursorResumesAfterLastEventId() {
+        long first = CoreLogStream.publish("a");
+        CoreLogStream.publish("b");
+
+        assertEquals(first + 1, LogStream.startCursor(String.valueOf(first)));
+        assertEquals(first + 1, LogStream.startCursor(" " + first + " "));
+    }
+
+    @Test
+    void startCursorStartsAtHeadWithoutUsableId() {
+        CoreLogStream.publish("a");
+        long head = CoreLogStream.head();
+
+        assertEquals(head, LogStream.startCursor(null));
+        assertEquals(head, LogStream.startCursor("abc"));
+    }
+
+    @Test
+    void startCursorClampsIdFromBeforeRestart() {
+        CoreLogStream.publish("a");
+        long head = CoreLogStream.head();
+
+        assertEquals(head, LogStream.startCursor(String.valueOf(head + 10_000)));
+        assertEquals(head, LogStream.startCursor(String.valueOf(head - 1)));
+    }
+}
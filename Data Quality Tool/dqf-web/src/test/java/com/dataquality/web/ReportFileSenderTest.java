@@ -0,0 +1,89 @@
+package com.dataquality.web;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ReportFileSenderTest {
+
+    private static final String ETAG = "\"1f4-18b2c-7\"";
+    private static final long LAST_MODIFIED = 1_700_000_000_000L;
+
+    @Test
+    void parseRangeSingleRanges() {
+        assertArrayEquals(new long[]{0, 99}, ReportFileSender.parseRange("bytes=0-99", 500));
+        assertArrayEquals(new long[]{100, 499}, ReportFileSender.parseRange("bytes=100-", 500));
+        assertArrayEquals(new long[]{400, 499}, ReportFileSender.parseRange("bytes=-100", 500));
+        assertArrayEquals(new long[]{0, 499}, ReportFileSender.parseRange("bytes=-1000", 500));
+        assertArrayEquals(new long[]{450, 499}, ReportFileSender.parseRange("bytes=450-9999", 500));
+        assertArrayEquals(new long[]{7, 7}, ReportFileSender.parseRange(" bytes= 7 - 7 ", 500));
+    }
+
+    @Test
+    void parseRangeUnsatisfiable() {
+        assertEquals(0, ReportFileSender.parseRange("bytes=500-", 500).length);
+        assertEquals(0, ReportFileSender.parseRange("bytes=600-700", 500).length);
+        assertEquals(0, ReportFileSender.parseRange("bytes=-0", 500).length);
+        assertEquals(0, ReportFileSender.parseRange("bytes=-10", 0).length);
+    }
+
+    @Test
+    void parseRangeIgnoresWhatIsNotOneByteRange() {
+        assertNull(ReportFileSender.parseRange("bytes=0-1,5-6", 500));
+        assertNull(ReportFileSender.parseRange("items=0-1", 500));
+        assertNull(ReportFileSender.parseRange("bytes=10-5", 500));
+        assertNull(ReportFileSender.parseRange("bytes=-", 500));
+        assertNull(ReportFileSender.parseRange("bytes=5", 500));
+        assertNull(ReportFileSender.parseRange("bytes=a-b", 500));
+    }
+
+    @Test
+    void notModifiedByEtag() {
+        assertTrue(ReportFileSender.notModified(request(HttpHeaders.IF_NONE_MATCH, ETAG), ETAG, LAST_MODIFIED));
+        assertTrue(ReportFileSender.notModified(request(HttpHeaders.IF_NONE_MATCH, "\"x\", W/" + ETAG), ETAG, LAST_MODIFIED));
+        assertTrue(ReportFileSender.notModified(request(HttpHeaders.IF_NONE_MATCH, "*"), ETAG, LAST_MODIFIED));
+        assertFalse(ReportFileSender.notModified(request(HttpHeaders.IF_NONE_MATCH, "\"other\""), ETAG, LAST_MODIFIED));
+    }
+
+    @Test
+    void ifNoneMatchTakesPrecedenceOverIfModifiedSince() {
+        MockHttpServletRequest r = request(HttpHeaders.IF_NONE_MATCH, "\"other\"");
+        r.addHeader(HttpHeaders.IF_MODIFIED_SINCE, LAST_MODIFIED);
+        assertFalse(ReportFileSender.notModified(r, ETAG, LAST_MODIFIED));
+    }
+
+    @Test
+    void notModifiedByDateAtSecondPrecision() {
+        assertTrue(ReportFileSender.notModified(dateRequest(HttpHeaders.IF_MODIFIED_SINCE, LAST_MODIFIED), ETAG, LAST_MODIFIED + 999));
+        assertTrue(ReportFileSender.notModified(dateRequest(HttpHeaders.IF_MODIFIED_SINCE, LAST_MODIFIED + 5000), ETAG, LAST_MODIFIED));
+        assertFalse(ReportFileSender.notModified(dateRequest(HttpHeaders.IF_MODIFIED_SINCE, LAST_MODIFIED), ETAG, LAST_MODIFIED + 1000));
+        assertFalse(ReportFileSender.notModified(request(HttpHeaders.IF_MODIFIED_SINCE, "not a date"), ETAG, LAST_MODIFIED));
+        assertFalse(ReportFileSender.notModified(new MockHttpServletRequest(), ETAG, LAST_MODIFIED));
+    }
+
+    @Test
+    void ifRangeMatchesStrongEtagOrExactDate() {
+        assertTrue(ReportFileSender.ifRangeMatches(new MockHttpServletRequest(), ETAG, LAST_MODIFIED));
+        assertTrue(ReportFileSender.ifRangeMatches(request(HttpHeaders.IF_RANGE, ETAG), ETAG, LAST_MODIFIED));
+        assertFalse(ReportFileSender.ifRangeMatches(request(HttpHeaders.IF_RANGE, "\"other\""), ETAG, LAST_MODIFIED));
+        assertFalse(ReportFileSender.ifRangeMatches(request(HttpHeaders.IF_RANGE, "W/" + ETAG), ETAG, LAST_MODIFIED));
+
+        assertTrue(ReportFileSender.ifRangeMatches(dateRequest(HttpHeaders.IF_RANGE, LAST_MODIFIED), ETAG, LAST_MODIFIED + 500));
+        assertFalse(ReportFileSender.ifRangeMatches(dateRequest(HttpHeaders.IF_RANGE, LAST_MODIFIED - 1000), ETAG, LAST_MODIFIED));
+        assertFalse(ReportFileSender.ifRangeMatches(request(HttpHeaders.IF_RANGE, "garbage"), ETAG, LAST_MODIFIED));
+    }
+
+    private static MockHttpServletRequest request(String header, String value) {
+        MockHttpServletRequest r = new MockHttpServletRequest();
+        r.addHeader(header, value);
+        return r;
+    }
+
+    private static MockHttpServletRequest dateRequest(String header, long millis) {
+        MockHttpServletRequest r = new MockHttpServletRequest();
+        r.addHeader(header, millis);
+        return r;
+    }
+}